@@ -0,0 +1,207 @@
+package ThesisMan;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Change listener which delivers events to another listener in its own
+ * thread, so slow listeners do not delay the threads which commit changes.
+ * Events wait for delivery in a bounded ring buffer and are delivered in
+ * the order in which they came. What happens to events which come when
+ * the buffer is full is given by {@link OverflowPolicy}.
+ *
+ * @param <T> type of the entities
+ * @author Kristina Miklasova, 4333 83
+ */
+public class AsyncChangeListener<T> implements ChangeListener<T>, AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(
+            AsyncChangeListener.class.getName());
+
+    /**
+     * Handling of events which come when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** The committing thread waits until there is space for the event. */
+        BLOCK,
+        /** The new event is dropped. */
+        DROP_NEWEST,
+        /** The oldest waiting event is dropped to make space for the new one. */
+        DROP_OLDEST
+    }
+
+    private final ChangeListener<T> delegate;
+    private final OverflowPolicy overflowPolicy;
+    private final Object[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread dispatcher;
+    private final LongAdder delivered = new LongAdder();
+    /* guarded by lock */
+    private int head;
+    private int count;
+    private long dropped;
+    private boolean closed;
+
+    /**
+     * Creates listener and starts its delivery thread.
+     *
+     * @param delegate listener to which events are delivered
+     * @param capacity maximal number of events waiting for delivery
+     * @param overflowPolicy handling of events which do not fit in
+     */
+    public AsyncChangeListener(ChangeListener<T> delegate, int capacity, OverflowPolicy overflowPolicy) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity is not positive");
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy is null");
+        }
+        this.delegate = delegate;
+        this.overflowPolicy = overflowPolicy;
+        this.ring = new Object[capacity];
+        this.dispatcher = new Thread(this::dispatch, "change-listener-" + delegate.getClass().getSimpleName());
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Puts the event to the buffer. Events which come after {@link #close()}
+     * are dropped.
+     *
+     * @param event the change
+     */
+    @Override
+    public void changed(ChangeEvent<T> event) {
+        if (event == null) {
+            throw new IllegalArgumentException("event is null");
+        }
+        lock.lock();
+        try {
+            while (count == ring.length && !closed) {
+                if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                    dropped++;
+                    return;
+                } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    count--;
+                    dropped++;
+                } else {
+                    notFull.awaitUninterruptibly();
+                }
+            }
+            if (closed) {
+                dropped++;
+                return;
+            }
+            ring[(head + count) % ring.length] = event;
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            ChangeEvent<T> event;
+            lock.lock();
+            try {
+                while (count == 0 && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (count == 0) {
+                    return;
+                }
+                @SuppressWarnings("unchecked")
+                ChangeEvent<T> first = (ChangeEvent<T>) ring[head];
+                event = first;
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                count--;
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                delegate.changed(event);
+            } catch (RuntimeException ex) {
+                logger.log(Level.WARNING, "Change listener " + delegate + " failed on " + event, ex);
+            }
+            delivered.increment();
+        }
+    }
+
+    /**
+     * Returns number of events waiting for delivery.
+     *
+     * @return number of buffered events
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns number of events delivered to the wrapped listener, including
+     * those on which the listener failed.
+     *
+     * @return number of delivered events
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * Returns number of events dropped because the buffer was full or the
+     * listener was closed.
+     *
+     * @return number of dropped events
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting events, delivers the buffered ones and waits until
+     * the delivery thread ends.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (Thread.currentThread() == dispatcher) {
+            // closed by the wrapped listener, the rest is delivered by this thread
+            return;
+        }
+        try {
+            dispatcher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
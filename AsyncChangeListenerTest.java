@@ -0,0 +1,127 @@
+package ThesisMan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for AsyncChangeListener.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class AsyncChangeListenerTest {
+
+    private final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /** Records surnames; waits on the first event until released. */
+    private final ChangeListener<Student> slowListener = event -> {
+        started.countDown();
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        delivered.add(event.getEntity().getSurname());
+    };
+
+    @Test
+    public void eventsAreDeliveredInOrder() throws InterruptedException {
+        release.countDown();
+        AsyncChangeListener<Student> listener = new AsyncChangeListener<>(
+                slowListener, 2, AsyncChangeListener.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 10; i++) {
+            listener.changed(event("S" + i));
+        }
+        listener.close();
+
+        assertEquals(10, delivered.size());
+        assertEquals("S0", delivered.get(0));
+        assertEquals("S9", delivered.get(9));
+        assertEquals(10, listener.getDeliveredCount());
+        assertEquals(0, listener.getDroppedCount());
+    }
+
+    @Test
+    public void dropNewest() throws InterruptedException {
+        AsyncChangeListener<Student> listener = fillBuffer(AsyncChangeListener.OverflowPolicy.DROP_NEWEST);
+        listener.changed(event("D"));
+        release.countDown();
+        listener.close();
+
+        assertEquals(Arrays.asList("A", "B", "C"), delivered);
+        assertEquals(1, listener.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldest() throws InterruptedException {
+        AsyncChangeListener<Student> listener = fillBuffer(AsyncChangeListener.OverflowPolicy.DROP_OLDEST);
+        listener.changed(event("D"));
+        release.countDown();
+        listener.close();
+
+        assertEquals(Arrays.asList("A", "C", "D"), delivered);
+        assertEquals(1, listener.getDroppedCount());
+    }
+
+    @Test
+    public void eventsAfterCloseAreDropped() {
+        release.countDown();
+        AsyncChangeListener<Student> listener = new AsyncChangeListener<>(
+                slowListener, 2, AsyncChangeListener.OverflowPolicy.BLOCK);
+        listener.close();
+        listener.changed(event("A"));
+
+        assertTrue(delivered.isEmpty());
+        assertEquals(1, listener.getDroppedCount());
+    }
+
+    @Test
+    public void failingListenerDoesNotStopDelivery() {
+        AsyncChangeListener<Student> listener = new AsyncChangeListener<>(event -> {
+            if (event.getEntity().getSurname().equals("A")) {
+                throw new IllegalStateException("failure");
+            }
+            delivered.add(event.getEntity().getSurname());
+        }, 2, AsyncChangeListener.OverflowPolicy.BLOCK);
+        listener.changed(event("A"));
+        listener.changed(event("B"));
+        listener.close();
+
+        assertEquals(Arrays.asList("B"), delivered);
+        assertEquals(2, listener.getDeliveredCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new AsyncChangeListener<>(slowListener, 0, AsyncChangeListener.OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Returns listener whose delivery thread is blocked on event A and whose
+     * buffer of two events holds B and C.
+     */
+    private AsyncChangeListener<Student> fillBuffer(AsyncChangeListener.OverflowPolicy policy)
+            throws InterruptedException {
+        AsyncChangeListener<Student> listener = new AsyncChangeListener<>(slowListener, 2, policy);
+        listener.changed(event("A"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        listener.changed(event("B"));
+        listener.changed(event("C"));
+        assertEquals(2, listener.getPendingCount());
+        return listener;
+    }
+
+    private static ChangeEvent<Student> event(String surname) {
+        Student student = new Student();
+        student.setName("Joshua");
+        student.setSurname(surname);
+        return new ChangeEvent<>(ChangeEvent.Kind.CREATED, student);
+    }
+}
@@ -0,0 +1,67 @@
+package ThesisMan;
+
+import ThesisManCommon.DatabaseExecutor;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade of StudentManager. Every method runs the respective
+ * method of the wrapped manager by given DatabaseExecutor and returns its 
+ * future result. Failures, e.g. ServiceFailureException or 
+ * IllegalArgumentException, complete the returned future exceptionally.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class AsyncStudentManager {
+    
+    private final StudentManager manager;
+    private final DatabaseExecutor executor;
+
+    public AsyncStudentManager(StudentManager manager, DatabaseExecutor executor) {
+        if (manager == null) {
+            throw new IllegalArgumentException("manager is null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is null");
+        }
+        this.manager = manager;
+        this.executor = executor;
+    }
+    
+    public CompletableFuture<Void> createStudent(Student student) {
+        return executor.submit(() -> {
+            manager.createStudent(student);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Void> createStudents(Collection<Student> students) {
+        return executor.submit(() -> {
+            manager.createStudents(students);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Void> updateStudent(Student student) {
+        return executor.submit(() -> {
+            manager.updateStudent(student);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Void> deleteStudent(Student student) {
+        return executor.submit(() -> {
+            manager.deleteStudent(student);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Student> getStudentById(Long id) {
+        return executor.submit(() -> manager.getStudentById(id));
+    }
+    
+    public CompletableFuture<List<Student>> findAllStudents() {
+        return executor.submit(() -> manager.findAllStudents());
+    }
+}
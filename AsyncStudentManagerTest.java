@@ -0,0 +1,217 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.DatabaseExecutor;
+import ThesisManCommon.ServiceFailureException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for AsyncStudentManager and AsyncThesisManager.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class AsyncStudentManagerTest {
+    
+    private DataSource dataSource;
+    private StudentManagerImpl studentManager;
+    private DatabaseExecutor executor;
+    
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = prepareDataSource();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(dataSource);
+        executor = new DatabaseExecutor(4);
+    }
+    
+    @After
+    public void tearDown() throws SQLException {
+        executor.close();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+    
+    private static DataSource prepareDataSource() throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:thesismgr-test");
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+    
+    @Test
+    public void fanOut() throws Exception {
+        AsyncStudentManager students = new AsyncStudentManager(studentManager, executor);
+        ThesisManagerImpl thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(dataSource);
+        AsyncThesisManager theses = new AsyncThesisManager(thesisManager, executor);
+        
+        Student student = newStudent("Joshua", "Bloch");
+        students.createStudent(student).get();
+        theses.createThesis(ThesisManagerImplTest.newThesis("Math", Type.PHD, 2012, student)).get();
+        
+        CompletableFuture<Student> found = students.getStudentById(student.getId());
+        CompletableFuture<List<Thesis>> forStudent = theses.getThesesForStudent(student);
+        CompletableFuture<List<Student>> all = students.findAllStudents();
+        CompletableFuture.allOf(found, forStudent, all).get(10, TimeUnit.SECONDS);
+        
+        assertEquals(student, found.get());
+        assertEquals(1, forStudent.get().size());
+        assertEquals(1, all.get().size());
+    }
+    
+    @Test
+    public void serviceFailureIsPropagated() throws Exception {
+        StudentManagerImpl failing = new StudentManagerImpl();
+        EmbeddedDataSource missing = new EmbeddedDataSource();
+        missing.setDatabaseName("memory:does-not-exist");
+        failing.setDataSource(missing);
+        AsyncStudentManager students = new AsyncStudentManager(failing, executor);
+        
+        try {
+            students.findAllStudents().get();
+            fail("ExecutionException expected");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof ServiceFailureException);
+        }
+    }
+    
+    @Test
+    public void illegalArgumentIsPropagated() throws Exception {
+        AsyncStudentManager students = new AsyncStudentManager(studentManager, executor);
+        try {
+            students.getStudentById(null).get();
+            fail("ExecutionException expected");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+    }
+    
+    @Test
+    public void cancelledCallIsNotInterrupted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        studentManager.setDataSource(blockingDataSource(dataSource, started, interrupted, running, new AtomicInteger()));
+        AsyncStudentManager students = new AsyncStudentManager(studentManager, executor);
+        
+        CompletableFuture<List<Student>> result = students.findAllStudents();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(result.cancel(true));
+        try {
+            result.join();
+            fail("CancellationException expected");
+        } catch (CancellationException ex) {
+            // expected
+        }
+        
+        long deadline = System.currentTimeMillis() + 10000;
+        while (running.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, running.get());
+        assertEquals(1, interrupted.getCount());
+    }
+    
+    @Test
+    public void cancelledWaitingCallIsNotRun() throws Exception {
+        executor.close();
+        executor = new DatabaseExecutor(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger maxRunning = new AtomicInteger();
+        studentManager.setDataSource(blockingDataSource(dataSource, started, null, new AtomicInteger(), maxRunning));
+        AsyncStudentManager students = new AsyncStudentManager(studentManager, executor);
+        
+        CompletableFuture<List<Student>> first = students.findAllStudents();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<List<Student>> second = students.findAllStudents();
+        assertTrue(second.cancel(false));
+        
+        assertTrue(first.get(10, TimeUnit.SECONDS).isEmpty());
+        CompletableFuture<List<Student>> third = students.findAllStudents();
+        assertTrue(third.get(10, TimeUnit.SECONDS).isEmpty());
+        assertEquals(1, maxRunning.get());
+        assertTrue(second.isCancelled());
+    }
+    
+    @Test
+    public void concurrencyIsLimited() throws Exception {
+        executor.close();
+        executor = new DatabaseExecutor(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        studentManager.setDataSource(blockingDataSource(dataSource, null, null, running, maxRunning));
+        AsyncStudentManager students = new AsyncStudentManager(studentManager, executor);
+        
+        List<CompletableFuture<List<Student>>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(students.findAllStudents());
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        
+        assertEquals(2, maxRunning.get());
+    }
+    
+    /**
+     * Wraps given data source so that getConnection() takes some time and 
+     * tracks how many callers are inside. When started latch is given, the 
+     * first getConnection() counts it down and waits a while, so the call
+     * can be cancelled meanwhile.
+     */
+    private static DataSource blockingDataSource(final DataSource target, final CountDownLatch started,
+            final CountDownLatch interrupted, final AtomicInteger running, final AtomicInteger maxRunning) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("getConnection")) {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        if (started != null && started.getCount() > 0) {
+                            started.countDown();
+                            Thread.sleep(500);
+                        } else {
+                            Thread.sleep(20);
+                        }
+                    } catch (InterruptedException ex) {
+                        if (interrupted != null) {
+                            interrupted.countDown();
+                        }
+                        throw new SQLException("Interrupted", ex);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                }
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            }
+        });
+    }
+    
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+        return student;
+    }
+}
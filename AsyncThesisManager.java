@@ -0,0 +1,75 @@
+package ThesisMan;
+
+import ThesisManCommon.DatabaseExecutor;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade of ThesisManager. Every method runs the respective
+ * method of the wrapped manager by given DatabaseExecutor and returns its 
+ * future result. Failures, e.g. ServiceFailureException or 
+ * IllegalArgumentException, complete the returned future exceptionally.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class AsyncThesisManager {
+    
+    private final ThesisManager manager;
+    private final DatabaseExecutor executor;
+
+    public AsyncThesisManager(ThesisManager manager, DatabaseExecutor executor) {
+        if (manager == null) {
+            throw new IllegalArgumentException("manager is null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is null");
+        }
+        this.manager = manager;
+        this.executor = executor;
+    }
+    
+    public CompletableFuture<Void> createThesis(Thesis thesis) {
+        return executor.submit(() -> {
+            manager.createThesis(thesis);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Void> createTheses(Collection<Thesis> theses) {
+        return executor.submit(() -> {
+            manager.createTheses(theses);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Void> updateThesis(Thesis thesis) {
+        return executor.submit(() -> {
+            manager.updateThesis(thesis);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Void> deleteThesis(Thesis thesis) {
+        return executor.submit(() -> {
+            manager.deleteThesis(thesis);
+            return null;
+        });
+    }
+    
+    public CompletableFuture<Thesis> getThesisById(Long id) {
+        return executor.submit(() -> manager.getThesisById(id));
+    }
+    
+    public CompletableFuture<List<Thesis>> getThesesForStudent(Student student) {
+        return executor.submit(() -> manager.getThesesForStudent(student));
+    }
+    
+    public CompletableFuture<List<Thesis>> getAllTheses() {
+        return executor.submit(() -> manager.getAllTheses());
+    }
+    
+    public CompletableFuture<List<Thesis>> findTheses(ThesisQuery query) {
+        return executor.submit(() -> manager.findTheses(query));
+    }
+}
@@ -0,0 +1,30 @@
+package ThesisMan;
+
+/**
+ * Student together with the number of theses he or she wrote.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public final class AuthorThesisCount {
+    
+    private final Student author;
+    private final long count;
+
+    public AuthorThesisCount(Student author, long count) {
+        this.author = author;
+        this.count = count;
+    }
+
+    public Student getAuthor() {
+        return author;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthorThesisCount{" + "author=" + author + ", count=" + count + '}';
+    }
+}
@@ -0,0 +1,83 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+
+/**
+ * In-memory Derby database seeded with students and theses for benchmarks.
+ * Authors of theses are skewed: a few students wrote most of the theses, 
+ * like in the real registry.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+final class BenchmarkDatabase {
+    
+    final EmbeddedDataSource dataSource;
+    final StudentManagerImpl studentManager = new StudentManagerImpl();
+    final ThesisManagerImpl thesisManager = new ThesisManagerImpl();
+    final List<Student> students;
+    final List<Thesis> theses;
+    
+    /**
+     * Creates database with given number of students and theses.
+     * 
+     * @param name name of the in-memory database
+     * @param rows number of students and number of theses
+     */
+    BenchmarkDatabase(String name, int rows) throws SQLException, ServiceFailureException {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:" + name);
+        dataSource.setCreateDatabase("create");
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        studentManager.setDataSource(dataSource);
+        thesisManager.setDataSource(dataSource);
+        
+        students = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            students.add(newStudent("Joshua", "Bloch"));
+        }
+        studentManager.createStudents(students);
+        
+        Random random = new Random(42);
+        theses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            theses.add(newThesis("Thesis about benchmarks", Type.values()[i % 3],
+                    1950 + i % 70, skewedStudent(random)));
+        }
+        thesisManager.createTheses(theses);
+    }
+    
+    /**
+     * Returns random student, students at the beginning of the list are 
+     * chosen much more often.
+     */
+    Student skewedStudent(Random random) {
+        double r = random.nextDouble();
+        return students.get((int) (students.size() * r * r * r));
+    }
+    
+    void drop() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+    
+    static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+        return student;
+    }
+    
+    static Thesis newThesis(String name, Type type, int year, Student author) {
+        Thesis thesis = new Thesis();
+        thesis.setName(name);
+        thesis.setType(type);
+        thesis.setYear(year);
+        thesis.setAuthor(author);
+        return thesis;
+    }
+}
@@ -0,0 +1,285 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import ThesisManCommon.TransactionManager;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Decorator of StudentManager which caches students read by
+ * {@link #getStudentById(Long)}. The cache holds at most maxSize students;
+ * least recently used students are evicted first. Optionally, students
+ * expire after given time to live.
+ * <p>
+ * Writes done through this manager invalidate cached student immediately
+ * and cache the written student when it is committed, so readers in this
+ * JVM never see stale nor uncommitted data. When the delegate writes in a
+ * transaction of {@link TransactionManager}, the commit of the whole 
+ * transaction is awaited, see {@link TransactionAware}. Writes done
+ * elsewhere are visible after the time to live expires; updates of students
+ * which are stale meanwhile fail with 
+ * {@link ThesisManCommon.OptimisticLockException}, because cached students
+ * keep their versions.
+ * <p>
+ * The cache is split into segments, each of them with its own lock, so
+ * concurrent readers of different students rarely wait for each other.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class CachingStudentManager implements StudentManager, TransactionAware {
+
+    private static final int SEGMENTS = 16;
+
+    private final StudentManager delegate;
+    private final Segment[] segments;
+    private volatile long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates cache in front of given manager.
+     *
+     * @param delegate manager which is used to access database
+     * @param maxSize maximal number of cached students
+     */
+    public CachingStudentManager(StudentManager delegate, int maxSize) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is null");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize is not positive");
+        }
+        this.delegate = delegate;
+        int segmentCount = Math.min(SEGMENTS, maxSize);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // spread the capacity so the segments hold maxSize students together
+            int capacity = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Sets how long student stays in the cache after it was loaded.
+     *
+     * @param ttlMillis time to live in milliseconds, zero means forever
+     */
+    public void setTimeToLiveMillis(long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis is negative");
+        }
+        this.ttlNanos = ttlMillis * 1000000L;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns number of currently cached students.
+     *
+     * @return number of cached students
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all students from the cache.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                segment.entries.clear();
+            }
+        }
+    }
+
+    @Override
+    public TransactionManager getTransactionManager() {
+        return delegate instanceof TransactionAware
+                ? ((TransactionAware) delegate).getTransactionManager() : null;
+    }
+
+    @Override
+    public void createStudent(Student student) throws ServiceFailureException {
+        delegate.createStudent(student);
+        putAfterCommit(student);
+    }
+
+    @Override
+    public void createStudents(Collection<Student> students) throws ServiceFailureException {
+        delegate.createStudents(students);
+        for (Student student : students) {
+            putAfterCommit(student);
+        }
+    }
+
+    @Override
+    public void updateStudent(Student student) throws ServiceFailureException {
+        if (student != null && student.getId() != null) {
+            invalidate(student.getId());
+        }
+        delegate.updateStudent(student);
+        putAfterCommit(student);
+    }
+
+    @Override
+    public void deleteStudent(Student student) throws ServiceFailureException {
+        try {
+            delegate.deleteStudent(student);
+        } finally {
+            if (student != null && student.getId() != null) {
+                Long id = student.getId();
+                invalidate(id);
+                // the old row may be cached again until the delete commits
+                TransactionAware.afterCommit(delegate, () -> invalidate(id));
+            }
+        }
+    }
+
+    @Override
+    public Student getStudentById(Long id) throws ServiceFailureException {
+        if (id == null) {
+            throw new IllegalArgumentException("id is null");
+        }
+        Segment segment = segmentFor(id);
+        long generation;
+        synchronized (segment) {
+            Entry entry = segment.entries.get(id);
+            if (entry != null) {
+                if (ttlNanos == 0 || System.nanoTime() - entry.loaded < ttlNanos) {
+                    hits.increment();
+                    return copy(entry.student);
+                }
+                segment.entries.remove(id);
+            }
+            generation = segment.generation;
+        }
+
+        misses.increment();
+        Student student = delegate.getStudentById(id);
+        if (student != null) {
+            synchronized (segment) {
+                // student loaded before concurrent write could be stale, 
+                // as well as student older than the cached one
+                Entry cached = segment.entries.get(id);
+                if (segment.generation == generation 
+                        && (cached == null || cached.student.getVersion() <= student.getVersion())) {
+                    segment.entries.put(id, new Entry(copy(student)));
+                }
+            }
+        }
+        return student;
+    }
+
+    @Override
+    public List<Student> findAllStudents() throws ServiceFailureException {
+        return delegate.findAllStudents();
+    }
+
+    @Override
+    public Stream<Student> streamAllStudents(int fetchSize) throws ServiceFailureException {
+        return delegate.streamAllStudents(fetchSize);
+    }
+
+    private Segment segmentFor(Long id) {
+        int hash = id.hashCode();
+        hash ^= hash >>> 16;
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    /**
+     * Invalidates written student now, so neither its old state nor the
+     * uncommitted one is read from the cache, and caches the copy of the
+     * student taken now when the write is committed.
+     */
+    private void putAfterCommit(Student student) {
+        Student written = copy(student);
+        invalidate(written.getId());
+        TransactionAware.afterCommit(delegate, () -> put(written));
+    }
+
+    private void put(Student student) {
+        Segment segment = segmentFor(student.getId());
+        synchronized (segment) {
+            segment.generation++;
+            segment.entries.put(student.getId(), new Entry(student));
+        }
+    }
+
+    private void invalidate(Long id) {
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            segment.generation++;
+            segment.entries.remove(id);
+        }
+    }
+
+    /**
+     * Cached students are copied, so changes done by callers to returned
+     * students do not change the cache.
+     */
+    private static Student copy(Student student) {
+        Student result = new Student();
+        result.setId(student.getId());
+        result.setName(student.getName());
+        result.setSurname(student.getSurname());
+        result.setVersion(student.getVersion());
+        return result;
+    }
+
+    private static final class Entry {
+
+        private final Student student;
+        private final long loaded = System.nanoTime();
+
+        Entry(Student student) {
+            this.student = student;
+        }
+    }
+
+    /**
+     * Part of the cache guarded by its own lock. Generation is increased by
+     * every write, so student read from database meanwhile is not cached.
+     */
+    private final class Segment {
+
+        private final Map<Long, Entry> entries;
+        private long generation;
+
+        Segment(final int capacity) {
+            this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
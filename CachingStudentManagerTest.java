@@ -0,0 +1,241 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.OptimisticLockException;
+import ThesisManCommon.ServiceFailureException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import static org.hamcrest.CoreMatchers.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for CachingStudentManager.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class CachingStudentManagerTest {
+
+    private StudentManagerImpl studentManager;
+    private CachingStudentManager manager;
+    private DataSource dataSource;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = prepareDataSource();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(dataSource);
+        manager = new CachingStudentManager(studentManager, 100);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    private static DataSource prepareDataSource() throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:thesismgr-test");
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+
+    @Test
+    public void getStudentByIdIsCached() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(student);
+
+        Student first = manager.getStudentById(student.getId());
+        Student second = manager.getStudentById(student.getId());
+
+        assertEquals(student, first);
+        assertEquals(student, second);
+        assertThat(second, is(not(sameInstance(first))));
+        assertEquals(1, manager.getMissCount());
+        assertEquals(1, manager.getHitCount());
+    }
+
+    @Test
+    public void returnedStudentDoesNotChangeCache() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+
+        manager.getStudentById(student.getId()).setName("Martin");
+
+        assertEquals("Joshua", manager.getStudentById(student.getId()).getName());
+    }
+
+    @Test
+    public void updateRefreshesCache() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+        manager.getStudentById(student.getId());
+
+        student.setName("Martin");
+        manager.updateStudent(student);
+
+        assertEquals("Martin", manager.getStudentById(student.getId()).getName());
+        assertEquals(0, manager.getMissCount());
+    }
+
+    @Test
+    public void rolledBackUpdateIsNotCached() throws Exception {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+        manager.getStudentById(student.getId());
+
+        try {
+            studentManager.getTransactionManager().inTransaction(() -> {
+                Student changed = manager.getStudentById(student.getId());
+                changed.setName("Martin");
+                manager.updateStudent(changed);
+                assertEquals(0, manager.size());
+                throw new ServiceFailureException("rollback");
+            });
+            fail("ServiceFailureException expected");
+        } catch (ServiceFailureException ex) {
+            // expected
+        }
+
+        assertEquals(0, manager.size());
+        assertEquals("Joshua", manager.getStudentById(student.getId()).getName());
+    }
+
+    @Test
+    public void committedUpdateIsCached() throws Exception {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+
+        studentManager.getTransactionManager().inTransaction(() -> {
+            student.setName("Martin");
+            manager.updateStudent(student);
+            assertEquals(0, manager.size());
+            return null;
+        });
+
+        assertEquals(1, manager.size());
+        assertEquals("Martin", manager.getStudentById(student.getId()).getName());
+        assertEquals(0, manager.getMissCount());
+    }
+
+    @Test
+    public void staleCachedStudentCanNotBeUpdated() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+        Student cached = manager.getStudentById(student.getId());
+
+        student.setName("Martin");
+        studentManager.updateStudent(student);
+
+        cached.setSurname("Fowler");
+        try {
+            manager.updateStudent(cached);
+            fail("OptimisticLockException expected");
+        } catch (OptimisticLockException ex) {
+            // expected
+        }
+        assertEquals("Martin", manager.getStudentById(student.getId()).getName());
+    }
+
+    @Test
+    public void deleteInvalidatesCache() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+        manager.getStudentById(student.getId());
+
+        manager.deleteStudent(student);
+
+        assertNull(manager.getStudentById(student.getId()));
+        assertEquals(0, manager.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedStudentIsEvicted() throws ServiceFailureException {
+        manager = new CachingStudentManager(studentManager, 2);
+        Student s1 = newStudent("Joshua", "Bloch");
+        Student s2 = newStudent("Martin", "Fowler");
+        Student s3 = newStudent("Kent", "Beck");
+        studentManager.createStudent(s1);
+        studentManager.createStudent(s2);
+        studentManager.createStudent(s3);
+
+        manager.getStudentById(s1.getId());
+        manager.getStudentById(s2.getId());
+        manager.getStudentById(s3.getId());
+
+        assertEquals(2, manager.size());
+        assertEquals(1, manager.getEvictionCount());
+    }
+
+    @Test
+    public void expiredStudentIsLoadedAgain() throws Exception {
+        manager.setTimeToLiveMillis(1);
+        Student student = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(student);
+        manager.getStudentById(student.getId());
+
+        student.setName("Martin");
+        studentManager.updateStudent(student);
+        Thread.sleep(5);
+
+        assertEquals("Martin", manager.getStudentById(student.getId()).getName());
+        assertEquals(2, manager.getMissCount());
+    }
+
+    @Test
+    public void concurrentReads() throws Exception {
+        final List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Student student = newStudent("Joshua", "Bloch" + (char) ('a' + i));
+            students.add(student);
+        }
+        studentManager.createStudents(students);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 500; i++) {
+                            Student expected = students.get(i % students.size());
+                            assertEquals(expected, manager.getStudentById(expected.getId()));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4000, manager.getHitCount() + manager.getMissCount());
+        assertEquals(20, manager.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getStudentWithNullId() throws ServiceFailureException {
+        manager.getStudentById(null);
+    }
+
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+
+        return student;
+    }
+}
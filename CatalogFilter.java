@@ -0,0 +1,116 @@
+package ThesisMan;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Criteria for selecting theses from {@link ThesisCatalogSnapshot}. Like
+ * in {@link ThesisQuery}, criteria which are not set do not restrict the
+ * result, the criteria which are set must all be met and set of types or
+ * author ids which is set but empty matches no thesis.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class CatalogFilter {
+
+    private Set<Type> types;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Set<Long> authorIds;
+    private String authorSurname;
+    private String nameContains;
+
+    public Set<Type> getTypes() {
+        return types == null ? null : Collections.unmodifiableSet(types);
+    }
+
+    /**
+     * Restricts result to theses of given types.
+     *
+     * @param types allowed types, or null for any type
+     */
+    public void setTypes(Collection<Type> types) {
+        this.types = types == null ? null
+                : types.isEmpty() ? EnumSet.noneOf(Type.class) : EnumSet.copyOf(types);
+    }
+
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    /**
+     * Restricts result to theses published in given year or later.
+     *
+     * @param yearFrom the first year, or null for no lower bound
+     */
+    public void setYearFrom(Integer yearFrom) {
+        this.yearFrom = yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    /**
+     * Restricts result to theses published in given year or sooner.
+     *
+     * @param yearTo the last year, or null for no upper bound
+     */
+    public void setYearTo(Integer yearTo) {
+        this.yearTo = yearTo;
+    }
+
+    public Set<Long> getAuthorIds() {
+        return authorIds == null ? null : Collections.unmodifiableSet(authorIds);
+    }
+
+    /**
+     * Restricts result to theses of given authors.
+     *
+     * @param authorIds ids of allowed authors, or null for any author
+     */
+    public void setAuthorIds(Collection<Long> authorIds) {
+        if (authorIds != null && authorIds.contains(null)) {
+            throw new IllegalArgumentException("authorIds contains null");
+        }
+        this.authorIds = authorIds == null ? null : new LinkedHashSet<>(authorIds);
+    }
+
+    public String getAuthorSurname() {
+        return authorSurname;
+    }
+
+    /**
+     * Restricts result to theses of authors with given surname. Comparison
+     * is case sensitive.
+     *
+     * @param authorSurname surname of the authors, or null for any surname
+     */
+    public void setAuthorSurname(String authorSurname) {
+        this.authorSurname = authorSurname;
+    }
+
+    public String getNameContains() {
+        return nameContains;
+    }
+
+    /**
+     * Restricts result to theses whose name contains given text. Comparison
+     * is case sensitive.
+     *
+     * @param nameContains text contained in the name, or null for any name
+     */
+    public void setNameContains(String nameContains) {
+        this.nameContains = nameContains;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogFilter{" + "types=" + types + ", yearFrom=" + yearFrom + ", yearTo=" + yearTo
+                + ", authorIds=" + authorIds + ", authorSurname=" + authorSurname
+                + ", nameContains=" + nameContains + '}';
+    }
+}
@@ -0,0 +1,49 @@
+package ThesisMan;
+
+/**
+ * Notification that an entity was created, updated or deleted and the
+ * change was committed. The event carries a copy of the entity as it was
+ * written, so later changes of the entity object do not affect it.
+ *
+ * @param <T> type of the entity
+ * @author Kristina Miklasova, 4333 83
+ */
+public final class ChangeEvent<T> {
+
+    public enum Kind {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Kind kind;
+    private final T entity;
+
+    public ChangeEvent(Kind kind, T entity) {
+        if (kind == null) {
+            throw new IllegalArgumentException("kind is null");
+        }
+        if (entity == null) {
+            throw new IllegalArgumentException("entity is null");
+        }
+        this.kind = kind;
+        this.entity = entity;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the entity after the change; deleted entity is returned as it
+     * was before the deletion.
+     *
+     * @return copy of the changed entity
+     */
+    public T getEntity() {
+        return entity;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" + "kind=" + kind + ", entity=" + entity + '}';
+    }
+}
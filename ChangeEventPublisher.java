@@ -0,0 +1,58 @@
+package ThesisMan;
+
+import ThesisManCommon.TransactionManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registered change listeners of one manager. Events are delivered after
+ * the transaction of the change is committed, exceptions of listeners are
+ * logged and do not stop the delivery to the other listeners.
+ *
+ * @param <T> type of the entities
+ * @author Kristina Miklasova, 4333 83
+ */
+final class ChangeEventPublisher<T> {
+
+    private static final Logger logger = Logger.getLogger(
+            ChangeEventPublisher.class.getName());
+
+    private final List<ChangeListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    void addListener(ChangeListener<T> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is null");
+        }
+        listeners.add(listener);
+    }
+
+    void removeListener(ChangeListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns true when some listener is registered, so callers need not
+     * copy entities for nobody.
+     */
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Delivers the event after the running transaction is committed, or
+     * immediately when no transaction is running.
+     */
+    void publish(TransactionManager transactions, final ChangeEvent<T> event) {
+        transactions.afterCommit(() -> {
+            for (ChangeListener<T> listener : listeners) {
+                try {
+                    listener.changed(event);
+                } catch (RuntimeException ex) {
+                    logger.log(Level.WARNING, "Change listener " + listener + " failed on " + event, ex);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package ThesisMan;
+
+/**
+ * Listener of committed changes of entities, registered e.g. by
+ * {@link StudentManagerImpl#addChangeListener(ChangeListener)}. Listeners
+ * are called synchronously by the thread which committed the change, so
+ * they should be fast; slow listeners should be wrapped by
+ * {@link AsyncChangeListener}.
+ *
+ * @param <T> type of the entities
+ * @author Kristina Miklasova, 4333 83
+ */
+public interface ChangeListener<T> {
+
+    /**
+     * Called once for every committed change.
+     *
+     * @param event the change
+     */
+    void changed(ChangeEvent<T> event);
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -52,6 +53,21 @@ public class DBUtils {
         }
     }
 
+    /**
+     * Closes result set and logs possible error.
+     * 
+     * @param rs result set to close
+     */
+    public static void closeQuietly(ResultSet rs) {
+        if (rs != null) {
+            try {
+                rs.close();
+            } catch (SQLException ex) {
+                logger.log(Level.SEVERE, "Error when closing result set", ex);
+            }
+        }
+    }
+
     /**
      * Rolls back transaction and logs possible error.
      * 
@@ -92,6 +108,27 @@ public class DBUtils {
         }
     }
 
+    /**
+     * Extract keys generated by the last executed batch of inserts. Derby 
+     * returns only the last generated key after batch execution, so keys of
+     * the preceding rows are derived from it. This works only when no other
+     * transaction can insert into the same table meanwhile, e.g. when the 
+     * table is locked in exclusive mode.
+     * 
+     * @param st statement with executed batch
+     * @param count number of rows inserted by the batch
+     * @return generated keys in the order in which rows were added to batch
+     * @throws SQLException when operation fails
+     */
+    public static long[] getBatchIds(Statement st, int count) throws SQLException {
+        long lastId = getId(st.getGeneratedKeys());
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = lastId - count + 1 + i;
+        }
+        return result;
+    }
+
     /**
      * Reads SQL statements from file. SQL commands in file must be separated by 
      * a semicolon.
@@ -161,6 +198,54 @@ public class DBUtils {
         }
     }
 
+    /**
+     * Check if every statement of executed batch updated exactly one row. 
+     * Otherwise appropriate exception is thrown.
+     * 
+     * @param counts updates counts returned by executeBatch()
+     * @param expected number of statements in the batch
+     * @throws ServiceFailureException when some updates count is unexpected number
+     */
+    public static void checkBatchUpdatesCount(int[] counts, int expected) throws ServiceFailureException {
+        if (counts.length != expected) {
+            throw new ServiceFailureException("Internal integrity error: Unexpected statements count in batch: " 
+                    + counts.length + " instead of " + expected);
+        }
+        for (int count : counts) {
+            if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+                throw new ServiceFailureException("Internal integrity error: Unexpected rows count in database affected: " + count);
+            }
+        }
+    }
+
+    /**
+     * Checks why versioned update or delete of entity affected no row. When
+     * the row still exists, it has other version than the entity, so 
+     * OptimisticLockException is thrown. Otherwise nothing happens and the
+     * caller reports missing entity.
+     * 
+     * @param conn connection used for the update
+     * @param table name of the table
+     * @param id id of the entity
+     * @param entity updated entity (for includig to error message)
+     * @throws OptimisticLockException when the row has other version
+     * @throws SQLException when operation fails
+     */
+    public static void checkVersionConflict(Connection conn, String table, long id, 
+            Object entity) throws SQLException {
+        
+        try (PreparedStatement st = conn.prepareStatement(
+                "SELECT version FROM " + table + " WHERE id = ?")) {
+            st.setLong(1, id);
+            try (ResultSet rs = st.executeQuery()) {
+                if (rs.next()) {
+                    throw new OptimisticLockException("Entity " + entity 
+                            + " was changed concurrently, its version in the db is " + rs.getInt(1));
+                }
+            }
+        }
+    }
+
     /**
      * Check if updates count is one. Otherwise appropriate exception is thrown.
      * 
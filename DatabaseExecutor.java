@@ -0,0 +1,154 @@
+package ThesisManCommon;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs blocking database calls asynchronously and limits how many of them
+ * run at the same time, so the DataSource is never asked for more 
+ * connections than it can give. Calls run on virtual threads when the JVM 
+ * supports them (Java 21 and newer), otherwise on a fixed pool of daemon 
+ * threads.
+ * <p>
+ * Results are returned as CompletableFuture. Exception thrown by the call,
+ * e.g. {@link ServiceFailureException}, completes the future exceptionally
+ * as it is. Cancelling the future removes the call from the queue of calls
+ * waiting for a free slot. Running call is not interrupted, because JDBC
+ * drivers, e.g. embedded Derby, may close the connection or even the 
+ * database when interrupted; it runs to its end and its result is dropped.
+ * Running statements are bounded by their query timeout instead, see
+ * {@link PooledDataSource#setQueryTimeoutSeconds(int)}.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class DatabaseExecutor implements AutoCloseable {
+    
+    private static final Logger logger = Logger.getLogger(
+            DatabaseExecutor.class.getName());
+    
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final Semaphore permits;
+    
+    /**
+     * Creates executor with its own threads.
+     * 
+     * @param maxConcurrency maximal number of calls running at the same time
+     */
+    public DatabaseExecutor(int maxConcurrency) {
+        this(newDefaultExecutor(maxConcurrency), maxConcurrency, true);
+    }
+    
+    /**
+     * Creates executor which runs calls by given executor service. The 
+     * service is not shut down by {@link #close()}.
+     * 
+     * @param executor executor service running the calls
+     * @param maxConcurrency maximal number of calls running at the same time
+     */
+    public DatabaseExecutor(ExecutorService executor, int maxConcurrency) {
+        this(executor, maxConcurrency, false);
+    }
+    
+    private DatabaseExecutor(ExecutorService executor, int maxConcurrency, boolean ownExecutor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is null");
+        }
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency is not positive");
+        }
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+    
+    /**
+     * Runs given call asynchronously.
+     * 
+     * @param <T> type of the result
+     * @param call database call
+     * @return future result of the call
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> call) {
+        if (call == null) {
+            throw new IllegalArgumentException("call is null");
+        }
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Future<?> task;
+        try {
+            task = executor.submit(() -> execute(call, result));
+        } catch (RejectedExecutionException ex) {
+            result.completeExceptionally(ex);
+            return result;
+        }
+        result.whenComplete((value, failure) -> {
+            if (result.isCancelled()) {
+                task.cancel(false);
+            }
+        });
+        return result;
+    }
+    
+    private <T> void execute(Callable<T> call, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            result.cancel(false);
+            return;
+        }
+        try {
+            if (!result.isDone()) {
+                result.complete(call.call());
+            }
+        } catch (Throwable ex) {
+            result.completeExceptionally(ex);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    /**
+     * Shuts down threads of this executor. Calls submitted before are 
+     * finished.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+    
+    private static ExecutorService newDefaultExecutor(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency is not positive");
+        }
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            logger.log(Level.FINE, "Virtual threads are not available, using platform threads", ex);
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(maxConcurrency, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "DatabaseExecutor-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
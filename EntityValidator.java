@@ -0,0 +1,192 @@
+package ThesisMan;
+
+import ThesisManCommon.ValidationException;
+import java.util.Collection;
+
+/**
+ * Validation rules for students and theses shared by the managers. The 
+ * validator has no state, checks characters of names directly without
+ * regular expressions and allocates nothing for valid entities.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class EntityValidator {
+    
+    /**
+     * Validator used by the managers.
+     */
+    public static final EntityValidator INSTANCE = new EntityValidator();
+    
+    /**
+     * Validates student.
+     * 
+     * @param student student to be validated
+     * @throws IllegalArgumentException when student is null
+     * @throws ValidationException when student breaks some rule
+     */
+    public void validate(Student student) {
+        throwFor(check(student));
+    }
+    
+    /**
+     * Validates thesis.
+     * 
+     * @param thesis thesis to be validated
+     * @throws IllegalArgumentException when thesis is null
+     * @throws ValidationException when thesis breaks some rule
+     */
+    public void validate(Thesis thesis) {
+        throwFor(check(thesis));
+    }
+    
+    /**
+     * Validates all students and reports all violations instead of stopping
+     * on the first invalid student.
+     * 
+     * @param students students to be validated
+     * @return report of all violations, in the order of the collection
+     */
+    public ValidationReport validateStudents(Collection<Student> students) {
+        if (students == null) {
+            throw new IllegalArgumentException("students is null");
+        }
+        ValidationReport report = new ValidationReport();
+        int index = 0;
+        for (Student student : students) {
+            if (student == null) {
+                report.add(index, Violation.STUDENT_NULL);
+            } else {
+                checkName(report, index, student.getName(), Violation.STUDENT_NAME_NULL, 
+                        Violation.STUDENT_NAME_EMPTY, Violation.STUDENT_NAME_NOT_LETTERS);
+                checkName(report, index, student.getSurname(), Violation.STUDENT_SURNAME_NULL, 
+                        Violation.STUDENT_SURNAME_EMPTY, Violation.STUDENT_SURNAME_NOT_LETTERS);
+            }
+            index++;
+        }
+        return report;
+    }
+    
+    /**
+     * Validates all theses and reports all violations instead of stopping
+     * on the first invalid thesis.
+     * 
+     * @param theses theses to be validated
+     * @return report of all violations, in the order of the collection
+     */
+    public ValidationReport validateTheses(Collection<Thesis> theses) {
+        if (theses == null) {
+            throw new IllegalArgumentException("theses is null");
+        }
+        ValidationReport report = new ValidationReport();
+        int index = 0;
+        for (Thesis thesis : theses) {
+            if (thesis == null) {
+                report.add(index, Violation.THESIS_NULL);
+            } else {
+                if (thesis.getName() == null) {
+                    report.add(index, Violation.THESIS_NAME_NULL);
+                } else if (thesis.getName().isEmpty()) {
+                    report.add(index, Violation.THESIS_NAME_EMPTY);
+                }
+                if (thesis.getAuthor() == null) {
+                    report.add(index, Violation.THESIS_AUTHOR_NULL);
+                }
+                if (thesis.getYear() < 0) {
+                    report.add(index, Violation.THESIS_YEAR_NEGATIVE);
+                }
+                if (thesis.getType() == null) {
+                    report.add(index, Violation.THESIS_TYPE_NULL);
+                }
+            }
+            index++;
+        }
+        return report;
+    }
+    
+    /**
+     * Returns the first rule broken by student, or null for valid student.
+     */
+    private static Violation check(Student student) {
+        if (student == null) {
+            return Violation.STUDENT_NULL;
+        }
+        if (student.getName() == null) {
+            return Violation.STUDENT_NAME_NULL;
+        }
+        if (student.getSurname() == null) {
+            return Violation.STUDENT_SURNAME_NULL;
+        }
+        if (student.getName().isEmpty()) {
+            return Violation.STUDENT_NAME_EMPTY;
+        }
+        if (student.getSurname().isEmpty()) {
+            return Violation.STUDENT_SURNAME_EMPTY;
+        }
+        if (!isLettersOrSpaces(student.getName())) {
+            return Violation.STUDENT_NAME_NOT_LETTERS;
+        }
+        if (!isLettersOrSpaces(student.getSurname())) {
+            return Violation.STUDENT_SURNAME_NOT_LETTERS;
+        }
+        return null;
+    }
+    
+    /**
+     * Returns the first rule broken by thesis, or null for valid thesis.
+     */
+    private static Violation check(Thesis thesis) {
+        if (thesis == null) {
+            return Violation.THESIS_NULL;
+        }
+        if (thesis.getName() == null) {
+            return Violation.THESIS_NAME_NULL;
+        }
+        if (thesis.getName().isEmpty()) {
+            return Violation.THESIS_NAME_EMPTY;
+        }
+        if (thesis.getAuthor() == null) {
+            return Violation.THESIS_AUTHOR_NULL;
+        }
+        if (thesis.getYear() < 0) {
+            return Violation.THESIS_YEAR_NEGATIVE;
+        }
+        if (thesis.getType() == null) {
+            return Violation.THESIS_TYPE_NULL;
+        }
+        return null;
+    }
+    
+    private static void checkName(ValidationReport report, int index, String name, 
+            Violation whenNull, Violation whenEmpty, Violation whenNotLetters) {
+        if (name == null) {
+            report.add(index, whenNull);
+        } else if (name.isEmpty()) {
+            report.add(index, whenEmpty);
+        } else if (!isLettersOrSpaces(name)) {
+            report.add(index, whenNotLetters);
+        }
+    }
+    
+    private static void throwFor(Violation violation) {
+        if (violation == null) {
+            return;
+        }
+        if (violation.isNullEntity()) {
+            throw new IllegalArgumentException(violation.getMessage());
+        }
+        throw new ValidationException(violation.getMessage());
+    }
+    
+    /**
+     * Same check as regular expression [a-zA-Z ]+ for non-empty text.
+     */
+    static boolean isLettersOrSpaces(String text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == ' ')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package ThesisMan;
+
+import ThesisManCommon.ValidationException;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for EntityValidator.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class EntityValidatorTest {
+    
+    private final EntityValidator validator = new EntityValidator();
+    
+    @Test
+    public void lettersOrSpaces() {
+        assertTrue(EntityValidator.isLettersOrSpaces("Joshua Bloch"));
+        assertTrue(EntityValidator.isLettersOrSpaces("azAZ "));
+        assertFalse(EntityValidator.isLettersOrSpaces("Jos69"));
+        assertFalse(EntityValidator.isLettersOrSpaces("Mikla\u0161ov\u00e1"));
+        assertFalse(EntityValidator.isLettersOrSpaces("Bloch-Fowler"));
+    }
+    
+    @Test
+    public void validStudent() {
+        validator.validate(newStudent("Joshua", "Bloch"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void nullStudent() {
+        validator.validate((Student) null);
+    }
+    
+    @Test(expected = ValidationException.class)
+    public void studentWithNumericSurname() {
+        validator.validate(newStudent("Joshua", "B6l9o"));
+    }
+    
+    @Test(expected = ValidationException.class)
+    public void thesisWithNegativeYear() {
+        validator.validate(ThesisManagerImplTest.newThesis("Math", Type.PHD, -1, newStudent("Joshua", "Bloch")));
+    }
+    
+    @Test
+    public void validateStudentsReportsAllViolations() {
+        ValidationReport report = validator.validateStudents(Arrays.asList(
+                newStudent("Joshua", "Bloch"),
+                newStudent("Jos69", ""),
+                null,
+                newStudent("Martin", "Fowler"),
+                newStudent(null, "Beck")));
+        
+        assertFalse(report.isValid());
+        assertEquals(4, report.size());
+        assertEquals(3, report.getInvalidCount());
+        assertEquals(1, report.getIndex(0));
+        assertEquals(Violation.STUDENT_NAME_NOT_LETTERS, report.getViolation(0));
+        assertEquals(1, report.getIndex(1));
+        assertEquals(Violation.STUDENT_SURNAME_EMPTY, report.getViolation(1));
+        assertEquals(2, report.getIndex(2));
+        assertEquals(Violation.STUDENT_NULL, report.getViolation(2));
+        assertEquals(4, report.getIndex(3));
+        assertEquals(Violation.STUDENT_NAME_NULL, report.getViolation(3));
+    }
+    
+    @Test
+    public void validateThesesReportsAllViolations() {
+        Student author = newStudent("Joshua", "Bloch");
+        ValidationReport report = validator.validateTheses(Arrays.asList(
+                ThesisManagerImplTest.newThesis("Math", Type.PHD, 2012, author),
+                ThesisManagerImplTest.newThesis("", null, -5, null)));
+        
+        assertEquals(4, report.size());
+        assertEquals(1, report.getInvalidCount());
+        assertEquals(Violation.THESIS_NAME_EMPTY, report.getViolation(0));
+        assertEquals(Violation.THESIS_AUTHOR_NULL, report.getViolation(1));
+        assertEquals(Violation.THESIS_YEAR_NEGATIVE, report.getViolation(2));
+        assertEquals(Violation.THESIS_TYPE_NULL, report.getViolation(3));
+    }
+    
+    @Test
+    public void validCollection() {
+        ValidationReport report = validator.validateStudents(Arrays.asList(
+                newStudent("Joshua", "Bloch"), newStudent("Martin", "Fowler")));
+        assertTrue(report.isValid());
+        assertEquals(0, report.size());
+    }
+    
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+        return student;
+    }
+}
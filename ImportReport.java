@@ -0,0 +1,261 @@
+package ThesisMan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Result of one run of {@link RegistryImporter}: numbers of imported and
+ * skipped rows, the skipped rows and chunks with reasons, and statistics
+ * of every stage of the pipeline. Only the first maxReportedFailures rows
+ * and chunks are kept with their reasons, the rest is only counted.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public final class ImportReport {
+
+    private final int maxReportedFailures;
+    private final List<Stage> stages = new ArrayList<>();
+    private final List<Failure> invalidRows = new ArrayList<>();
+    private final List<Failure> failedChunks = new ArrayList<>();
+    private final LongAdder invalidRowCount = new LongAdder();
+    private final LongAdder failedChunkCount = new LongAdder();
+    private final LongAdder failedChunkRowCount = new LongAdder();
+    private long elapsedNanos;
+
+    ImportReport(int maxReportedFailures) {
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    Stage addStage(String name, int threads) {
+        Stage stage = new Stage(name, threads);
+        stages.add(stage);
+        return stage;
+    }
+
+    void invalidRow(int line, String message) {
+        invalidRowCount.increment();
+        synchronized (invalidRows) {
+            if (invalidRows.size() < maxReportedFailures) {
+                invalidRows.add(new Failure(line, 1, message));
+            }
+        }
+    }
+
+    void failedChunk(int firstLine, int rows, String message) {
+        failedChunkCount.increment();
+        failedChunkRowCount.add(rows);
+        synchronized (failedChunks) {
+            if (failedChunks.size() < maxReportedFailures) {
+                failedChunks.add(new Failure(firstLine, rows, message));
+            }
+        }
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns number of data rows in the input, the header is not counted.
+     *
+     * @return number of rows
+     */
+    public long getRowCount() {
+        return stages.isEmpty() ? 0 : stages.get(0).getRows();
+    }
+
+    /**
+     * Returns number of rows stored into the database.
+     *
+     * @return number of imported rows
+     */
+    public long getImportedCount() {
+        return stages.isEmpty() ? 0 : stages.get(stages.size() - 1).getRows();
+    }
+
+    /**
+     * Returns number of rows skipped because they could not be parsed, their
+     * author was not found or they broke validation rules.
+     *
+     * @return number of invalid rows
+     */
+    public long getInvalidRowCount() {
+        return invalidRowCount.sum();
+    }
+
+    public long getFailedChunkCount() {
+        return failedChunkCount.sum();
+    }
+
+    /**
+     * Returns number of valid rows skipped because their chunk failed.
+     *
+     * @return number of rows in failed chunks
+     */
+    public long getFailedChunkRowCount() {
+        return failedChunkRowCount.sum();
+    }
+
+    /**
+     * Returns reported invalid rows ordered by the time they were found,
+     * which is not necessarily the order of lines.
+     *
+     * @return at most maxReportedFailures invalid rows
+     */
+    public List<Failure> getInvalidRows() {
+        synchronized (invalidRows) {
+            return Collections.unmodifiableList(new ArrayList<>(invalidRows));
+        }
+    }
+
+    /**
+     * Returns reported failed chunks ordered by the time they failed.
+     *
+     * @return at most maxReportedFailures failed chunks
+     */
+    public List<Failure> getFailedChunks() {
+        synchronized (failedChunks) {
+            return Collections.unmodifiableList(new ArrayList<>(failedChunks));
+        }
+    }
+
+    /**
+     * Returns statistics of the stages in the order of the pipeline.
+     *
+     * @return stages of the pipeline
+     */
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("imported %d of %d rows in %d ms, %d invalid rows, "
+                + "%d failed chunks with %d rows", getImportedCount(), getRowCount(),
+                elapsedNanos / 1000000, getInvalidRowCount(), getFailedChunkCount(),
+                getFailedChunkRowCount()));
+        for (Stage stage : stages) {
+            result.append(System.lineSeparator()).append(stage);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Skipped row or chunk of rows together with the reason.
+     */
+    public static final class Failure {
+
+        private final int line;
+        private final int rows;
+        private final String message;
+
+        Failure(int line, int rows, String message) {
+            this.line = line;
+            this.rows = rows;
+            this.message = message;
+        }
+
+        /**
+         * Returns line of the input where the row or chunk starts, the header
+         * is line 1.
+         *
+         * @return line number
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + (rows == 1 ? "" : " (" + rows + " rows)") + ": " + message;
+        }
+    }
+
+    /**
+     * Statistics of one stage of the pipeline. Busy time is time spent by
+     * the work of the stage, wait time is time spent waiting for the
+     * previous stage or for space in the queue of the next one, both summed
+     * over all threads of the stage. The stage with the least wait time is
+     * the bottleneck of the import.
+     */
+    public static final class Stage {
+
+        private final String name;
+        private final int threads;
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        void busy(long nanos, int processedRows) {
+            busyNanos.add(nanos);
+            rows.add(processedRows);
+        }
+
+        void waited(long nanos) {
+            waitNanos.add(nanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * Returns number of rows which went out of the stage.
+         *
+         * @return number of rows
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getBusyNanos() {
+            return busyNanos.sum();
+        }
+
+        public long getWaitNanos() {
+            return waitNanos.sum();
+        }
+
+        /**
+         * Returns throughput the stage would have if it never waited, i.e.
+         * rows divided by busy time of one of its threads.
+         *
+         * @return rows per second
+         */
+        public double getRowsPerSecond() {
+            long busy = getBusyNanos();
+            return busy == 0 ? 0 : getRows() * 1e9 * threads / busy;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d threads, %d rows, %.0f rows/s, busy %d ms, waiting %d ms",
+                    name, threads, getRows(), getRowsPerSecond(),
+                    getBusyNanos() / 1000000, getWaitNanos() / 1000000);
+        }
+    }
+}
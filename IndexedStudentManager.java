@@ -0,0 +1,201 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import ThesisManCommon.TransactionManager;
+import ThesisManCommon.UncheckedServiceFailureException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Decorator of StudentManager which keeps {@link StudentPrefixIndex} of
+ * names and surnames of all students, so students can be autocompleted
+ * without reading the STUDENT table on every keystroke. The index is built
+ * by {@link #rebuildIndex()} and then updated by every write done through
+ * this manager when the write is committed, see {@link TransactionAware}.
+ * Writes done elsewhere are visible after the next rebuild.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class IndexedStudentManager implements StudentManager, TransactionAware {
+
+    private static final Logger logger = Logger.getLogger(
+            IndexedStudentManager.class.getName());
+
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final StudentManager delegate;
+    private volatile StudentPrefixIndex index = new StudentPrefixIndex();
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    /** Ids written during running rebuild, their loaded rows may be stale. */
+    private volatile Set<Long> writtenDuringRebuild;
+    private volatile StudentPrefixIndex rebuilding;
+
+    public IndexedStudentManager(StudentManager delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is null");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * Sets number of students fetched from the database at once when the
+     * index is rebuilt.
+     *
+     * @param fetchSize positive number of students
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize is not positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    public StudentPrefixIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Builds new index from all students in the database and replaces the
+     * current one. Students are streamed, so they never are in memory all
+     * at once. Lookups use the current index until the new one is complete;
+     * writes done meanwhile through this manager go to both. Size of the
+     * new index and its memory per student are logged.
+     *
+     * @throws ServiceFailureException when db operation fails
+     */
+    public synchronized void rebuildIndex() throws ServiceFailureException {
+        StudentPrefixIndex built = new StudentPrefixIndex();
+        Set<Long> written = ConcurrentHashMap.newKeySet();
+        writtenDuringRebuild = written;
+        rebuilding = built;
+        try (Stream<Student> students = delegate.streamAllStudents(fetchSize)) {
+            Iterator<Student> iterator = students.iterator();
+            while (iterator.hasNext()) {
+                Student student = iterator.next();
+                if (!written.contains(student.getId())) {
+                    built.put(student);
+                }
+            }
+            built.compact();
+            index = built;
+        } catch (UncheckedServiceFailureException ex) {
+            throw ex.getCause();
+        } finally {
+            rebuilding = null;
+            writtenDuringRebuild = null;
+        }
+        int size = built.size();
+        logger.log(Level.INFO, "Student index rebuilt: {0} students, {1} bytes per student",
+                new Object[]{size, size == 0 ? 0 : built.estimateMemoryBytes() / size});
+    }
+
+    /**
+     * Completes given text to students, see
+     * {@link StudentPrefixIndex#complete(String, int)}.
+     *
+     * @param text prefixes of name or surname separated by white space
+     * @param limit maximal number of returned students
+     * @return found students ordered by completed name or surname
+     * @throws ServiceFailureException when db operation fails
+     */
+    public List<Student> complete(String text, int limit) throws ServiceFailureException {
+        List<Long> ids = index.complete(text, limit);
+        List<Student> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Student student = delegate.getStudentById(id);
+            if (student != null) {
+                result.add(student);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public TransactionManager getTransactionManager() {
+        return delegate instanceof TransactionAware
+                ? ((TransactionAware) delegate).getTransactionManager() : null;
+    }
+
+    @Override
+    public void createStudent(Student student) throws ServiceFailureException {
+        delegate.createStudent(student);
+        indexStudent(student);
+    }
+
+    @Override
+    public void createStudents(Collection<Student> students) throws ServiceFailureException {
+        delegate.createStudents(students);
+        for (Student student : students) {
+            indexStudent(student);
+        }
+    }
+
+    @Override
+    public void updateStudent(Student student) throws ServiceFailureException {
+        delegate.updateStudent(student);
+        indexStudent(student);
+    }
+
+    @Override
+    public void deleteStudent(Student student) throws ServiceFailureException {
+        delegate.deleteStudent(student);
+        long id = student.getId();
+        TransactionAware.afterCommit(delegate, () -> {
+            markWritten(id);
+            StudentPrefixIndex building = rebuilding;
+            if (building != null) {
+                building.remove(id);
+            }
+            index.remove(id);
+        });
+    }
+
+    @Override
+    public Student getStudentById(Long id) throws ServiceFailureException {
+        return delegate.getStudentById(id);
+    }
+
+    @Override
+    public List<Student> findAllStudents() throws ServiceFailureException {
+        return delegate.findAllStudents();
+    }
+
+    @Override
+    public Stream<Student> streamAllStudents(int fetchSize) throws ServiceFailureException {
+        return delegate.streamAllStudents(fetchSize);
+    }
+
+    /**
+     * Indexes given student, with the names it has now, when the write is
+     * committed, so uncommitted names are never completed.
+     */
+    private void indexStudent(Student student) {
+        long id = student.getId();
+        String name = student.getName();
+        String surname = student.getSurname();
+        TransactionAware.afterCommit(delegate, () -> {
+            markWritten(id);
+            // the new index first, it replaces the current one before the end
+            // of rebuild is visible
+            StudentPrefixIndex building = rebuilding;
+            if (building != null) {
+                building.put(id, name, surname);
+            }
+            index.put(id, name, surname);
+        });
+    }
+
+    private void markWritten(long id) {
+        Set<Long> written = writtenDuringRebuild;
+        if (written != null) {
+            written.add(id);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for IndexedStudentManager.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class IndexedStudentManagerTest {
+
+    private DataSource dataSource;
+    private StudentManagerImpl studentManager;
+    private IndexedStudentManager manager;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = prepareDataSource();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(dataSource);
+        manager = new IndexedStudentManager(studentManager);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    private static DataSource prepareDataSource() throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:thesismgr-test");
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+
+    @Test
+    public void rebuildIndexLoadsAllStudents() throws ServiceFailureException {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            students.add(newStudent("Joshua", "Bloch"));
+        }
+        students.add(newStudent("Martin", "Fowler"));
+        studentManager.createStudents(students);
+
+        manager.setFetchSize(10);
+        manager.rebuildIndex();
+
+        assertEquals(26, manager.getIndex().size());
+        assertEquals(25, manager.complete("bloch", 100).size());
+        assertEquals(Arrays.asList(students.get(25)), manager.complete("fow", 100));
+    }
+
+    @Test
+    public void writesUpdateIndex() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+        manager.createStudents(Arrays.asList(newStudent("Martin", "Fowler")));
+        assertEquals(Arrays.asList(student), manager.complete("blo", 10));
+
+        student.setSurname("Beck");
+        manager.updateStudent(student);
+        assertTrue(manager.complete("blo", 10).isEmpty());
+        assertEquals(Arrays.asList(student), manager.complete("be", 10));
+
+        manager.deleteStudent(student);
+        assertTrue(manager.complete("jo", 10).isEmpty());
+        assertEquals(1, manager.getIndex().size());
+    }
+
+    @Test
+    public void rolledBackWritesDoNotChangeIndex() throws Exception {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+
+        try {
+            studentManager.getTransactionManager().inTransaction(() -> {
+                manager.createStudent(newStudent("Martin", "Fowler"));
+                student.setSurname("Beck");
+                manager.updateStudent(student);
+                assertTrue(manager.complete("be", 10).isEmpty());
+                throw new ServiceFailureException("rollback");
+            });
+            fail("ServiceFailureException expected");
+        } catch (ServiceFailureException ex) {
+            // expected
+        }
+        assertEquals(1, manager.getIndex().size());
+        assertTrue(manager.complete("be", 10).isEmpty());
+        assertEquals(1, manager.complete("blo", 10).size());
+
+        studentManager.getTransactionManager().inTransaction(() -> {
+            manager.deleteStudent(manager.getStudentById(student.getId()));
+            assertEquals(1, manager.getIndex().size());
+            return null;
+        });
+        assertEquals(0, manager.getIndex().size());
+    }
+
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+
+        return student;
+    }
+}
@@ -0,0 +1,223 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import ThesisManCommon.TransactionManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decorator of ThesisManager which keeps {@link ThesisTitleIndex} of names
+ * of all theses, so theses can be searched by words of their names without
+ * scanning the THESIS table. The index is built by {@link #rebuildIndex()}
+ * and then updated by every write done through this manager when the write
+ * is committed, see {@link TransactionAware}. Writes done elsewhere are
+ * visible after the next rebuild.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class IndexedThesisManager implements ThesisManager, TransactionAware {
+
+    private static final int DEFAULT_PAGE_SIZE = 10000;
+
+    private final ThesisManager delegate;
+    private volatile ThesisTitleIndex index = new ThesisTitleIndex();
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    /** Ids written during running rebuild, their loaded rows may be stale. */
+    private volatile Set<Long> writtenDuringRebuild;
+    private volatile ThesisTitleIndex rebuilding;
+    /**
+     * Guards the check of written ids together with the put of loaded
+     * thesis by the rebuild against index updates of committed writes.
+     */
+    private final Object writeLock = new Object();
+
+    public IndexedThesisManager(ThesisManager delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is null");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * Sets number of theses loaded by one query when the index is rebuilt.
+     *
+     * @param pageSize positive number of theses
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize is not positive");
+        }
+        this.pageSize = pageSize;
+    }
+
+    public ThesisTitleIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Builds new index from all theses in the database and replaces the 
+     * current one. Theses are loaded page by page in the order of their ids,
+     * every page starts after the last id of the previous one, so they 
+     * never are in memory all at once and deletes done meanwhile do not 
+     * shift the pages. Searches use the current index until the new one
+     * is complete; writes done meanwhile through this manager go to both.
+     *
+     * @throws ServiceFailureException when db operation fails
+     */
+    public synchronized void rebuildIndex() throws ServiceFailureException {
+        ThesisTitleIndex built = new ThesisTitleIndex();
+        Set<Long> written = ConcurrentHashMap.newKeySet();
+        writtenDuringRebuild = written;
+        rebuilding = built;
+        try {
+            ThesisQuery query = new ThesisQuery();
+            query.setSortBy(ThesisQuery.SortBy.ID, true);
+            query.setLimit(pageSize);
+            while (true) {
+                List<Thesis> page = delegate.findTheses(query);
+                synchronized (writeLock) {
+                    for (Thesis thesis : page) {
+                        if (!written.contains(thesis.getId())) {
+                            built.put(thesis.getId(), thesis.getName());
+                        }
+                    }
+                }
+                if (page.size() < pageSize) {
+                    break;
+                }
+                query.setIdFrom(page.get(page.size() - 1).getId() + 1);
+            }
+            synchronized (writeLock) {
+                index = built;
+            }
+        } finally {
+            synchronized (writeLock) {
+                rebuilding = null;
+                writtenDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * Finds theses whose names match given query, see 
+     * {@link ThesisTitleIndex#search(String, ThesisTitleIndex.Match, int)}.
+     *
+     * @param query words separated by white space, word ending with '*' is
+     * a prefix
+     * @param match whether all or any words must match
+     * @param limit maximal number of returned theses
+     * @return found theses, the best match first
+     * @throws ServiceFailureException when db operation fails
+     */
+    public List<Thesis> searchByName(String query, ThesisTitleIndex.Match match, int limit)
+            throws ServiceFailureException {
+        List<Long> ids = index.search(query, match, limit);
+        List<Thesis> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Thesis thesis = delegate.getThesisById(id);
+            if (thesis != null) {
+                result.add(thesis);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public TransactionManager getTransactionManager() {
+        return delegate instanceof TransactionAware
+                ? ((TransactionAware) delegate).getTransactionManager() : null;
+    }
+
+    @Override
+    public void createThesis(Thesis thesis) throws ServiceFailureException {
+        delegate.createThesis(thesis);
+        indexThesis(thesis);
+    }
+
+    @Override
+    public void createTheses(Collection<Thesis> theses) throws ServiceFailureException {
+        try {
+            delegate.createTheses(theses);
+        } finally {
+            // theses of committed batches have their ids even when it fails
+            if (theses != null) {
+                for (Thesis thesis : theses) {
+                    if (thesis != null && thesis.getId() != null) {
+                        indexThesis(thesis);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void updateThesis(Thesis thesis) throws ServiceFailureException {
+        delegate.updateThesis(thesis);
+        indexThesis(thesis);
+    }
+
+    @Override
+    public void deleteThesis(Thesis thesis) throws ServiceFailureException {
+        delegate.deleteThesis(thesis);
+        long id = thesis.getId();
+        TransactionAware.afterCommit(delegate, () -> {
+            synchronized (writeLock) {
+                markWritten(id);
+                ThesisTitleIndex building = rebuilding;
+                if (building != null) {
+                    building.remove(id);
+                }
+                index.remove(id);
+            }
+        });
+    }
+
+    @Override
+    public Thesis getThesisById(Long id) throws ServiceFailureException {
+        return delegate.getThesisById(id);
+    }
+
+    @Override
+    public List<Thesis> getThesesForStudent(Student student) throws ServiceFailureException {
+        return delegate.getThesesForStudent(student);
+    }
+
+    @Override
+    public List<Thesis> getAllTheses() throws ServiceFailureException {
+        return delegate.getAllTheses();
+    }
+
+    @Override
+    public List<Thesis> findTheses(ThesisQuery query) throws ServiceFailureException {
+        return delegate.findTheses(query);
+    }
+
+    /**
+     * Indexes given thesis, with the name it has now, when the write is
+     * committed, so uncommitted names are never found.
+     */
+    private void indexThesis(Thesis thesis) {
+        long id = thesis.getId();
+        String name = thesis.getName();
+        TransactionAware.afterCommit(delegate, () -> {
+            synchronized (writeLock) {
+                markWritten(id);
+                ThesisTitleIndex building = rebuilding;
+                if (building != null) {
+                    building.put(id, name);
+                }
+                index.put(id, name);
+            }
+        });
+    }
+
+    private void markWritten(long id) {
+        Set<Long> written = writtenDuringRebuild;
+        if (written != null) {
+            written.add(id);
+        }
+    }
+}
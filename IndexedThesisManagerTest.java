@@ -0,0 +1,156 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for IndexedThesisManager.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class IndexedThesisManagerTest {
+
+    private DataSource dataSource;
+    private ThesisManagerImpl thesisManager;
+    private IndexedThesisManager manager;
+    private Student author;
+
+    @Before
+    public void setUp() throws SQLException, ServiceFailureException {
+        dataSource = prepareDataSource();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        StudentManagerImpl studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(dataSource);
+        author = new Student();
+        author.setName("Joshua");
+        author.setSurname("Bloch");
+        studentManager.createStudent(author);
+
+        thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(dataSource);
+        manager = new IndexedThesisManager(thesisManager);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    private static DataSource prepareDataSource() throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:thesismgr-test");
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+
+    @Test
+    public void rebuildIndexLoadsAllPages() throws ServiceFailureException {
+        List<Thesis> theses = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            theses.add(ThesisManagerImplTest.newThesis("Rocket Science", Type.PHD, 2000 + i, author));
+        }
+        theses.add(ThesisManagerImplTest.newThesis("Cooking", Type.PHD, 2012, author));
+        thesisManager.createTheses(theses);
+
+        manager.setPageSize(10);
+        manager.rebuildIndex();
+
+        assertEquals(26, manager.getIndex().size());
+        assertEquals(25, manager.searchByName("rocket", ThesisTitleIndex.Match.ALL, 100).size());
+        assertEquals(Arrays.asList(theses.get(25)),
+                manager.searchByName("cook*", ThesisTitleIndex.Match.ALL, 100));
+    }
+
+    @Test
+    public void deleteDuringRebuildDoesNotShiftPages() throws ServiceFailureException {
+        List<Thesis> theses = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            theses.add(ThesisManagerImplTest.newThesis("Rocket Science", Type.PHD, 2000 + i, author));
+        }
+        thesisManager.createTheses(theses);
+        final AtomicBoolean deleted = new AtomicBoolean();
+        // deletes the first thesis right after the first page is loaded
+        ThesisManager deleting = (ThesisManager) Proxy.newProxyInstance(ThesisManager.class.getClassLoader(),
+                new Class<?>[]{ThesisManager.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(thesisManager, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                    if (method.getName().equals("findTheses") && deleted.compareAndSet(false, true)) {
+                        manager.deleteThesis(theses.get(0));
+                    }
+                    return result;
+                });
+        manager = new IndexedThesisManager(deleting);
+
+        manager.setPageSize(10);
+        manager.rebuildIndex();
+
+        assertEquals(24, manager.getIndex().size());
+        assertEquals(24, manager.searchByName("rocket", ThesisTitleIndex.Match.ALL, 100).size());
+    }
+
+    @Test
+    public void writesUpdateIndex() throws ServiceFailureException {
+        Thesis thesis = ThesisManagerImplTest.newThesis("Rocket Science", Type.PHD, 2012, author);
+        manager.createThesis(thesis);
+        manager.createTheses(Arrays.asList(
+                ThesisManagerImplTest.newThesis("Cooking", Type.MASTER, 2013, author)));
+        assertEquals(Arrays.asList(thesis),
+                manager.searchByName("science", ThesisTitleIndex.Match.ALL, 10));
+
+        thesis.setName("Rocket Engines");
+        manager.updateThesis(thesis);
+        assertTrue(manager.searchByName("science", ThesisTitleIndex.Match.ALL, 10).isEmpty());
+        assertEquals(Arrays.asList(thesis),
+                manager.searchByName("engines", ThesisTitleIndex.Match.ALL, 10));
+
+        manager.deleteThesis(thesis);
+        assertTrue(manager.searchByName("rocket", ThesisTitleIndex.Match.ANY, 10).isEmpty());
+        assertEquals(1, manager.getIndex().size());
+    }
+
+    @Test
+    public void rolledBackWritesDoNotChangeIndex() throws Exception {
+        Thesis thesis = ThesisManagerImplTest.newThesis("Rocket Science", Type.PHD, 2012, author);
+        manager.createThesis(thesis);
+
+        try {
+            thesisManager.getTransactionManager().inTransaction(() -> {
+                manager.createThesis(ThesisManagerImplTest.newThesis("Cooking", Type.MASTER, 2013, author));
+                thesis.setName("Rocket Engines");
+                manager.updateThesis(thesis);
+                assertTrue(manager.searchByName("engines", ThesisTitleIndex.Match.ALL, 10).isEmpty());
+                throw new ServiceFailureException("rollback");
+            });
+            fail("ServiceFailureException expected");
+        } catch (ServiceFailureException ex) {
+            // expected
+        }
+        assertEquals(1, manager.getIndex().size());
+        assertTrue(manager.searchByName("engines", ThesisTitleIndex.Match.ALL, 10).isEmpty());
+        assertEquals(1, manager.searchByName("science", ThesisTitleIndex.Match.ALL, 10).size());
+
+        thesisManager.getTransactionManager().inTransaction(() -> {
+            manager.deleteThesis(manager.getThesisById(thesis.getId()));
+            assertEquals(1, manager.getIndex().size());
+            return null;
+        });
+        assertEquals(0, manager.getIndex().size());
+    }
+}
@@ -0,0 +1,66 @@
+package ThesisManCommon;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests for LatencyHistogram.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP99());
+        assertEquals(0, snapshot.getMean(), 0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(50, snapshot.getCount());
+        assertEquals(25, snapshot.getP50());
+        assertEquals(50, snapshot.getP99());
+        assertEquals(50, snapshot.getMax());
+        assertEquals(25.5, snapshot.getMean(), 0.001);
+    }
+
+    @Test
+    public void percentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertWithinError(50000000L, snapshot.getP50());
+        assertWithinError(99000000L, snapshot.getP99());
+        assertWithinError(99900000L, snapshot.getP999());
+        assertEquals(100000000L, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void bucketsCoverWholeRange() {
+        for (long value : new long[]{0, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueOf(bucket - 1) < value);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentileOutOfRange() {
+        new LatencyHistogram().snapshot().getValueAtPercentile(101);
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue("expected " + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 1.04);
+    }
+}
@@ -0,0 +1,26 @@
+package ThesisMan;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all manager benchmarks with the GC profiler, so throughput, average
+ * time and allocation rate are reported together. Standard JMH command line
+ * options can be given, e.g. "-p rows=1000" to run only the smallest tables.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ManagerBenchmarks {
+    
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include("ThesisMan\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
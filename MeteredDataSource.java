@@ -0,0 +1,98 @@
+package ThesisManCommon;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * DataSource which measures how long callers wait in getConnection(), e.g. 
+ * for a free connection of {@link PooledDataSource}. Waits are recorded as 
+ * operation {@value #GET_CONNECTION} of given registry.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class MeteredDataSource implements DataSource {
+
+    public static final String GET_CONNECTION = "DataSource.getConnection";
+
+    private final DataSource target;
+    private final OperationMetrics metrics;
+
+    public MeteredDataSource(DataSource target, MetricsRegistry registry) {
+        if (target == null) {
+            throw new IllegalArgumentException("target is null");
+        }
+        if (registry == null) {
+            throw new IllegalArgumentException("registry is null");
+        }
+        this.target = target;
+        this.metrics = registry.operation(GET_CONNECTION);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection conn = target.getConnection();
+            metrics.recordSuccess(System.nanoTime() - start, 0);
+            return conn;
+        } catch (SQLException | RuntimeException ex) {
+            metrics.recordFailure(System.nanoTime() - start, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection conn = target.getConnection(username, password);
+            metrics.recordSuccess(System.nanoTime() - start, 0);
+            return conn;
+        } catch (SQLException | RuntimeException ex) {
+            metrics.recordFailure(System.nanoTime() - start, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,109 @@
+package ThesisMan;
+
+import ThesisManCommon.MetricsRegistry;
+import ThesisManCommon.OperationMetrics;
+import ThesisManCommon.ServiceFailureException;
+import ThesisManCommon.TransactionManager;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Decorator of StudentManager which records call counts, failures, returned
+ * rows and latencies of every method into given registry. Operations are 
+ * named "StudentManager." followed by the method name. To see time spent 
+ * waiting for connections, give the wrapped manager 
+ * {@link ThesisManCommon.MeteredDataSource} with the same registry.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class MeteredStudentManager implements StudentManager, TransactionAware {
+
+    private static final String PREFIX = "StudentManager.";
+
+    private final StudentManager delegate;
+    private final OperationMetrics createStudent;
+    private final OperationMetrics createStudents;
+    private final OperationMetrics updateStudent;
+    private final OperationMetrics deleteStudent;
+    private final OperationMetrics getStudentById;
+    private final OperationMetrics findAllStudents;
+    private final OperationMetrics streamAllStudents;
+
+    public MeteredStudentManager(StudentManager delegate, MetricsRegistry registry) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is null");
+        }
+        if (registry == null) {
+            throw new IllegalArgumentException("registry is null");
+        }
+        this.delegate = delegate;
+        this.createStudent = registry.operation(PREFIX + "createStudent");
+        this.createStudents = registry.operation(PREFIX + "createStudents");
+        this.updateStudent = registry.operation(PREFIX + "updateStudent");
+        this.deleteStudent = registry.operation(PREFIX + "deleteStudent");
+        this.getStudentById = registry.operation(PREFIX + "getStudentById");
+        this.findAllStudents = registry.operation(PREFIX + "findAllStudents");
+        this.streamAllStudents = registry.operation(PREFIX + "streamAllStudents");
+    }
+
+    @Override
+    public TransactionManager getTransactionManager() {
+        return delegate instanceof TransactionAware
+                ? ((TransactionAware) delegate).getTransactionManager() : null;
+    }
+
+    @Override
+    public void createStudent(Student student) throws ServiceFailureException {
+        createStudent.measure(() -> {
+            delegate.createStudent(student);
+            return null;
+        });
+    }
+
+    @Override
+    public void createStudents(Collection<Student> students) throws ServiceFailureException {
+        createStudents.measure(() -> {
+            delegate.createStudents(students);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateStudent(Student student) throws ServiceFailureException {
+        updateStudent.measure(() -> {
+            delegate.updateStudent(student);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteStudent(Student student) throws ServiceFailureException {
+        deleteStudent.measure(() -> {
+            delegate.deleteStudent(student);
+            return null;
+        });
+    }
+
+    @Override
+    public Student getStudentById(Long id) throws ServiceFailureException {
+        return getStudentById.measure(() -> delegate.getStudentById(id));
+    }
+
+    @Override
+    public List<Student> findAllStudents() throws ServiceFailureException {
+        return findAllStudents.measure(() -> delegate.findAllStudents());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Measured latency covers opening of the stream only; rows are counted 
+     * as they are read from the stream.
+     */
+    @Override
+    public Stream<Student> streamAllStudents(int fetchSize) throws ServiceFailureException {
+        Stream<Student> stream = streamAllStudents.measure(() -> delegate.streamAllStudents(fetchSize));
+        return stream.peek(student -> streamAllStudents.addRows(1));
+    }
+}
@@ -0,0 +1,135 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.IllegalEntityException;
+import ThesisManCommon.MeteredDataSource;
+import ThesisManCommon.MetricsRegistry;
+import ThesisManCommon.OperationMetrics;
+import ThesisManCommon.ServiceFailureException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for MeteredStudentManager, MeteredThesisManager and MeteredDataSource.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class MeteredStudentManagerTest {
+
+    private DataSource dataSource;
+    private MetricsRegistry registry;
+    private MeteredStudentManager studentManager;
+    private MeteredThesisManager thesisManager;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = prepareDataSource();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        registry = new MetricsRegistry();
+        DataSource metered = new MeteredDataSource(dataSource, registry);
+
+        StudentManagerImpl students = new StudentManagerImpl();
+        students.setDataSource(metered);
+        studentManager = new MeteredStudentManager(students, registry);
+        ThesisManagerImpl theses = new ThesisManagerImpl();
+        theses.setDataSource(metered);
+        thesisManager = new MeteredThesisManager(theses, registry);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    private static DataSource prepareDataSource() throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:thesismgr-test");
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+
+    @Test
+    public void callsRowsAndLatenciesAreRecorded() throws ServiceFailureException {
+        Student s1 = newStudent("Joshua", "Bloch");
+        Student s2 = newStudent("Martin", "Fowler");
+        studentManager.createStudents(Arrays.asList(s1, s2));
+        studentManager.getStudentById(s1.getId());
+        studentManager.getStudentById(s2.getId());
+        studentManager.getStudentById(s2.getId() + 1);
+        studentManager.findAllStudents();
+
+        Map<String, OperationMetrics.Snapshot> snapshot = registry.snapshot();
+        OperationMetrics.Snapshot get = snapshot.get("StudentManager.getStudentById");
+        assertEquals(3, get.getCalls());
+        assertEquals(2, get.getRows());
+        assertEquals(0, get.getErrorCount());
+        assertEquals(3, get.getLatency().getCount());
+        assertTrue(get.getLatency().getP50() > 0);
+        assertEquals(2, snapshot.get("StudentManager.findAllStudents").getRows());
+        assertEquals(1, snapshot.get("StudentManager.createStudents").getCalls());
+        assertEquals(0, snapshot.get("StudentManager.deleteStudent").getCalls());
+    }
+
+    @Test
+    public void errorsAreCountedByType() throws ServiceFailureException {
+        try {
+            studentManager.createStudent(null);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        Student student = newStudent("Joshua", "Bloch");
+        try {
+            studentManager.deleteStudent(student);
+            fail("IllegalEntityException expected");
+        } catch (IllegalEntityException ex) {
+            // expected
+        }
+
+        OperationMetrics.Snapshot create = registry.snapshot().get("StudentManager.createStudent");
+        assertEquals(1, create.getCalls());
+        assertEquals(Long.valueOf(1), create.getErrors().get(IllegalArgumentException.class.getName()));
+        OperationMetrics.Snapshot delete = registry.snapshot().get("StudentManager.deleteStudent");
+        assertEquals(Long.valueOf(1), delete.getErrors().get(IllegalEntityException.class.getName()));
+    }
+
+    @Test
+    public void streamedRowsAreCounted() throws ServiceFailureException {
+        studentManager.createStudents(Arrays.asList(
+                newStudent("Joshua", "Bloch"), newStudent("Martin", "Fowler")));
+        try (Stream<Student> stream = studentManager.streamAllStudents(10)) {
+            assertEquals(2, stream.count());
+        }
+        assertEquals(2, registry.snapshot().get("StudentManager.streamAllStudents").getRows());
+    }
+
+    @Test
+    public void thesisManagerAndConnectionWaitsAreRecorded() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(student);
+        thesisManager.createThesis(ThesisManagerImplTest.newThesis("Math", Type.PHD, 2012, student));
+        thesisManager.createThesis(ThesisManagerImplTest.newThesis("Physics", Type.PHD, 2013, student));
+
+        assertEquals(2, thesisManager.getThesesForStudent(student).size());
+        Map<String, OperationMetrics.Snapshot> snapshot = registry.snapshot();
+        assertEquals(2, snapshot.get("ThesisManager.createThesis").getCalls());
+        assertEquals(2, snapshot.get("ThesisManager.getThesesForStudent").getRows());
+        assertTrue(snapshot.get(MeteredDataSource.GET_CONNECTION).getCalls() >= 4);
+    }
+
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+
+        return student;
+    }
+}
@@ -0,0 +1,106 @@
+package ThesisMan;
+
+import ThesisManCommon.MetricsRegistry;
+import ThesisManCommon.OperationMetrics;
+import ThesisManCommon.ServiceFailureException;
+import ThesisManCommon.TransactionManager;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decorator of ThesisManager which records call counts, failures, returned
+ * rows and latencies of every method into given registry. Operations are 
+ * named "ThesisManager." followed by the method name.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class MeteredThesisManager implements ThesisManager, TransactionAware {
+
+    private static final String PREFIX = "ThesisManager.";
+
+    private final ThesisManager delegate;
+    private final OperationMetrics createThesis;
+    private final OperationMetrics createTheses;
+    private final OperationMetrics updateThesis;
+    private final OperationMetrics deleteThesis;
+    private final OperationMetrics getThesisById;
+    private final OperationMetrics getThesesForStudent;
+    private final OperationMetrics getAllTheses;
+    private final OperationMetrics findTheses;
+
+    public MeteredThesisManager(ThesisManager delegate, MetricsRegistry registry) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is null");
+        }
+        if (registry == null) {
+            throw new IllegalArgumentException("registry is null");
+        }
+        this.delegate = delegate;
+        this.createThesis = registry.operation(PREFIX + "createThesis");
+        this.createTheses = registry.operation(PREFIX + "createTheses");
+        this.updateThesis = registry.operation(PREFIX + "updateThesis");
+        this.deleteThesis = registry.operation(PREFIX + "deleteThesis");
+        this.getThesisById = registry.operation(PREFIX + "getThesisById");
+        this.getThesesForStudent = registry.operation(PREFIX + "getThesesForStudent");
+        this.getAllTheses = registry.operation(PREFIX + "getAllTheses");
+        this.findTheses = registry.operation(PREFIX + "findTheses");
+    }
+
+    @Override
+    public TransactionManager getTransactionManager() {
+        return delegate instanceof TransactionAware
+                ? ((TransactionAware) delegate).getTransactionManager() : null;
+    }
+
+    @Override
+    public void createThesis(Thesis thesis) throws ServiceFailureException {
+        createThesis.measure(() -> {
+            delegate.createThesis(thesis);
+            return null;
+        });
+    }
+
+    @Override
+    public void createTheses(Collection<Thesis> theses) throws ServiceFailureException {
+        createTheses.measure(() -> {
+            delegate.createTheses(theses);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateThesis(Thesis thesis) throws ServiceFailureException {
+        updateThesis.measure(() -> {
+            delegate.updateThesis(thesis);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteThesis(Thesis thesis) throws ServiceFailureException {
+        deleteThesis.measure(() -> {
+            delegate.deleteThesis(thesis);
+            return null;
+        });
+    }
+
+    @Override
+    public Thesis getThesisById(Long id) throws ServiceFailureException {
+        return getThesisById.measure(() -> delegate.getThesisById(id));
+    }
+
+    @Override
+    public List<Thesis> getThesesForStudent(Student student) throws ServiceFailureException {
+        return getThesesForStudent.measure(() -> delegate.getThesesForStudent(student));
+    }
+
+    @Override
+    public List<Thesis> getAllTheses() throws ServiceFailureException {
+        return getAllTheses.measure(() -> delegate.getAllTheses());
+    }
+
+    @Override
+    public List<Thesis> findTheses(ThesisQuery query) throws ServiceFailureException {
+        return findTheses.measure(() -> delegate.findTheses(query));
+    }
+}
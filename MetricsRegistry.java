@@ -0,0 +1,44 @@
+package ThesisManCommon;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Named metrics of operations. Metered managers and data sources which 
+ * share one registry can be inspected together by {@link #snapshot()}.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    /**
+     * Returns metrics of given operation, they are created by the first call.
+     *
+     * @param name name of the operation
+     * @return metrics of the operation
+     */
+    public OperationMetrics operation(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name is null");
+        }
+        return operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    /**
+     * Returns snapshots of all operations.
+     *
+     * @return map from operation name to its snapshot, sorted by name
+     */
+    public Map<String, OperationMetrics.Snapshot> snapshot() {
+        Map<String, OperationMetrics.Snapshot> result = new TreeMap<>();
+        for (OperationMetrics metrics : operations.values()) {
+            result.put(metrics.getName(), metrics.snapshot());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
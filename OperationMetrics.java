@@ -0,0 +1,176 @@
+package ThesisManCommon;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.BaseStream;
+
+/**
+ * Metrics of one operation, e.g. one manager method: number of calls, 
+ * number of failures by exception type, number of returned rows and 
+ * histogram of latencies. All counters are lock-free.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class OperationMetrics {
+
+    /**
+     * Measured call of a manager method.
+     *
+     * @param <T> type of the result
+     */
+    public interface Call<T> {
+
+        T call() throws ServiceFailureException;
+    }
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final ConcurrentMap<Class<?>, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Runs given call and records its latency and outcome. Rows returned by
+     * the call are counted as the size of returned collection, or one row 
+     * for any other non-null result. Rows of returned stream are not known
+     * yet, they can be added later by {@link #addRows(long)}.
+     *
+     * @param <T> type of the result
+     * @param call measured call
+     * @return result of the call
+     * @throws ServiceFailureException when thrown by the call
+     */
+    public <T> T measure(Call<T> call) throws ServiceFailureException {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.call();
+        } catch (ServiceFailureException | RuntimeException | Error ex) {
+            recordFailure(System.nanoTime() - start, ex);
+            throw ex;
+        }
+        long rowCount = result instanceof Collection ? ((Collection<?>) result).size()
+                : result instanceof BaseStream || result == null ? 0 : 1;
+        recordSuccess(System.nanoTime() - start, rowCount);
+        return result;
+    }
+
+    /**
+     * Records successful call.
+     *
+     * @param nanos latency of the call in nanoseconds
+     * @param rowCount number of rows returned by the call
+     */
+    public void recordSuccess(long nanos, long rowCount) {
+        calls.increment();
+        rows.add(rowCount);
+        latency.record(nanos);
+    }
+
+    /**
+     * Records failed call.
+     *
+     * @param nanos latency of the call in nanoseconds
+     * @param error exception thrown by the call
+     */
+    public void recordFailure(long nanos, Throwable error) {
+        calls.increment();
+        errors.computeIfAbsent(error.getClass(), k -> new LongAdder()).increment();
+        latency.record(nanos);
+    }
+
+    /**
+     * Adds rows which were returned later than the call finished, e.g. read 
+     * from a stream.
+     *
+     * @param rowCount number of rows
+     */
+    public void addRows(long rowCount) {
+        rows.add(rowCount);
+    }
+
+    public Snapshot snapshot() {
+        Map<String, Long> errorCounts = new TreeMap<>();
+        for (Map.Entry<Class<?>, LongAdder> entry : errors.entrySet()) {
+            errorCounts.put(entry.getKey().getName(), entry.getValue().sum());
+        }
+        return new Snapshot(name, calls.sum(), rows.sum(), errorCounts, latency.snapshot());
+    }
+
+    /**
+     * Immutable state of the operation metrics in one moment.
+     */
+    public static final class Snapshot {
+
+        private final String name;
+        private final long calls;
+        private final long rows;
+        private final Map<String, Long> errors;
+        private final LatencyHistogram.Snapshot latency;
+
+        private Snapshot(String name, long calls, long rows, Map<String, Long> errors,
+                LatencyHistogram.Snapshot latency) {
+            this.name = name;
+            this.calls = calls;
+            this.rows = rows;
+            this.errors = Collections.unmodifiableMap(errors);
+            this.latency = latency;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns number of failed calls.
+         *
+         * @return number of failed calls of all exception types
+         */
+        public long getErrorCount() {
+            long count = 0;
+            for (long c : errors.values()) {
+                count += c;
+            }
+            return count;
+        }
+
+        /**
+         * Returns number of failed calls by exception type.
+         *
+         * @return map from exception class name to number of failed calls
+         */
+        public Map<String, Long> getErrors() {
+            return errors;
+        }
+
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": calls=" + calls + ", rows=" + rows + ", errors=" + errors + ", " + latency;
+        }
+    }
+}
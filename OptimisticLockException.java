@@ -0,0 +1,15 @@
+package ThesisManCommon;
+
+/**
+ * Thrown when entity can not be updated or deleted, because it was changed
+ * in the database after it had been loaded. Caller should load the entity
+ * again and repeat the change.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class OptimisticLockException extends RuntimeException {
+    
+    public OptimisticLockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,715 @@
+package ThesisManCommon;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * DataSource which keeps physical connections of the wrapped DataSource open
+ * and hands them out repeatedly. Connections returned by this DataSource are
+ * given back to the pool by {@link Connection#close()}; uncommitted work is
+ * rolled back and the autocommit mode is switched back on at that moment.
+ * Every pooled connection also keeps LRU cache of prepared statements, so
+ * preparing the same SQL again on a pooled connection is cheap.
+ * <p>
+ * Pool is configured by setters before the first connection is requested.
+ * Idle connections above minimal size are closed after idle timeout by
+ * a background daemon thread.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class PooledDataSource implements DataSource, AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(
+            PooledDataSource.class.getName());
+
+    private final DataSource target;
+
+    private int minSize = 0;
+    private int maxSize = 10;
+    private long maxWaitMillis = 30000;
+    private long idleTimeoutMillis = 600000;
+    private long validationIntervalMillis = 5000;
+    private int validationTimeoutSeconds = 5;
+    private int statementCacheSize = 50;
+    private int queryTimeoutSeconds = 0;
+
+    /** Idle connections, the most recently used one is first. */
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    /** Number of physical connections, both idle and in use. */
+    private int totalCount;
+    private boolean closed;
+    private ScheduledExecutorService evictor;
+
+    public PooledDataSource(DataSource target) {
+        if (target == null) {
+            throw new IllegalArgumentException("target is null");
+        }
+        this.target = target;
+    }
+
+    /**
+     * Sets number of connections which are kept open even when idle.
+     *
+     * @param minSize non-negative minimal number of connections
+     */
+    public synchronized void setMinSize(int minSize) {
+        if (minSize < 0) {
+            throw new IllegalArgumentException("minSize is negative");
+        }
+        this.minSize = minSize;
+    }
+
+    /**
+     * Sets maximal number of open connections. When all of them are in use,
+     * getConnection() waits until some connection is returned.
+     *
+     * @param maxSize positive maximal number of connections
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize is not positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Sets how long getConnection() waits for free connection before it fails.
+     *
+     * @param maxWaitMillis non-negative time in milliseconds
+     */
+    public synchronized void setMaxWaitMillis(long maxWaitMillis) {
+        if (maxWaitMillis < 0) {
+            throw new IllegalArgumentException("maxWaitMillis is negative");
+        }
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Sets how long connection may stay idle before it is closed, as long as
+     * the pool keeps at least minSize connections. Zero disables eviction.
+     *
+     * @param idleTimeoutMillis non-negative time in milliseconds
+     */
+    public synchronized void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("idleTimeoutMillis is negative");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Sets how long connection may stay idle before it is validated by
+     * {@link Connection#isValid(int)} when it is handed out again. Zero means
+     * that connection is validated every time.
+     *
+     * @param validationIntervalMillis non-negative time in milliseconds
+     */
+    public synchronized void setValidationIntervalMillis(long validationIntervalMillis) {
+        if (validationIntervalMillis < 0) {
+            throw new IllegalArgumentException("validationIntervalMillis is negative");
+        }
+        this.validationIntervalMillis = validationIntervalMillis;
+    }
+
+    /**
+     * Sets maximal number of prepared statements cached by one connection.
+     * Zero disables the cache.
+     *
+     * @param statementCacheSize non-negative number of statements
+     */
+    public synchronized void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("statementCacheSize is negative");
+        }
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Sets query timeout of every statement handed out by the pool, see
+     * {@link Statement#setQueryTimeout(int)}. The timeout stops statements
+     * which can not be stopped otherwise, e.g. statements of calls which 
+     * were cancelled by {@link DatabaseExecutor}; interrupting them would 
+     * break the connection. Zero means no timeout.
+     *
+     * @param queryTimeoutSeconds non-negative time in seconds
+     */
+    public synchronized void setQueryTimeoutSeconds(int queryTimeoutSeconds) {
+        if (queryTimeoutSeconds < 0) {
+            throw new IllegalArgumentException("queryTimeoutSeconds is negative");
+        }
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    /**
+     * Returns number of connections which are currently handed out.
+     *
+     * @return number of active connections
+     */
+    public synchronized int getActiveCount() {
+        return totalCount - idle.size();
+    }
+
+    /**
+     * Returns number of open connections which are waiting in the pool.
+     *
+     * @return number of idle connections
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        startEvictor();
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                checkNotClosed();
+                pooled = idle.pollFirst();
+                if (pooled == null) {
+                    if (totalCount < maxSize) {
+                        totalCount++;
+                    } else {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            throw new SQLException("Timeout when waiting for free connection, all "
+                                    + maxSize + " connections are in use");
+                        }
+                        try {
+                            wait(remaining);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted when waiting for free connection", ex);
+                        }
+                        continue;
+                    }
+                }
+            }
+
+            if (pooled == null) {
+                return openConnection().borrow();
+            }
+            if (isValid(pooled)) {
+                return pooled.borrow();
+            }
+            destroy(pooled);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException(
+                "Pooled connections are always opened with credentials of the target DataSource");
+    }
+
+    /**
+     * Closes all idle connections. Connections in use are closed when they
+     * are returned.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            if (evictor != null) {
+                evictor.shutdownNow();
+            }
+            notifyAll();
+        }
+        for (PooledConnection pooled : toClose) {
+            destroy(pooled);
+        }
+    }
+
+    private void checkNotClosed() throws SQLException {
+        if (closed) {
+            throw new SQLException("DataSource is closed");
+        }
+    }
+
+    /**
+     * Opens new physical connection. Caller must already have counted it
+     * into totalCount.
+     */
+    private PooledConnection openConnection() throws SQLException {
+        try {
+            return new PooledConnection(target.getConnection());
+        } catch (SQLException | RuntimeException ex) {
+            synchronized (this) {
+                totalCount--;
+                notifyAll();
+            }
+            throw ex;
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException ex) {
+            logger.log(Level.WARNING, "Error when validating connection", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Closes physical connection and releases its place in the pool.
+     */
+    private void destroy(PooledConnection pooled) {
+        synchronized (this) {
+            totalCount--;
+            notifyAll();
+        }
+        pooled.closePhysical();
+    }
+
+    private void release(PooledConnection pooled) {
+        if (!pooled.reset()) {
+            destroy(pooled);
+            return;
+        }
+        synchronized (this) {
+            if (!closed) {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                notifyAll();
+                return;
+            }
+        }
+        destroy(pooled);
+    }
+
+    private synchronized void startEvictor() {
+        if (evictor != null || closed) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PooledDataSource-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = idleTimeoutMillis > 0 ? Math.max(idleTimeoutMillis / 2, 100) : 1000;
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+                fillToMinSize();
+            }
+        }, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes connections which were idle longer than idle timeout, keeping
+     * at least minSize connections open.
+     */
+    void evictIdle() {
+        List<PooledConnection> toClose = new ArrayList<>();
+        synchronized (this) {
+            if (idleTimeoutMillis == 0) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && totalCount - toClose.size() > minSize) {
+                PooledConnection pooled = oldestFirst.next();
+                if (now - pooled.lastUsed < idleTimeoutMillis) {
+                    break;
+                }
+                oldestFirst.remove();
+                toClose.add(pooled);
+            }
+        }
+        for (PooledConnection pooled : toClose) {
+            destroy(pooled);
+        }
+    }
+
+    private void fillToMinSize() {
+        while (true) {
+            synchronized (this) {
+                if (closed || totalCount >= minSize) {
+                    return;
+                }
+                totalCount++;
+            }
+            try {
+                release(openConnection());
+            } catch (SQLException ex) {
+                logger.log(Level.WARNING, "Error when opening connection for the pool", ex);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Identifies cached prepared statement by its SQL and all options given
+     * when it was prepared.
+     */
+    private static final class StatementKey {
+
+        private final String sql;
+        private final List<Object> options;
+
+        StatementKey(String sql, Object[] options) {
+            this.sql = sql;
+            this.options = options.length == 0
+                    ? Collections.emptyList()
+                    : Arrays.asList(options);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey other = (StatementKey) obj;
+            return sql.equals(other.sql) && options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + options.hashCode();
+        }
+    }
+
+    /**
+     * Physical connection held by the pool together with its statement cache.
+     * Like the JDBC connection itself, it is used by one thread at a time.
+     */
+    private final class PooledConnection {
+
+        private final Connection physical;
+        private final Map<StatementKey, PreparedStatement> statementCache;
+        /** Statements handed out by the current borrower, which were not closed yet. */
+        private final Set<StatementHandler> openStatements =
+                Collections.newSetFromMap(new IdentityHashMap<StatementHandler, Boolean>());
+        /** Connection handed out to the current borrower. */
+        private Connection borrowed;
+        private long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            final int cacheSize = statementCacheSize;
+            this.statementCache = new LinkedHashMap<StatementKey, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                    if (size() > cacheSize) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection borrow() {
+            borrowed = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ConnectionHandler(this));
+            return borrowed;
+        }
+
+        /**
+         * Prepares connection for the next borrower.
+         *
+         * @return false when the connection can not be used any more
+         */
+        boolean reset() {
+            for (StatementHandler statement : new ArrayList<>(openStatements)) {
+                statement.close();
+            }
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException ex) {
+                logger.log(Level.WARNING, "Error when resetting connection, it is closed", ex);
+                return false;
+            }
+        }
+
+        Statement prepare(Method method, Object[] args) throws Throwable {
+            Object[] options = args.length > 1
+                    ? Arrays.copyOfRange(args, 1, args.length)
+                    : new Object[0];
+            StatementKey key = null;
+            PreparedStatement statement = null;
+            if (statementCacheSize > 0 && isCacheable(options)) {
+                key = new StatementKey((String) args[0], options);
+                statement = statementCache.remove(key);
+            }
+            if (statement == null) {
+                statement = (PreparedStatement) invokeTarget(physical, method, args);
+            }
+            return wrap(statement, key, PreparedStatement.class);
+        }
+
+        Statement wrap(Statement statement, StatementKey key, Class<? extends Statement> iface)
+                throws SQLException {
+            // also resets timeout of cached statement changed by its previous user
+            statement.setQueryTimeout(queryTimeoutSeconds);
+            StatementHandler statementHandler = new StatementHandler(this, statement, key);
+            openStatements.add(statementHandler);
+            return (Statement) Proxy.newProxyInstance(iface.getClassLoader(),
+                    new Class<?>[]{iface}, statementHandler);
+        }
+
+        /**
+         * Only statements prepared with int options can be cached, statements
+         * with column indexes or names are prepared every time.
+         */
+        private boolean isCacheable(Object[] options) {
+            for (Object option : options) {
+                if (!(option instanceof Integer)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void returnStatement(StatementHandler statementHandler) {
+            openStatements.remove(statementHandler);
+            PreparedStatement statement = (PreparedStatement) statementHandler.statement;
+            if (statementHandler.key == null || !resetStatement(statement)) {
+                closeQuietly(statement);
+                return;
+            }
+            PreparedStatement previous = statementCache.put(statementHandler.key, statement);
+            if (previous != null && previous != statement) {
+                closeQuietly(previous);
+            }
+        }
+
+        private boolean resetStatement(PreparedStatement statement) {
+            try {
+                ResultSet rs = statement.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+                statement.setFetchSize(0);
+                return true;
+            } catch (SQLException ex) {
+                logger.log(Level.WARNING, "Error when resetting cached statement", ex);
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            for (PreparedStatement statement : statementCache.values()) {
+                closeQuietly(statement);
+            }
+            statementCache.clear();
+            try {
+                physical.close();
+            } catch (SQLException ex) {
+                logger.log(Level.SEVERE, "Error when closing connection", ex);
+            }
+        }
+
+        private void closeQuietly(Statement statement) {
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                logger.log(Level.SEVERE, "Error when closing statement", ex);
+            }
+        }
+    }
+
+    /**
+     * Handles calls on connection handed out by the pool. Every borrow gets
+     * its own handler, so closed connection can not be used again even when
+     * the physical connection was handed out to someone else meanwhile.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        ConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            switch (name) {
+                case "prepareStatement":
+                    return pooled.prepare(method, args);
+                case "createStatement":
+                    return pooled.wrap((Statement) invokeTarget(pooled.physical, method, args),
+                            null, Statement.class);
+                default:
+                    return invokeTarget(pooled.physical, method, args);
+            }
+        }
+    }
+
+    /**
+     * Handles calls on statement created by pooled connection. Closing of
+     * cacheable statement returns it to the statement cache.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private final Statement statement;
+        private final StatementKey key;
+        private boolean closed;
+
+        StatementHandler(PooledConnection pooled, Statement statement, StatementKey key) {
+            this.pooled = pooled;
+            this.statement = statement;
+            this.key = key;
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                if (statement instanceof PreparedStatement) {
+                    pooled.returnStatement(this);
+                } else {
+                    pooled.openStatements.remove(this);
+                    pooled.closeQuietly(statement);
+                }
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return Objects.toString(statement);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            if (name.equals("getConnection")) {
+                return pooled.borrowed;
+            }
+            return invokeTarget(statement, method, args);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package ThesisManCommon;
+
+import ThesisMan.Student;
+import ThesisMan.StudentManagerImpl;
+import ThesisMan.ThesisManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for PooledDataSource.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class PooledDataSourceTest {
+
+    private EmbeddedDataSource target;
+    private PooledDataSource pool;
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Before
+    public void setUp() throws SQLException {
+        target = new EmbeddedDataSource();
+        target.setDatabaseName("memory:thesismgr-test");
+        target.setCreateDatabase("create");
+        DBUtils.executeSqlScript(target, ThesisManager.class.getResource("createTables.sql"));
+        pool = new PooledDataSource(target);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        pool.close();
+        DBUtils.executeSqlScript(target, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    @Test
+    public void connectionIsReused() throws SQLException {
+        Connection first = pool.getConnection();
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+        assertTrue(first.isClosed());
+        assertEquals(1, pool.getIdleCount());
+
+        Connection second = pool.getConnection();
+        assertSame(physical, second.unwrap(Connection.class));
+        assertFalse(second.isClosed());
+        assertEquals(1, pool.getActiveCount());
+        assertEquals(0, pool.getIdleCount());
+        second.close();
+    }
+
+    @Test
+    public void closedConnectionCanNotBeUsed() throws SQLException {
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+        assertEquals(1, pool.getIdleCount());
+
+        expectedException.expect(SQLException.class);
+        conn.createStatement();
+    }
+
+    @Test
+    public void waitsForFreeConnectionUpToMaxWait() throws SQLException {
+        pool.setMaxSize(1);
+        pool.setMaxWaitMillis(50);
+        Connection conn = pool.getConnection();
+        try {
+            pool.getConnection();
+            fail("SQLException expected");
+        } catch (SQLException ex) {
+            // expected
+        }
+        conn.close();
+        pool.getConnection().close();
+    }
+
+    @Test
+    public void autoCommitIsResetAndWorkRolledBack() throws SQLException {
+        pool.setMaxSize(1);
+        Connection conn = pool.getConnection();
+        conn.setAutoCommit(false);
+        try (PreparedStatement st = conn.prepareStatement(
+                "INSERT INTO student (name, surname) VALUES ('Joshua', 'Bloch')")) {
+            st.executeUpdate();
+        }
+        conn.close();
+
+        conn = pool.getConnection();
+        assertTrue(conn.getAutoCommit());
+        try (Statement st = conn.createStatement()) {
+            assertEquals(0, DBUtils.getId(st.executeQuery("SELECT COUNT(*) FROM student")).longValue());
+        }
+        conn.close();
+    }
+
+    @Test
+    public void preparedStatementIsCached() throws SQLException {
+        String sql = "SELECT id FROM student WHERE id = ?";
+        Connection conn = pool.getConnection();
+        PreparedStatement first = conn.prepareStatement(sql);
+        PreparedStatement physical = first.unwrap(PreparedStatement.class);
+        first.setLong(1, 1);
+        first.executeQuery();
+        first.close();
+        assertTrue(first.isClosed());
+        conn.close();
+
+        conn = pool.getConnection();
+        PreparedStatement second = conn.prepareStatement(sql);
+        assertSame(physical, second.unwrap(PreparedStatement.class));
+        assertSame(conn, second.getConnection());
+        PreparedStatement concurrent = conn.prepareStatement(sql);
+        assertNotSame(physical, concurrent.unwrap(PreparedStatement.class));
+        conn.close();
+        assertTrue(second.isClosed());
+        assertTrue(concurrent.isClosed());
+    }
+
+    @Test
+    public void queryTimeoutIsSetOnEveryStatement() throws SQLException {
+        pool.setQueryTimeoutSeconds(5);
+        String sql = "SELECT id FROM student";
+        try (Connection conn = pool.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                assertEquals(5, st.getQueryTimeout());
+            }
+            PreparedStatement first = conn.prepareStatement(sql);
+            PreparedStatement physical = first.unwrap(PreparedStatement.class);
+            assertEquals(5, first.getQueryTimeout());
+            first.setQueryTimeout(1);
+            first.close();
+
+            PreparedStatement second = conn.prepareStatement(sql);
+            assertSame(physical, second.unwrap(PreparedStatement.class));
+            assertEquals(5, second.getQueryTimeout());
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+        pool.setStatementCacheSize(2);
+        Connection conn = pool.getConnection();
+        PreparedStatement st1 = conn.prepareStatement("SELECT id FROM student");
+        PreparedStatement physical1 = st1.unwrap(PreparedStatement.class);
+        st1.close();
+        conn.prepareStatement("SELECT name FROM student").close();
+        conn.prepareStatement("SELECT surname FROM student").close();
+
+        assertTrue(physical1.isClosed());
+        PreparedStatement st2 = conn.prepareStatement("SELECT id FROM student");
+        assertNotSame(physical1, st2.unwrap(PreparedStatement.class));
+        conn.close();
+    }
+
+    @Test
+    public void idleConnectionsAreEvicted() throws Exception {
+        pool.setIdleTimeoutMillis(1);
+        pool.setMinSize(1);
+        Connection c1 = pool.getConnection();
+        Connection c2 = pool.getConnection();
+        c1.close();
+        c2.close();
+        Thread.sleep(10);
+
+        pool.evictIdle();
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    public void invalidConnectionIsReplaced() throws SQLException {
+        pool.setValidationIntervalMillis(0);
+        Connection conn = pool.getConnection();
+        Connection physical = conn.unwrap(Connection.class);
+        conn.close();
+        physical.close();
+
+        conn = pool.getConnection();
+        assertNotSame(physical, conn.unwrap(Connection.class));
+        assertFalse(conn.isClosed());
+        assertEquals(1, pool.getActiveCount());
+        conn.close();
+    }
+
+    @Test
+    public void managerWorksWithPool() throws Exception {
+        pool.setMaxSize(1);
+        StudentManagerImpl manager = new StudentManagerImpl();
+        manager.setDataSource(pool);
+
+        Student student = new Student();
+        student.setName("Joshua");
+        student.setSurname("Bloch");
+        manager.createStudent(student);
+        student.setName("Martin");
+        manager.updateStudent(student);
+
+        assertEquals(student, manager.getStudentById(student.getId()));
+        assertEquals(1, manager.findAllStudents().size());
+        manager.deleteStudent(student);
+        assertTrue(manager.findAllStudents().isEmpty());
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullTarget() {
+        new PooledDataSource(null);
+    }
+}
@@ -0,0 +1,276 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks query plans of statements issued by the managers. Derby runtime
+ * statistics are turned on for every connection and the plan of every
+ * prepared statement is recorded when the statement is closed. Tables are
+ * seeded with 100k rows, so the optimizer prefers indexes where they exist.
+ * <p>
+ * Methods which read whole tables (findAllStudents, getAllTheses) are not
+ * checked, they scan the tables by their nature.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class QueryPlanTest {
+
+    private static final int ROWS = 100000;
+
+    private static EmbeddedDataSource dataSource;
+    private static List<Student> students;
+    private static List<Thesis> theses;
+
+    private final List<String> plans = new ArrayList<>();
+    private StudentManagerImpl studentManager;
+    private ThesisManagerImpl thesisManager;
+
+    @BeforeClass
+    public static void seed() throws SQLException, ServiceFailureException {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:thesismgr-plan-test");
+        dataSource.setCreateDatabase("create");
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+
+        StudentManagerImpl studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(dataSource);
+        students = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Student student = new Student();
+            student.setName("Joshua");
+            student.setSurname("Bloch");
+            students.add(student);
+        }
+        studentManager.createStudents(students);
+
+        ThesisManagerImpl thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(dataSource);
+        theses = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            theses.add(ThesisManagerImplTest.newThesis("Thesis", Type.values()[i % 3],
+                    1950 + i % 100, students.get(i)));
+        }
+        thesisManager.createTheses(theses);
+
+        try (Connection conn = dataSource.getConnection()) {
+            for (String table : Arrays.asList("STUDENT", "THESIS")) {
+                try (CallableStatement st = conn.prepareCall(
+                        "CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS('APP', ?, NULL)")) {
+                    st.setString(1, table);
+                    st.execute();
+                }
+            }
+        }
+    }
+
+    @AfterClass
+    public static void dropTables() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    @Before
+    public void setUp() {
+        DataSource tracing = planRecordingDataSource(dataSource, plans);
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(tracing);
+        thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(tracing);
+    }
+
+    @Test
+    public void getStudentById() throws ServiceFailureException {
+        assertNotNull(studentManager.getStudentById(students.get(ROWS / 2).getId()));
+        assertNoTableScan();
+    }
+
+    @Test
+    public void updateStudent() throws ServiceFailureException {
+        Student student = students.get(ROWS / 2);
+        studentManager.updateStudent(student);
+        assertNoTableScan();
+    }
+
+    @Test
+    public void deleteStudent() throws ServiceFailureException {
+        Student student = new Student();
+        student.setName("Martin");
+        student.setSurname("Fowler");
+        studentManager.createStudent(student);
+        studentManager.deleteStudent(student);
+        assertNoTableScan();
+    }
+
+    @Test
+    public void getThesisById() throws ServiceFailureException {
+        assertNotNull(thesisManager.getThesisById(theses.get(ROWS / 2).getId()));
+        assertNoTableScan();
+    }
+
+    @Test
+    public void getThesesForStudent() throws ServiceFailureException {
+        assertEquals(1, thesisManager.getThesesForStudent(students.get(ROWS / 2)).size());
+        assertNoTableScan();
+    }
+
+    @Test
+    public void updateThesis() throws ServiceFailureException {
+        thesisManager.updateThesis(theses.get(ROWS / 2));
+        assertNoTableScan();
+    }
+
+    @Test
+    public void createAndDeleteThesis() throws ServiceFailureException {
+        Thesis thesis = ThesisManagerImplTest.newThesis("Math", Type.PHD, 2012, students.get(0));
+        thesisManager.createThesis(thesis);
+        thesisManager.deleteThesis(thesis);
+        assertNoTableScan();
+    }
+
+    @Test
+    public void createTheses() throws ServiceFailureException {
+        List<Thesis> created = Arrays.asList(
+                ThesisManagerImplTest.newThesis("Math", Type.PHD, 2012, students.get(0)),
+                ThesisManagerImplTest.newThesis("Physics", Type.PHD, 2012, students.get(ROWS - 1)));
+        thesisManager.createTheses(created);
+        for (Thesis thesis : created) {
+            thesisManager.deleteThesis(thesis);
+        }
+        assertNoTableScan();
+    }
+
+    @Test
+    public void thesesByTypeAndYear() throws SQLException {
+        try (Connection conn = planRecordingDataSource(dataSource, plans).getConnection();
+                PreparedStatement st = conn.prepareStatement(
+                "SELECT id, name FROM thesis WHERE type = ? AND yearOfPublication = ?")) {
+            st.setString(1, Type.PHD.toString());
+            st.setInt(2, 2010);
+
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rs.getLong(1);
+                }
+            }
+        }
+        assertNoTableScan();
+    }
+
+    @Test
+    public void findThesesByTypeAndYear() throws ServiceFailureException {
+        ThesisQuery query = new ThesisQuery();
+        query.setTypes(Arrays.asList(Type.PHD));
+        query.setYearFrom(2012);
+        query.setYearTo(2012);
+        assertFalse(thesisManager.findTheses(query).isEmpty());
+        assertNoTableScan();
+    }
+
+    @Test
+    public void findThesesByAuthors() throws ServiceFailureException {
+        ThesisQuery query = new ThesisQuery();
+        query.setAuthorIds(Arrays.asList(students.get(1).getId(), students.get(ROWS - 1).getId()));
+        assertEquals(2, thesisManager.findTheses(query).size());
+        assertNoTableScan();
+    }
+
+    @Test
+    public void statisticsUseIndexes() throws ServiceFailureException {
+        ThesisStatisticsImpl statistics = new ThesisStatisticsImpl();
+        statistics.setDataSource(planRecordingDataSource(dataSource, plans));
+        assertEquals(ROWS, statistics.countByYear(null).getTotal());
+        assertEquals(Long.valueOf(ROWS / 3), statistics.countByType().get(Type.PHD));
+        assertEquals(1, statistics.countThesesForStudent(students.get(0)));
+        assertNoTableScan();
+    }
+
+    private void assertNoTableScan() {
+        assertFalse("No statement recorded", plans.isEmpty());
+        for (String plan : plans) {
+            assertFalse("Table scan found in plan:\n" + plan, plan.contains("Table Scan ResultSet"));
+        }
+    }
+
+    /**
+     * Wraps given data source so that runtime statistics are turned on for
+     * every connection and plan of every closed prepared statement is added
+     * to the given list.
+     */
+    static DataSource planRecordingDataSource(final DataSource target, final List<String> plans) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object result = invokeTarget(target, method, args);
+                if (result instanceof Connection) {
+                    final Connection conn = (Connection) result;
+                    try (CallableStatement st = conn.prepareCall(
+                            "CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)")) {
+                        st.execute();
+                    }
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                            new Class<?>[]{Connection.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            Object result = invokeTarget(conn, method, args);
+                            if (result instanceof PreparedStatement) {
+                                return recordingStatement(conn, (PreparedStatement) result, plans);
+                            }
+                            return result;
+                        }
+                    });
+                }
+                return result;
+            }
+        });
+    }
+
+    private static PreparedStatement recordingStatement(final Connection conn,
+            final PreparedStatement statement, final List<String> plans) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                boolean closing = method.getName().equals("close") && !statement.isClosed();
+                Object result = invokeTarget(statement, method, args);
+                if (closing) {
+                    try (PreparedStatement st = conn.prepareStatement(
+                            "VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()");
+                            ResultSet rs = st.executeQuery()) {
+                        if (rs.next() && rs.getString(1) != null) {
+                            plans.add(rs.getString(1));
+                        }
+                    }
+                }
+                return result;
+            }
+        });
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
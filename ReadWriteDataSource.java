@@ -0,0 +1,211 @@
+package ThesisManCommon;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * DataSource of a primary database and its read-only replicas. Connections
+ * returned by {@link #getConnection()} belong to the primary, so this
+ * DataSource can be given to managers like any other one and their writes
+ * go to the primary. Managers which find this DataSource among the wrapped
+ * ones send their read-only queries to {@link #getReadConnection()}, which
+ * returns connections of the replicas in round-robin order.
+ * <p>
+ * Replicas may lag behind the primary. With read-your-writes window set,
+ * a thread which wrote to the primary (see {@link #markWritten()}) reads
+ * from the primary as well until the window passes, so it sees its own
+ * changes. Other threads are not affected.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ReadWriteDataSource implements DataSource {
+
+    private static final Logger logger = Logger.getLogger(
+            ReadWriteDataSource.class.getName());
+
+    private final DataSource primary;
+    private final DataSource[] replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ThreadLocal<long[]> pinnedUntil = new ThreadLocal<>();
+    private volatile long readYourWritesNanos;
+
+    /**
+     * Creates DataSource of given databases.
+     *
+     * @param primary data source of the primary database
+     * @param replicas data sources of the replicas, at least one
+     */
+    public ReadWriteDataSource(DataSource primary, DataSource... replicas) {
+        if (primary == null) {
+            throw new IllegalArgumentException("primary is null");
+        }
+        if (replicas == null || replicas.length == 0) {
+            throw new IllegalArgumentException("replicas are empty");
+        }
+        if (Arrays.asList(replicas).contains(null)) {
+            throw new IllegalArgumentException("replicas contain null");
+        }
+        this.primary = primary;
+        this.replicas = replicas.clone();
+    }
+
+    /**
+     * Returns ReadWriteDataSource which is given DataSource or is wrapped by
+     * it.
+     *
+     * @param dataSource data source
+     * @return read/write data source, or null when there is none
+     */
+    public static ReadWriteDataSource find(DataSource dataSource) {
+        if (dataSource == null) {
+            throw new IllegalArgumentException("dataSource is null");
+        }
+        if (dataSource instanceof ReadWriteDataSource) {
+            return (ReadWriteDataSource) dataSource;
+        }
+        try {
+            if (dataSource.isWrapperFor(ReadWriteDataSource.class)) {
+                return dataSource.unwrap(ReadWriteDataSource.class);
+            }
+        } catch (SQLException ex) {
+            logger.log(Level.FINE, "DataSource can not be unwrapped", ex);
+        }
+        return null;
+    }
+
+    /**
+     * Sets how long a thread reads from the primary after its write.
+     *
+     * @param window length of the window, zero switches reading own writes
+     * off
+     * @param unit unit of the window
+     */
+    public void setReadYourWritesWindow(long window, TimeUnit unit) {
+        if (window < 0) {
+            throw new IllegalArgumentException("window is negative");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit is null");
+        }
+        this.readYourWritesNanos = unit.toNanos(window);
+    }
+
+    /**
+     * Records that the current thread committed a write to the primary.
+     */
+    public void markWritten() {
+        long window = readYourWritesNanos;
+        if (window > 0) {
+            long[] until = pinnedUntil.get();
+            if (until == null) {
+                until = new long[1];
+                pinnedUntil.set(until);
+            }
+            until[0] = System.nanoTime() + window;
+        }
+    }
+
+    /**
+     * Returns true when the current thread reads from the primary, because
+     * it wrote recently.
+     *
+     * @return true when the thread is pinned to the primary
+     */
+    public boolean isPinnedToPrimary() {
+        long[] until = pinnedUntil.get();
+        return until != null && System.nanoTime() - until[0] < 0;
+    }
+
+    /**
+     * Returns connection for read-only queries: connection of the next
+     * replica, or of the primary when the current thread is pinned to it.
+     * When a replica can not give a connection, the following replicas are
+     * tried.
+     *
+     * @return connection for reading
+     * @throws SQLException when no replica gives a connection
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (isPinnedToPrimary()) {
+            return primary.getConnection();
+        }
+        int first = Math.floorMod(next.getAndIncrement(), replicas.length);
+        SQLException failure = null;
+        for (int i = 0; i < replicas.length; i++) {
+            DataSource replica = replicas[(first + i) % replicas.length];
+            try {
+                return replica.getConnection();
+            } catch (SQLException ex) {
+                logger.log(Level.WARNING, "Replica " + replica + " gives no connection", ex);
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Returns connection of the primary.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+        for (DataSource replica : replicas) {
+            replica.setLoginTimeout(seconds);
+        }
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,163 @@
+package ThesisManCommon;
+
+import ThesisMan.Student;
+import ThesisMan.StudentManagerImpl;
+import ThesisMan.Thesis;
+import ThesisMan.ThesisManager;
+import ThesisMan.ThesisManagerImpl;
+import ThesisMan.ThesisManagerImplTest;
+import ThesisMan.Type;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for ReadWriteDataSource. The replicas are separate databases which
+ * are not replicated at all, so reading from a replica is recognized by not
+ * seeing the writes done through the primary.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ReadWriteDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica1;
+    private DataSource replica2;
+    private ReadWriteDataSource readWrite;
+    private StudentManagerImpl studentManager;
+    private ThesisManagerImpl thesisManager;
+
+    @Before
+    public void setUp() throws SQLException {
+        primary = prepareDataSource("memory:thesismgr-test");
+        replica1 = prepareDataSource("memory:thesismgr-replica1");
+        replica2 = prepareDataSource("memory:thesismgr-replica2");
+        for (DataSource ds : new DataSource[]{primary, replica1, replica2}) {
+            DBUtils.executeSqlScript(ds, ThesisManager.class.getResource("createTables.sql"));
+        }
+        readWrite = new ReadWriteDataSource(primary, replica1, replica2);
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(readWrite);
+        thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(readWrite);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        for (DataSource ds : new DataSource[]{primary, replica1, replica2}) {
+            DBUtils.executeSqlScript(ds, ThesisManager.class.getResource("dropTables.sql"));
+        }
+    }
+
+    private static DataSource prepareDataSource(String name) throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName(name);
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+
+    @Test
+    public void readsGoToReplicas() throws Exception {
+        Student student = newStudent(studentManager);
+        Thesis thesis = ThesisManagerImplTest.newThesis("Math", Type.PHD, 2012, student);
+        thesisManager.createThesis(thesis);
+
+        assertNull(studentManager.getStudentById(student.getId()));
+        assertTrue(studentManager.findAllStudents().isEmpty());
+        assertNull(thesisManager.getThesisById(thesis.getId()));
+        assertTrue(thesisManager.getAllTheses().isEmpty());
+        assertTrue(thesisManager.getThesesForStudent(student).isEmpty());
+        assertEquals(1, newManager(primary).findAllStudents().size());
+    }
+
+    @Test
+    public void replicasTakeTurns() throws Exception {
+        newStudent(newManager(replica1));
+
+        int found = 0;
+        for (int i = 0; i < 4; i++) {
+            found += studentManager.findAllStudents().size();
+        }
+        assertEquals(2, found);
+    }
+
+    @Test
+    public void failedReplicaIsSkipped() throws Exception {
+        EmbeddedDataSource missing = new EmbeddedDataSource();
+        missing.setDatabaseName("memory:thesismgr-missing");
+        readWrite = new ReadWriteDataSource(primary, missing, replica1);
+        studentManager.setDataSource(readWrite);
+        newStudent(newManager(replica1));
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(1, studentManager.findAllStudents().size());
+        }
+    }
+
+    @Test
+    public void writingThreadReadsOwnWrites() throws Exception {
+        readWrite.setReadYourWritesWindow(1, TimeUnit.MINUTES);
+        final Student student = newStudent(studentManager);
+        assertTrue(readWrite.isPinnedToPrimary());
+        assertEquals(student, studentManager.getStudentById(student.getId()));
+
+        final AtomicReference<Student> foundByOther = new AtomicReference<>(student);
+        Thread other = new Thread(() -> {
+            try {
+                foundByOther.set(studentManager.getStudentById(student.getId()));
+            } catch (ServiceFailureException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        other.start();
+        other.join();
+        assertNull(foundByOther.get());
+    }
+
+    @Test
+    public void readsWithoutWindowGoToReplicas() throws Exception {
+        Student student = newStudent(studentManager);
+        assertFalse(readWrite.isPinnedToPrimary());
+        assertNull(studentManager.getStudentById(student.getId()));
+    }
+
+    @Test
+    public void readsInTransactionGoToPrimary() throws Exception {
+        final Student student = new Student();
+        student.setName("Joshua");
+        student.setSurname("Bloch");
+        TransactionManager transactions = new TransactionManager(readWrite);
+        studentManager.setDataSource(transactions);
+        transactions.inTransaction(() -> {
+            studentManager.createStudent(student);
+            assertEquals(student, studentManager.getStudentById(student.getId()));
+            return null;
+        });
+        assertNull(studentManager.getStudentById(student.getId()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noReplicas() {
+        new ReadWriteDataSource(primary);
+    }
+
+    private static StudentManagerImpl newManager(DataSource dataSource) {
+        StudentManagerImpl manager = new StudentManagerImpl();
+        manager.setDataSource(dataSource);
+        return manager;
+    }
+
+    private static Student newStudent(StudentManagerImpl manager) throws ServiceFailureException {
+        Student student = new Student();
+        student.setName("Joshua");
+        student.setSurname("Bloch");
+        manager.createStudent(student);
+        return student;
+    }
+}
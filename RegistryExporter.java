@@ -0,0 +1,491 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+import javax.sql.DataSource;
+
+/**
+ * Exports theses and students to CSV or JSON Lines. Rows are read from an
+ * open database cursor and encoded straight into one reusable byte buffer,
+ * so no entities, lists or intermediate strings are created and memory
+ * used by the export does not depend on the number of rows.
+ * <p>
+ * CSV follows RFC 4180: the first line is the header, lines end with CRLF
+ * and fields containing comma, quote or line break are quoted. JSON Lines
+ * has one JSON object per line. Both are encoded in UTF-8, optionally
+ * compressed by gzip. Rows are exported in no particular order. Missing
+ * values are exported as empty CSV fields and as JSON nulls.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class RegistryExporter {
+
+    /**
+     * Format of exported rows.
+     */
+    public enum Format {
+        CSV, JSON_LINES
+    }
+
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final String SELECT_THESES =
+            "SELECT thesis.id, thesis.name, thesis.yearOfPublication, thesis.type, "
+            + "thesis.authorId, student.name, student.surname "
+            + "FROM thesis JOIN student ON thesis.authorId = student.id";
+    private static final String SELECT_STUDENTS = "SELECT id, name, surname FROM student";
+
+    private final DataSource dataSource;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private boolean gzip;
+
+    public RegistryExporter(DataSource dataSource) {
+        if (dataSource == null) {
+            throw new IllegalArgumentException("dataSource is null");
+        }
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Sets number of rows fetched from the database at once.
+     *
+     * @param fetchSize positive number of rows
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize is not positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Sets size of the buffer in which rows are encoded before they are
+     * written to the output.
+     *
+     * @param bufferSize buffer size in bytes, at least 16
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("bufferSize is less than 16");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Sets whether the output is compressed by gzip.
+     *
+     * @param gzip true for gzip, false for plain output
+     */
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * Exports all theses together with names of their authors. The output
+     * is not closed, so more data can be written to it.
+     *
+     * @param out output stream
+     * @param format format of the rows
+     * @return number of exported theses
+     * @throws ServiceFailureException when db operation fails
+     * @throws IOException when writing fails
+     */
+    public long exportTheses(OutputStream out, Format format) throws ServiceFailureException, IOException {
+        if (out == null) {
+            throw new IllegalArgumentException("out is null");
+        }
+        return export(SELECT_THESES, new ThesisRows(format), out, null);
+    }
+
+    /**
+     * Exports all theses together with names of their authors. The channel
+     * is not closed, so more data can be written to it.
+     *
+     * @param channel output channel
+     * @param format format of the rows
+     * @return number of exported theses
+     * @throws ServiceFailureException when db operation fails
+     * @throws IOException when writing fails
+     */
+    public long exportTheses(WritableByteChannel channel, Format format)
+            throws ServiceFailureException, IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("channel is null");
+        }
+        return export(SELECT_THESES, new ThesisRows(format), null, channel);
+    }
+
+    /**
+     * Exports all students. The output is not closed, so more data can be
+     * written to it.
+     *
+     * @param out output stream
+     * @param format format of the rows
+     * @return number of exported students
+     * @throws ServiceFailureException when db operation fails
+     * @throws IOException when writing fails
+     */
+    public long exportStudents(OutputStream out, Format format) throws ServiceFailureException, IOException {
+        if (out == null) {
+            throw new IllegalArgumentException("out is null");
+        }
+        return export(SELECT_STUDENTS, new StudentRows(format), out, null);
+    }
+
+    /**
+     * Exports all students. The channel is not closed, so more data can be
+     * written to it.
+     *
+     * @param channel output channel
+     * @param format format of the rows
+     * @return number of exported students
+     * @throws ServiceFailureException when db operation fails
+     * @throws IOException when writing fails
+     */
+    public long exportStudents(WritableByteChannel channel, Format format)
+            throws ServiceFailureException, IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("channel is null");
+        }
+        return export(SELECT_STUDENTS, new StudentRows(format), null, channel);
+    }
+
+    private long export(String sql, Rows rows, OutputStream out, WritableByteChannel channel)
+            throws ServiceFailureException, IOException {
+        if (rows.format == null) {
+            throw new IllegalArgumentException("format is null");
+        }
+        GZIPOutputStream compressed = null;
+        if (gzip) {
+            compressed = new GZIPOutputStream(out != null ? out : Channels.newOutputStream(channel), bufferSize);
+            out = compressed;
+            channel = null;
+        }
+        Buffer buffer = new Buffer(bufferSize, out, channel);
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = dataSource.getConnection();
+            st = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            st.setFetchSize(fetchSize);
+            rs = st.executeQuery();
+
+            long count = 0;
+            rows.writeHeader(buffer);
+            while (rs.next()) {
+                rows.writeRow(rs, buffer);
+                count++;
+            }
+            buffer.flush();
+            if (compressed != null) {
+                compressed.finish();
+            }
+            return count;
+        } catch (SQLException ex) {
+            throw new ServiceFailureException("Error when exporting rows", ex);
+        } finally {
+            DBUtils.closeQuietly(rs);
+            DBUtils.closeQuietly(conn, st);
+        }
+    }
+
+    /**
+     * Writes rows of one query in one format.
+     */
+    private abstract static class Rows {
+
+        final Format format;
+
+        Rows(Format format) {
+            this.format = format;
+        }
+
+        abstract void writeHeader(Buffer buffer) throws IOException;
+
+        abstract void writeRow(ResultSet rs, Buffer buffer) throws SQLException, IOException;
+    }
+
+    /**
+     * Rows of {@link #SELECT_THESES}.
+     */
+    private static final class ThesisRows extends Rows {
+
+        ThesisRows(Format format) {
+            super(format);
+        }
+
+        @Override
+        void writeHeader(Buffer buffer) throws IOException {
+            if (format == Format.CSV) {
+                buffer.writeAscii("id,name,year,type,authorId,authorName,authorSurname\r\n");
+            }
+        }
+
+        @Override
+        void writeRow(ResultSet rs, Buffer buffer) throws SQLException, IOException {
+            int year = rs.getInt(3);
+            boolean yearIsNull = rs.wasNull();
+            if (format == Format.CSV) {
+                buffer.writeLong(rs.getLong(1));
+                buffer.writeByte(',');
+                buffer.writeCsv(rs.getString(2));
+                buffer.writeByte(',');
+                if (!yearIsNull) {
+                    buffer.writeLong(year);
+                }
+                buffer.writeByte(',');
+                buffer.writeCsv(rs.getString(4));
+                buffer.writeByte(',');
+                buffer.writeLong(rs.getLong(5));
+                buffer.writeByte(',');
+                buffer.writeCsv(rs.getString(6));
+                buffer.writeByte(',');
+                buffer.writeCsv(rs.getString(7));
+                buffer.writeAscii("\r\n");
+            } else {
+                buffer.writeAscii("{\"id\":");
+                buffer.writeLong(rs.getLong(1));
+                buffer.writeAscii(",\"name\":");
+                buffer.writeJson(rs.getString(2));
+                buffer.writeAscii(",\"year\":");
+                if (yearIsNull) {
+                    buffer.writeAscii("null");
+                } else {
+                    buffer.writeLong(year);
+                }
+                buffer.writeAscii(",\"type\":");
+                buffer.writeJson(rs.getString(4));
+                buffer.writeAscii(",\"author\":{\"id\":");
+                buffer.writeLong(rs.getLong(5));
+                buffer.writeAscii(",\"name\":");
+                buffer.writeJson(rs.getString(6));
+                buffer.writeAscii(",\"surname\":");
+                buffer.writeJson(rs.getString(7));
+                buffer.writeAscii("}}\n");
+            }
+        }
+    }
+
+    /**
+     * Rows of {@link #SELECT_STUDENTS}.
+     */
+    private static final class StudentRows extends Rows {
+
+        StudentRows(Format format) {
+            super(format);
+        }
+
+        @Override
+        void writeHeader(Buffer buffer) throws IOException {
+            if (format == Format.CSV) {
+                buffer.writeAscii("id,name,surname\r\n");
+            }
+        }
+
+        @Override
+        void writeRow(ResultSet rs, Buffer buffer) throws SQLException, IOException {
+            if (format == Format.CSV) {
+                buffer.writeLong(rs.getLong(1));
+                buffer.writeByte(',');
+                buffer.writeCsv(rs.getString(2));
+                buffer.writeByte(',');
+                buffer.writeCsv(rs.getString(3));
+                buffer.writeAscii("\r\n");
+            } else {
+                buffer.writeAscii("{\"id\":");
+                buffer.writeLong(rs.getLong(1));
+                buffer.writeAscii(",\"name\":");
+                buffer.writeJson(rs.getString(2));
+                buffer.writeAscii(",\"surname\":");
+                buffer.writeJson(rs.getString(3));
+                buffer.writeAscii("}\n");
+            }
+        }
+    }
+
+    /**
+     * Byte buffer which encodes values to UTF-8 and writes itself to the
+     * output when it is full.
+     */
+    private static final class Buffer {
+
+        private static final String HEX = "0123456789abcdef";
+
+        private final byte[] bytes;
+        private final ByteBuffer wrapped;
+        private final OutputStream out;
+        private final WritableByteChannel channel;
+        private int position;
+
+        Buffer(int size, OutputStream out, WritableByteChannel channel) {
+            this.bytes = new byte[size];
+            this.wrapped = ByteBuffer.wrap(bytes);
+            this.out = out;
+            this.channel = channel;
+        }
+
+        void flush() throws IOException {
+            if (out != null) {
+                out.write(bytes, 0, position);
+            } else {
+                wrapped.clear().limit(position);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            }
+            position = 0;
+        }
+
+        private void ensure(int count) throws IOException {
+            if (position + count > bytes.length) {
+                flush();
+            }
+        }
+
+        void writeByte(char c) throws IOException {
+            ensure(1);
+            bytes[position++] = (byte) c;
+        }
+
+        /** Writes text which is known to be ASCII, e.g. names of enum constants. */
+        void writeAscii(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                writeByte(text.charAt(i));
+            }
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(20);
+            if (value == Long.MIN_VALUE) {
+                writeAscii("-9223372036854775808");
+                return;
+            }
+            if (value < 0) {
+                bytes[position++] = '-';
+                value = -value;
+            }
+            int end = position + digits(value);
+            for (int i = end - 1; i >= position; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            position = end;
+        }
+
+        private static int digits(long value) {
+            int digits = 1;
+            while (value >= 10) {
+                value /= 10;
+                digits++;
+            }
+            return digits;
+        }
+
+        /** Writes text as CSV field, quoted only if it is needed. */
+        void writeCsv(String text) throws IOException {
+            if (text == null) {
+                return;
+            }
+            boolean quoted = false;
+            for (int i = 0; i < text.length() && !quoted; i++) {
+                char c = text.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quoted) {
+                writeUtf8(text);
+                return;
+            }
+            writeByte('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    writeByte('"');
+                }
+                i = writeChar(text, i);
+            }
+            writeByte('"');
+        }
+
+        /** Writes text as JSON string including quotes, null as JSON null. */
+        void writeJson(String text) throws IOException {
+            if (text == null) {
+                writeAscii("null");
+                return;
+            }
+            writeByte('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    writeByte('\\');
+                    writeByte(c);
+                } else if (c == '\n') {
+                    writeAscii("\\n");
+                } else if (c == '\r') {
+                    writeAscii("\\r");
+                } else if (c == '\t') {
+                    writeAscii("\\t");
+                } else if (c < 0x20) {
+                    ensure(6);
+                    writeAscii("\\u00");
+                    bytes[position++] = (byte) HEX.charAt(c >> 4);
+                    bytes[position++] = (byte) HEX.charAt(c & 0xf);
+                } else {
+                    i = writeChar(text, i);
+                }
+            }
+            writeByte('"');
+        }
+
+        private void writeUtf8(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                i = writeChar(text, i);
+            }
+        }
+
+        /**
+         * Encodes character at given index, surrogate pair is encoded as
+         * one code point.
+         *
+         * @return index of the last encoded character
+         */
+        private int writeChar(String text, int index) throws IOException {
+            ensure(4);
+            char c = text.charAt(index);
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xc0 | c >> 6);
+                bytes[position++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && index + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(index + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++index));
+                bytes[position++] = (byte) (0xf0 | codePoint >> 18);
+                bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                bytes[position++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate can not be encoded
+                bytes[position++] = '?';
+            } else {
+                bytes[position++] = (byte) (0xe0 | c >> 12);
+                bytes[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                bytes[position++] = (byte) (0x80 | c & 0x3f);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of RegistryExporter writing all theses to a stream which only
+ * counts bytes. Besides exports per second, the megabytes counter reports
+ * throughput in MB/s of the written, i.e. possibly compressed, data.
+ * Heap of the forked JVM must hold the in-memory database, the export
+ * itself needs only its buffer.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RegistryExporterBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"CSV", "JSON_LINES"})
+    public RegistryExporter.Format format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private BenchmarkDatabase db;
+    private RegistryExporter exporter;
+
+    /**
+     * Bytes written by the exports, reported by JMH as rate per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Written {
+
+        public double megabytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, ServiceFailureException {
+        db = new BenchmarkDatabase("export-bench", rows);
+        exporter = new RegistryExporter(db.dataSource);
+        exporter.setGzip(gzip);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.drop();
+    }
+
+    @Benchmark
+    public long exportTheses(Written written) throws ServiceFailureException, IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        long count = exporter.exportTheses(out, format);
+        written.megabytes += out.count / (1024.0 * 1024.0);
+        return count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for RegistryExporter.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class RegistryExporterTest {
+
+    private DataSource dataSource;
+    private StudentManagerImpl studentManager;
+    private ThesisManagerImpl thesisManager;
+    private RegistryExporter exporter;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = prepareDataSource();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(dataSource);
+        thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(dataSource);
+        exporter = new RegistryExporter(dataSource);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    private static DataSource prepareDataSource() throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:thesismgr-test");
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+
+    @Test
+    public void exportThesesToCsv() throws ServiceFailureException, IOException {
+        Student author = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(author);
+        Thesis thesis = ThesisManagerImplTest.newThesis("Java, \"the\" language", Type.PHD, 2012, author);
+        thesisManager.createThesis(thesis);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1, exporter.exportTheses(out, RegistryExporter.Format.CSV));
+
+        assertEquals("id,name,year,type,authorId,authorName,authorSurname\r\n"
+                + thesis.getId() + ",\"Java, \"\"the\"\" language\",2012,PHD,"
+                + author.getId() + ",Joshua,Bloch\r\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void exportThesesToJsonLines() throws ServiceFailureException, IOException {
+        Student author = newStudent("Kristina", "Miklasova");
+        studentManager.createStudent(author);
+        Thesis thesis = ThesisManagerImplTest.newThesis("Line\nbreak \\ \"quoted\" \ud83d\ude00", Type.MASTER, 2013, author);
+        thesisManager.createThesis(thesis);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.setBufferSize(16);
+        assertEquals(1, exporter.exportTheses(Channels.newChannel(out), RegistryExporter.Format.JSON_LINES));
+
+        assertEquals("{\"id\":" + thesis.getId() + ",\"name\":\"Line\\nbreak \\\\ \\\"quoted\\\" \ud83d\ude00\","
+                + "\"year\":2013,\"type\":\"MASTER\",\"author\":{\"id\":" + author.getId()
+                + ",\"name\":\"Kristina\",\"surname\":\"Miklasova\"}}\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void exportThesesWithMissingValues() throws Exception {
+        Student author = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(author);
+        long id;
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement st = conn.prepareStatement(
+                        "INSERT INTO thesis (authorId) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+            st.setLong(1, author.getId());
+            st.executeUpdate();
+            id = DBUtils.getId(st.getGeneratedKeys());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.exportTheses(out, RegistryExporter.Format.CSV);
+        assertEquals("id,name,year,type,authorId,authorName,authorSurname\r\n"
+                + id + ",,,," + author.getId() + ",Joshua,Bloch\r\n", out.toString("UTF-8"));
+
+        out.reset();
+        exporter.exportTheses(out, RegistryExporter.Format.JSON_LINES);
+        assertEquals("{\"id\":" + id + ",\"name\":null,\"year\":null,\"type\":null,"
+                + "\"author\":{\"id\":" + author.getId() + ",\"name\":\"Joshua\",\"surname\":\"Bloch\"}}\n",
+                out.toString("UTF-8"));
+    }
+
+    @Test
+    public void exportStudentsCompressed() throws ServiceFailureException, IOException {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            students.add(newStudent("Joshua", "Bloch"));
+        }
+        studentManager.createStudents(students);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.setGzip(true);
+        exporter.setBufferSize(100);
+        assertEquals(1000, exporter.exportStudents(out, RegistryExporter.Format.CSV));
+
+        String[] lines = read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))).split("\r\n");
+        assertEquals(1001, lines.length);
+        assertEquals("id,name,surname", lines[0]);
+        assertTrue(lines[1000].matches("\\d+,Joshua,Bloch"));
+    }
+
+    @Test
+    public void exportEmptyTable() throws ServiceFailureException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, exporter.exportStudents(out, RegistryExporter.Format.JSON_LINES));
+        assertEquals(0, out.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void exportWithNullFormat() throws ServiceFailureException, IOException {
+        exporter.exportStudents(new ByteArrayOutputStream(), null);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read; (read = in.read(buffer)) >= 0;) {
+            result.write(buffer, 0, read);
+        }
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+
+        return student;
+    }
+}
@@ -0,0 +1,765 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import ThesisManCommon.UncheckedServiceFailureException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+
+/**
+ * Imports students and theses from CSV dumps with the columns written by
+ * {@link RegistryExporter}. The import runs as a pipeline of stages
+ * connected by bounded queues:
+ * <ol>
+ * <li>read - the calling thread splits the input into chunks of rows,</li>
+ * <li>parse - worker threads parse the chunks, resolve authors and check
+ * the rows by {@link EntityValidator},</li>
+ * <li>write - writer threads store the chunks by batched inserts of the
+ * managers, one transaction per chunk.</li>
+ * </ol>
+ * A stage which is faster than the next one waits for space in the queue,
+ * so memory used by the import is limited by the size and number of
+ * queued chunks, whatever the size of the input is. Invalid rows are
+ * skipped; a chunk which fails as a whole is skipped too and the import
+ * continues. Both are listed in the returned {@link ImportReport}. Other
+ * failures of a worker thread, e.g. an Error, stop the whole import: the
+ * other stages drop their queued chunks, and the failure is thrown to the
+ * caller.
+ * <p>
+ * The id column of the student dump is a key of the student in the dump;
+ * it is not stored, generated ids are used instead. Theses refer to their
+ * authors by this key in the authorId column. Thesis with empty authorId
+ * belongs to the student with the same authorName and authorSurname, if
+ * there is exactly one such. Keys are remembered by the importer, so
+ * students must be imported by the same importer before their theses.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class RegistryImporter {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int DEFAULT_QUEUE_CAPACITY = 4;
+    private static final int DEFAULT_MAX_REPORTED_FAILURES = 1000;
+
+    /** Id of the name shared by more students. */
+    private static final long AMBIGUOUS = -1;
+
+    private final StudentManagerImpl studentManager = new StudentManagerImpl();
+    private final ThesisManagerImpl thesisManager = new ThesisManagerImpl();
+    private final Map<String, Long> studentsByKey = new ConcurrentHashMap<>();
+    private final Map<String, Long> studentsByName = new ConcurrentHashMap<>();
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+    private int writerThreads = 1;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int maxReportedFailures = DEFAULT_MAX_REPORTED_FAILURES;
+
+    public RegistryImporter(DataSource dataSource) {
+        if (dataSource == null) {
+            throw new IllegalArgumentException("dataSource is null");
+        }
+        studentManager.setDataSource(dataSource);
+        thesisManager.setDataSource(dataSource);
+    }
+
+    /**
+     * Sets number of rows in one chunk. Chunk is parsed by one thread and
+     * stored in one transaction.
+     *
+     * @param chunkSize positive number of rows
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize is not positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets number of threads parsing and validating chunks. Default is the
+     * number of available processors.
+     *
+     * @param parserThreads positive number of threads
+     */
+    public void setParserThreads(int parserThreads) {
+        if (parserThreads <= 0) {
+            throw new IllegalArgumentException("parserThreads is not positive");
+        }
+        this.parserThreads = parserThreads;
+    }
+
+    /**
+     * Sets number of threads storing chunks into the database. Batched
+     * inserts of the managers lock the table, so more writers help only
+     * when they wait for the database rather than for each other.
+     *
+     * @param writerThreads positive number of threads
+     */
+    public void setWriterThreads(int writerThreads) {
+        if (writerThreads <= 0) {
+            throw new IllegalArgumentException("writerThreads is not positive");
+        }
+        this.writerThreads = writerThreads;
+    }
+
+    /**
+     * Sets number of chunks which can wait in front of every stage.
+     *
+     * @param queueCapacity positive number of chunks
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity is not positive");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Sets how many invalid rows and failed chunks are reported with their
+     * reasons, the others are only counted.
+     *
+     * @param maxReportedFailures non-negative number of failures
+     */
+    public void setMaxReportedFailures(int maxReportedFailures) {
+        if (maxReportedFailures < 0) {
+            throw new IllegalArgumentException("maxReportedFailures is negative");
+        }
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    /**
+     * Makes students already stored in the database known as authors, so
+     * theses can refer to them by authorName and authorSurname.
+     *
+     * @throws ServiceFailureException when db operation fails
+     */
+    public void addExistingStudents() throws ServiceFailureException {
+        try (Stream<Student> students = studentManager.streamAllStudents(chunkSize)) {
+            students.forEach(student -> addName(student));
+        } catch (UncheckedServiceFailureException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Imports students from CSV with header containing columns name and
+     * surname, optionally id.
+     *
+     * @param in input, it is not closed
+     * @return report of the import
+     * @throws IOException when reading of the input fails, or the header
+     * lacks some column
+     * @throws ServiceFailureException when the import is interrupted or a
+     * worker thread fails
+     */
+    public ImportReport importStudents(Reader in) throws IOException, ServiceFailureException {
+        return run(in, new StudentRows());
+    }
+
+    /**
+     * Imports theses from CSV with header containing columns name, year and
+     * type, and either authorId or authorName and authorSurname.
+     *
+     * @param in input, it is not closed
+     * @return report of the import
+     * @throws IOException when reading of the input fails, or the header
+     * lacks some column
+     * @throws ServiceFailureException when the import is interrupted or a
+     * worker thread fails
+     */
+    public ImportReport importTheses(Reader in) throws IOException, ServiceFailureException {
+        // one batch per chunk, so a failed chunk leaves nothing behind
+        thesisManager.setBatchSize(chunkSize);
+        return run(in, new ThesisRows());
+    }
+
+    private <T> ImportReport run(Reader in, Rows<T> rows) throws IOException, ServiceFailureException {
+        if (in == null) {
+            throw new IllegalArgumentException("in is null");
+        }
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport(maxReportedFailures);
+        ImportReport.Stage read = report.addStage("read", 1);
+        ImportReport.Stage parse = report.addStage("parse", parserThreads);
+        ImportReport.Stage write = report.addStage("write", writerThreads);
+
+        CsvReader reader = new CsvReader(in);
+        String[] header = reader.readHeader();
+        if (header == null) {
+            return report;
+        }
+        int[] columns = rows.columns(header);
+
+        final BlockingQueue<Chunk> parseQueue = new ArrayBlockingQueue<>(queueCapacity);
+        final BlockingQueue<Parsed<T>> writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        final Parsed<T> end = new Parsed<>(null, null);
+        final AtomicInteger runningParsers = new AtomicInteger(parserThreads);
+        // the first failure of a worker, it stops all stages
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parserThreads + writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "registry-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < parserThreads; i++) {
+            workers.add(executor.submit(() -> {
+                try {
+                    parseChunks(rows, header.length, columns, parseQueue, writeQueue, report, parse, failure);
+                } finally {
+                    if (runningParsers.decrementAndGet() == 0) {
+                        for (int w = 0; w < writerThreads; w++) {
+                            writeQueue.put(end);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < writerThreads; i++) {
+            workers.add(executor.submit(() -> {
+                writeChunks(rows, writeQueue, end, report, write, failure);
+                return null;
+            }));
+        }
+
+        IOException readFailure = null;
+        try {
+            try {
+                while (failure.get() == null) {
+                    long started = System.nanoTime();
+                    Chunk chunk = reader.readChunk(chunkSize);
+                    if (chunk == null) {
+                        break;
+                    }
+                    long parsed = System.nanoTime();
+                    read.busy(parsed - started, chunk.rowCount);
+                    parseQueue.put(chunk);
+                    read.waited(System.nanoTime() - parsed);
+                }
+            } catch (IOException ex) {
+                // rows read so far are still imported
+                readFailure = ex;
+            } finally {
+                for (int i = 0; i < parserThreads; i++) {
+                    parseQueue.put(Chunk.END);
+                }
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceFailureException("Import was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new ServiceFailureException("Import failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        Throwable workerFailure = failure.get();
+        if (workerFailure instanceof Error) {
+            throw (Error) workerFailure;
+        } else if (workerFailure != null) {
+            throw new ServiceFailureException("Import failed", workerFailure);
+        }
+        if (readFailure != null) {
+            throw readFailure;
+        }
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    private <T> void parseChunks(Rows<T> rows, int fieldCount, int[] columns, BlockingQueue<Chunk> in,
+            BlockingQueue<Parsed<T>> out, ImportReport report, ImportReport.Stage stage,
+            AtomicReference<Throwable> failure) throws InterruptedException {
+        while (true) {
+            long waitStarted = System.nanoTime();
+            Chunk chunk = in.take();
+            long started = System.nanoTime();
+            stage.waited(started - waitStarted);
+            if (chunk == Chunk.END) {
+                return;
+            }
+            if (failure.get() != null) {
+                // chunks are dropped, so the reader does not wait
+                continue;
+            }
+            try {
+                Parsed<T> parsed;
+                try {
+                    parsed = parse(rows, fieldCount, columns, chunk, report);
+                } catch (RuntimeException ex) {
+                    report.failedChunk(chunk.firstLine, chunk.rowCount, String.valueOf(ex));
+                    stage.busy(System.nanoTime() - started, 0);
+                    continue;
+                }
+                long done = System.nanoTime();
+                stage.busy(done - started, parsed.entities.size());
+                if (!parsed.entities.isEmpty()) {
+                    out.put(parsed);
+                    stage.waited(System.nanoTime() - done);
+                }
+            } catch (InterruptedException ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                fail(failure, ex);
+            }
+        }
+    }
+
+    /**
+     * Parses rows of the chunk, drops and reports the rows which can not be
+     * parsed or which break validation rules.
+     */
+    private <T> Parsed<T> parse(Rows<T> rows, int fieldCount, int[] columns, Chunk chunk,
+            ImportReport report) {
+        List<T> entities = new ArrayList<>(chunk.rowCount);
+        List<Integer> lines = new ArrayList<>(chunk.rowCount);
+        CsvParser parser = new CsvParser(chunk.text, chunk.firstLine);
+        String[] values = new String[columns.length];
+        List<String> fields = new ArrayList<>();
+        while (parser.next(fields)) {
+            if (fields.size() != fieldCount) {
+                report.invalidRow(parser.line, "expected " + fieldCount
+                        + " fields, found " + fields.size());
+                continue;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                String value = columns[i] < 0 ? null : fields.get(columns[i]);
+                values[i] = value == null || value.isEmpty() ? null : value;
+            }
+            try {
+                entities.add(rows.parse(values));
+                lines.add(parser.line);
+            } catch (IllegalArgumentException ex) {
+                report.invalidRow(parser.line, ex.getMessage());
+            }
+        }
+
+        ValidationReport validation = rows.validate(entities);
+        if (validation.isValid()) {
+            return new Parsed<>(entities, lines);
+        }
+        BitSet invalid = new BitSet(entities.size());
+        for (int i = 0; i < validation.size(); i++) {
+            int index = validation.getIndex(i);
+            if (!invalid.get(index)) {
+                invalid.set(index);
+                rows.dropped(entities.get(index));
+                report.invalidRow(lines.get(index), validation.getViolation(i).getMessage());
+            }
+        }
+        List<T> valid = new ArrayList<>(entities.size() - invalid.cardinality());
+        List<Integer> validLines = new ArrayList<>(valid.size());
+        for (int i = invalid.nextClearBit(0); i < entities.size(); i = invalid.nextClearBit(i + 1)) {
+            valid.add(entities.get(i));
+            validLines.add(lines.get(i));
+        }
+        return new Parsed<>(valid, validLines);
+    }
+
+    private <T> void writeChunks(Rows<T> rows, BlockingQueue<Parsed<T>> in, Parsed<T> end,
+            ImportReport report, ImportReport.Stage stage, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        while (true) {
+            long waitStarted = System.nanoTime();
+            Parsed<T> parsed = in.take();
+            long started = System.nanoTime();
+            stage.waited(started - waitStarted);
+            if (parsed == end) {
+                return;
+            }
+            if (failure.get() != null) {
+                // chunks are dropped, so the parsers do not wait
+                continue;
+            }
+            try {
+                rows.write(parsed.entities);
+                stage.busy(System.nanoTime() - started, parsed.entities.size());
+            } catch (ServiceFailureException | RuntimeException ex) {
+                report.failedChunk(parsed.lines.get(0), parsed.entities.size(), String.valueOf(ex));
+                stage.busy(System.nanoTime() - started, 0);
+            } catch (Throwable ex) {
+                fail(failure, ex);
+            }
+        }
+    }
+
+    /**
+     * Records failure of a worker, which stops the import.
+     */
+    private static void fail(AtomicReference<Throwable> failure, Throwable ex) {
+        if (!failure.compareAndSet(null, ex) && failure.get() != ex) {
+            failure.get().addSuppressed(ex);
+        }
+    }
+
+    private void addName(Student student) {
+        studentsByName.merge(nameKey(student.getName(), student.getSurname()), student.getId(),
+                (id1, id2) -> AMBIGUOUS);
+    }
+
+    private static String nameKey(String name, String surname) {
+        return name + '\t' + surname;
+    }
+
+    /**
+     * Parses, validates and stores rows of one entity type.
+     */
+    private abstract static class Rows<T> {
+
+        private final String[] names;
+        private final boolean[] required;
+
+        Rows(String[] names, boolean[] required) {
+            this.names = names;
+            this.required = required;
+        }
+
+        /**
+         * Returns positions of the columns in the header, -1 for missing
+         * optional column.
+         */
+        int[] columns(String[] header) throws IOException {
+            int[] result = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                result[i] = -1;
+                for (int h = 0; h < header.length; h++) {
+                    if (header[h].trim().equalsIgnoreCase(names[i])) {
+                        result[i] = h;
+                    }
+                }
+                if (result[i] < 0 && required[i]) {
+                    throw new IOException("Column " + names[i] + " is missing in the header");
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Creates entity from values of the columns, empty values are null.
+         *
+         * @throws IllegalArgumentException with the reason when the row is
+         * invalid
+         */
+        abstract T parse(String[] values);
+
+        abstract ValidationReport validate(List<T> entities);
+
+        /**
+         * Called for parsed entity which is not stored, because it breaks
+         * validation rules.
+         */
+        void dropped(T entity) {
+        }
+
+        abstract void write(List<T> entities) throws ServiceFailureException;
+    }
+
+    private final class StudentRows extends Rows<Student> {
+
+        /** Keys of parsed students from the id column until they are stored. */
+        private final Map<Student, String> keys = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        StudentRows() {
+            super(new String[]{"id", "name", "surname"}, new boolean[]{false, true, true});
+        }
+
+        @Override
+        Student parse(String[] values) {
+            Student student = new Student();
+            student.setName(values[1]);
+            student.setSurname(values[2]);
+            if (values[0] != null) {
+                keys.put(student, values[0]);
+            }
+            return student;
+        }
+
+        @Override
+        ValidationReport validate(List<Student> entities) {
+            return EntityValidator.INSTANCE.validateStudents(entities);
+        }
+
+        @Override
+        void dropped(Student student) {
+            keys.remove(student);
+        }
+
+        @Override
+        void write(List<Student> entities) throws ServiceFailureException {
+            try {
+                studentManager.createStudents(entities);
+            } catch (ServiceFailureException | RuntimeException ex) {
+                for (Student student : entities) {
+                    keys.remove(student);
+                }
+                throw ex;
+            }
+            for (Student student : entities) {
+                String key = keys.remove(student);
+                if (key != null) {
+                    studentsByKey.put(key, student.getId());
+                }
+                addName(student);
+            }
+        }
+    }
+
+    private final class ThesisRows extends Rows<Thesis> {
+
+        ThesisRows() {
+            super(new String[]{"name", "year", "type", "authorId", "authorName", "authorSurname"},
+                    new boolean[]{true, true, true, false, false, false});
+        }
+
+        @Override
+        Thesis parse(String[] values) {
+            Thesis thesis = new Thesis();
+            thesis.setName(values[0]);
+            if (values[1] == null) {
+                throw new IllegalArgumentException("year is missing");
+            }
+            try {
+                thesis.setYear(Integer.parseInt(values[1].trim()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("year " + values[1] + " is not a number");
+            }
+            try {
+                thesis.setType(values[2] == null ? null : Type.valueOf(values[2].trim()));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("type " + values[2] + " is unknown");
+            }
+            thesis.setAuthor(author(values[3], values[4], values[5]));
+            return thesis;
+        }
+
+        private Student author(String key, String name, String surname) {
+            Long id;
+            if (key != null) {
+                id = studentsByKey.get(key);
+                if (id == null) {
+                    throw new IllegalArgumentException("author " + key + " was not imported");
+                }
+            } else {
+                id = studentsByName.get(nameKey(name, surname));
+                if (id == null) {
+                    throw new IllegalArgumentException("author " + name + " " + surname + " is unknown");
+                }
+                if (id == AMBIGUOUS) {
+                    throw new IllegalArgumentException("author " + name + " " + surname + " is ambiguous");
+                }
+            }
+            Student author = new Student();
+            author.setId(id);
+            author.setName(name);
+            author.setSurname(surname);
+            return author;
+        }
+
+        @Override
+        ValidationReport validate(List<Thesis> entities) {
+            return EntityValidator.INSTANCE.validateTheses(entities);
+        }
+
+        @Override
+        void write(List<Thesis> entities) throws ServiceFailureException {
+            thesisManager.createTheses(entities);
+        }
+    }
+
+    /**
+     * Raw text of consecutive rows of the input.
+     */
+    private static final class Chunk {
+
+        static final Chunk END = new Chunk(null, 0, 0);
+
+        private final String text;
+        private final int firstLine;
+        private final int rowCount;
+
+        Chunk(String text, int firstLine, int rowCount) {
+            this.text = text;
+            this.firstLine = firstLine;
+            this.rowCount = rowCount;
+        }
+    }
+
+    /**
+     * Valid entities of one chunk together with their lines.
+     */
+    private static final class Parsed<T> {
+
+        private final List<T> entities;
+        private final List<Integer> lines;
+
+        Parsed(List<T> entities, List<Integer> lines) {
+            this.entities = entities;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Splits the input into chunks of whole rows. Only quotes are tracked,
+     * so line breaks inside quoted fields do not end rows; fields are
+     * parsed later by {@link CsvParser}.
+     */
+    private static final class CsvReader {
+
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private int line = 1;
+        private final StringBuilder text = new StringBuilder();
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        String[] readHeader() throws IOException {
+            Chunk chunk = readChunk(1);
+            if (chunk == null) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            new CsvParser(chunk.text, chunk.firstLine).next(fields);
+            return fields.toArray(new String[fields.size()]);
+        }
+
+        /**
+         * Reads at most given number of rows. Empty lines before the first
+         * row are skipped, later ones are kept in the text of the chunk.
+         *
+         * @return chunk or null at the end of input
+         */
+        Chunk readChunk(int maxRows) throws IOException {
+            text.setLength(0);
+            int firstLine = -1;
+            int rows = 0;
+            boolean quoted = false;
+            boolean emptyRow = true;
+            while (rows < maxRows) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit < 0) {
+                        limit = 0;
+                        if (!emptyRow) {
+                            text.append('\n');
+                            rows++;
+                        }
+                        break;
+                    }
+                }
+                char c = buffer[position++];
+                if (c == '\n') {
+                    line++;
+                    if (!quoted) {
+                        if (!emptyRow) {
+                            text.append(c);
+                            rows++;
+                            emptyRow = true;
+                        } else if (firstLine >= 0) {
+                            // kept so the parser counts lines of later rows
+                            text.append(c);
+                        }
+                        continue;
+                    }
+                } else if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == '\r' && !quoted) {
+                    continue;
+                }
+                if (emptyRow) {
+                    emptyRow = false;
+                    if (firstLine < 0) {
+                        firstLine = line;
+                    }
+                }
+                text.append(c);
+            }
+            return rows == 0 ? null : new Chunk(text.toString(), firstLine, rows);
+        }
+    }
+
+    /**
+     * Parses fields of rows of one chunk by RFC 4180. Every row ends with
+     * line feed, empty lines between rows are skipped.
+     */
+    private static final class CsvParser {
+
+        private final String text;
+        private int position;
+        private int nextLine;
+        /** Line of the last parsed row. */
+        private int line;
+        private final StringBuilder field = new StringBuilder();
+
+        CsvParser(String text, int firstLine) {
+            this.text = text;
+            this.nextLine = firstLine;
+        }
+
+        boolean next(List<String> fields) {
+            fields.clear();
+            while (position < text.length() && text.charAt(position) == '\n') {
+                position++;
+                nextLine++;
+            }
+            if (position >= text.length()) {
+                return false;
+            }
+            line = nextLine;
+            boolean quoted = false;
+            field.setLength(0);
+            while (true) {
+                char c = text.charAt(position++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (position < text.length() && text.charAt(position) == '"') {
+                            field.append(c);
+                            position++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            nextLine++;
+                        }
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    nextLine++;
+                    fields.add(field.toString());
+                    return true;
+                } else {
+                    field.append(c);
+                }
+            }
+        }
+    }
+}
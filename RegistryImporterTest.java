@@ -0,0 +1,217 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for RegistryImporter.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class RegistryImporterTest {
+
+    private DataSource dataSource;
+    private StudentManagerImpl studentManager;
+    private ThesisManagerImpl thesisManager;
+    private RegistryImporter importer;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = prepareDataSource();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(dataSource);
+        thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(dataSource);
+        importer = new RegistryImporter(dataSource);
+        importer.setChunkSize(10);
+        importer.setParserThreads(3);
+        importer.setQueueCapacity(1);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    private static DataSource prepareDataSource() throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:thesismgr-test");
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+
+    @Test
+    public void importStudentsAndTheses() throws Exception {
+        StringBuilder students = new StringBuilder("id,name,surname\r\n");
+        StringBuilder theses = new StringBuilder("name,year,type,authorId\n");
+        for (int i = 0; i < 95; i++) {
+            students.append("s").append(i).append(",Joshua,Bloch\r\n");
+            theses.append("\"Java, part ").append(i).append("\",2012,PHD,s").append(i % 5).append('\n');
+        }
+
+        ImportReport studentReport = importer.importStudents(new StringReader(students.toString()));
+        assertEquals(95, studentReport.getRowCount());
+        assertEquals(95, studentReport.getImportedCount());
+        assertEquals(95, studentManager.findAllStudents().size());
+
+        ImportReport thesisReport = importer.importTheses(new StringReader(theses.toString()));
+        assertEquals(95, thesisReport.getImportedCount());
+        assertEquals(0, thesisReport.getInvalidRowCount());
+        assertEquals(3, thesisReport.getStages().size());
+
+        Student first = studentManager.findAllStudents().get(0);
+        List<Thesis> firstTheses = thesisManager.getThesesForStudent(first);
+        assertEquals(19, firstTheses.size());
+        assertTrue(firstTheses.get(0).getName().startsWith("Java, part "));
+    }
+
+    @Test
+    public void exportedRegistryCanBeImported() throws Exception {
+        Student author = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(author);
+        thesisManager.createThesis(ThesisManagerImplTest.newThesis("Line\nbreak \"quoted\"", Type.PHD, 2012, author));
+
+        RegistryExporter exporter = new RegistryExporter(dataSource);
+        ByteArrayOutputStream students = new ByteArrayOutputStream();
+        exporter.exportStudents(students, RegistryExporter.Format.CSV);
+        ByteArrayOutputStream theses = new ByteArrayOutputStream();
+        exporter.exportTheses(theses, RegistryExporter.Format.CSV);
+
+        assertEquals(1, importer.importStudents(new StringReader(students.toString("UTF-8"))).getImportedCount());
+        assertEquals(1, importer.importTheses(new StringReader(theses.toString("UTF-8"))).getImportedCount());
+
+        assertEquals(2, thesisManager.getAllTheses().size());
+        for (Thesis thesis : thesisManager.getAllTheses()) {
+            assertEquals("Line\nbreak \"quoted\"", thesis.getName());
+        }
+    }
+
+    @Test
+    public void invalidRowsAreSkipped() throws Exception {
+        importer.importStudents(new StringReader("name,surname\nJoshua,Bloch\nMartin,Fowler\nMartin,Fowler\n"));
+
+        ImportReport report = importer.importTheses(new StringReader(
+                "name,year,type,authorName,authorSurname\n"
+                + "Java,2012,PHD,Joshua,Bloch\n"
+                + "Refactoring,year,PHD,Joshua,Bloch\n"
+                + "Refactoring,1999,DIPLOMA,Joshua,Bloch\n"
+                + "Refactoring,1999,PHD,Martin,Fowler\n"
+                + "Refactoring,1999,PHD,Kent,Beck\n"
+                + ",1999,PHD,Joshua,Bloch\n"
+                + "Refactoring,1999\n"
+                + "\n"
+                + "Patterns,2002,MASTER,Joshua,Bloch\n"));
+
+        assertEquals(8, report.getRowCount());
+        assertEquals(2, report.getImportedCount());
+        assertEquals(6, report.getInvalidRowCount());
+        List<String> failures = new ArrayList<>();
+        for (ImportReport.Failure failure : report.getInvalidRows()) {
+            failures.add(failure.toString());
+        }
+        assertTrue(failures.contains("line 3: year year is not a number"));
+        assertTrue(failures.contains("line 4: type DIPLOMA is unknown"));
+        assertTrue(failures.contains("line 5: author Martin Fowler is ambiguous"));
+        assertTrue(failures.contains("line 6: author Kent Beck is unknown"));
+        assertTrue(failures.contains("line 7: thesis name is null"));
+        assertTrue(failures.contains("line 8: expected 5 fields, found 2"));
+    }
+
+    @Test
+    public void linesAfterEmptyLinesAreCounted() throws Exception {
+        importer.importStudents(new StringReader("name,surname\nJoshua,Bloch\n"));
+
+        ImportReport report = importer.importTheses(new StringReader(
+                "name,year,type,authorName,authorSurname\n"
+                + "Java,2012,PHD,Joshua,Bloch\n"
+                + "\n"
+                + "Refactoring,year,PHD,Joshua,Bloch\n"
+                + "\r\n"
+                + "\n"
+                + "Refactoring,1999,DIPLOMA,Joshua,Bloch\n"
+                + "\n"));
+
+        assertEquals(3, report.getRowCount());
+        assertEquals(1, report.getImportedCount());
+        assertEquals(2, report.getInvalidRowCount());
+        assertEquals("line 4: year year is not a number", report.getInvalidRows().get(0).toString());
+        assertEquals("line 7: type DIPLOMA is unknown", report.getInvalidRows().get(1).toString());
+    }
+
+    @Test
+    public void failedChunkIsSkipped() throws Exception {
+        importer.importStudents(new StringReader("id,name,surname\n1,Joshua,Bloch\n2,Martin,Fowler\n"));
+        Student fowler = studentManager.findAllStudents().get(1);
+        studentManager.deleteStudent(fowler);
+
+        StringBuilder theses = new StringBuilder("name,year,type,authorId\n");
+        for (int i = 0; i < 30; i++) {
+            theses.append("Java,2012,PHD,").append(i >= 10 && i < 20 ? 2 : 1).append('\n');
+        }
+        ImportReport report = importer.importTheses(new StringReader(theses.toString()));
+
+        assertEquals(20, report.getImportedCount());
+        assertEquals(1, report.getFailedChunkCount());
+        assertEquals(10, report.getFailedChunkRowCount());
+        assertEquals(12, report.getFailedChunks().get(0).getLine());
+        assertEquals(20, thesisManager.getAllTheses().size());
+    }
+
+    @Test(timeout = 30000)
+    public void errorOfWriterStopsImport() throws Exception {
+        final Error error = new Error("writer failed");
+        DataSource failing = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        throw error;
+                    }
+                    try {
+                        return method.invoke(dataSource, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+        importer = new RegistryImporter(failing);
+        importer.setChunkSize(1);
+        importer.setQueueCapacity(1);
+        StringBuilder students = new StringBuilder("id,name,surname\n");
+        for (int i = 0; i < 100; i++) {
+            students.append(i).append(",Joshua,Bloch\n");
+        }
+
+        try {
+            importer.importStudents(new StringReader(students.toString()));
+            fail("Error expected");
+        } catch (Error ex) {
+            assertSame(error, ex);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void missingColumn() throws IOException, ServiceFailureException {
+        importer.importStudents(new StringReader("id,name\n1,Joshua\n"));
+    }
+
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+
+        return student;
+    }
+}
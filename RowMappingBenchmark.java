@@ -0,0 +1,74 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of row mapping helpers in isolation. Result sets are opened
+ * once and stay positioned on one row, which is mapped repeatedly.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RowMappingBenchmark {
+    
+    private BenchmarkDatabase db;
+    private Connection connection;
+    private PreparedStatement studentStatement;
+    private PreparedStatement thesisStatement;
+    private ResultSet studentRow;
+    private ResultSet thesisRow;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, ServiceFailureException {
+        db = new BenchmarkDatabase("mapping-bench", 10);
+        connection = db.dataSource.getConnection();
+        
+        studentStatement = connection.prepareStatement("SELECT id, name, surname, version FROM student");
+        studentRow = studentStatement.executeQuery();
+        studentRow.next();
+        
+        thesisStatement = connection.prepareStatement(ThesisManagerImpl.SELECT_THESIS_WITH_AUTHOR);
+        thesisRow = thesisStatement.executeQuery();
+        thesisRow.next();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        studentStatement.close();
+        thesisStatement.close();
+        connection.close();
+        db.drop();
+    }
+    
+    @Benchmark
+    public Student resultSetToStudent() throws SQLException {
+        return db.studentManager.resultSetToStudent(studentRow);
+    }
+    
+    @Benchmark
+    public Thesis resultToThesis() throws SQLException {
+        return db.thesisManager.resultToThesis(thesisRow, new StudentIdentityMap());
+    }
+}
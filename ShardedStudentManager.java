@@ -0,0 +1,184 @@
+package ThesisMan;
+
+import ThesisManCommon.IllegalEntityException;
+import ThesisManCommon.ServiceFailureException;
+import ThesisManCommon.UncheckedServiceFailureException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * StudentManager of students spread across {@link Shards}. New students are
+ * placed on the shards in turns; every other operation with a student goes
+ * directly to the shard given by the student's id. Queries of all students
+ * are run on all shards.
+ * <p>
+ * Writes of several students in one call are committed on every shard
+ * separately, so when some shard fails, students on the other shards may
+ * be created nevertheless; they keep their ids then. Students which get id
+ * outside of the range of their shard are rolled back and 
+ * IllegalStateException is thrown.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ShardedStudentManager implements StudentManager {
+
+    private final Shards shards;
+    private final StudentManagerImpl[] managers;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public ShardedStudentManager(Shards shards) {
+        if (shards == null) {
+            throw new IllegalArgumentException("shards is null");
+        }
+        this.shards = shards;
+        this.managers = new StudentManagerImpl[shards.size()];
+        for (int i = 0; i < managers.length; i++) {
+            managers[i] = new StudentManagerImpl();
+            managers[i].setDataSource(shards.getDataSource(i));
+        }
+    }
+
+    @Override
+    public void createStudent(Student student) throws ServiceFailureException {
+        EntityValidator.INSTANCE.validate(student);
+        if (student.getId() != null) {
+            throw new IllegalEntityException("student id is already set");
+        }
+        shards.ensureIdsPrepared();
+        createOn(Math.floorMod(nextShard.getAndIncrement(), managers.length),
+                Collections.singletonList(student));
+    }
+
+    /**
+     * Creates students in parallel on all shards; consecutive students are
+     * placed on consecutive shards.
+     */
+    @Override
+    public void createStudents(Collection<Student> students) throws ServiceFailureException {
+        if (students == null) {
+            throw new IllegalArgumentException("students is null");
+        }
+        for (Student student : students) {
+            EntityValidator.INSTANCE.validate(student);
+            if (student.getId() != null) {
+                throw new IllegalEntityException("student id is already set");
+            }
+        }
+
+        shards.ensureIdsPrepared();
+        final List<List<Student>> parts = new ArrayList<>(managers.length);
+        List<Integer> used = new ArrayList<>(managers.length);
+        for (int i = 0; i < managers.length; i++) {
+            parts.add(new ArrayList<Student>());
+        }
+        int shard = Math.floorMod(nextShard.getAndAdd(students.size()), managers.length);
+        for (Student student : students) {
+            parts.get(shard).add(student);
+            shard = (shard + 1) % managers.length;
+        }
+        for (int i = 0; i < managers.length; i++) {
+            if (!parts.get(i).isEmpty()) {
+                used.add(i);
+            }
+        }
+        shards.on(used, s -> {
+            createOn(s, parts.get(s));
+            return null;
+        });
+    }
+
+    /**
+     * Creates students on given shard in one transaction, which is rolled
+     * back when some of them gets id of other shard.
+     */
+    private void createOn(int shard, Collection<Student> students) throws ServiceFailureException {
+        StudentManagerImpl manager = managers[shard];
+        try {
+            manager.getTransactionManager().inTransaction(() -> {
+                manager.createStudents(students);
+                for (Student student : students) {
+                    shards.checkGeneratedId(shard, student.getId());
+                }
+                return null;
+            });
+        } catch (SQLException ex) {
+            throw new ServiceFailureException("Error when creating students on shard " + shard, ex);
+        }
+    }
+
+    @Override
+    public void updateStudent(Student student) throws ServiceFailureException {
+        EntityValidator.INSTANCE.validate(student);
+        managers[shardOf(student)].updateStudent(student);
+    }
+
+    @Override
+    public void deleteStudent(Student student) throws ServiceFailureException {
+        if (student == null) {
+            throw new IllegalArgumentException("student is null");
+        }
+        managers[shardOf(student)].deleteStudent(student);
+    }
+
+    @Override
+    public Student getStudentById(Long id) throws ServiceFailureException {
+        if (id == null) {
+            throw new IllegalArgumentException("id is null");
+        }
+        int shard = shards.shardOf(id);
+        return shard < 0 ? null : managers[shard].getStudentById(id);
+    }
+
+    /**
+     * Returns students of all shards, which are queried in parallel. Students
+     * are ordered by shards.
+     */
+    @Override
+    public List<Student> findAllStudents() throws ServiceFailureException {
+        List<List<Student>> parts = shards.onAll(s -> managers[s].findAllStudents());
+        int size = 0;
+        for (List<Student> part : parts) {
+            size += part.size();
+        }
+        List<Student> result = new ArrayList<>(size);
+        for (List<Student> part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    /**
+     * Streams students of one shard after another, so at most one shard
+     * holds an open cursor at a time.
+     */
+    @Override
+    public Stream<Student> streamAllStudents(final int fetchSize) throws ServiceFailureException {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize is negative");
+        }
+        return IntStream.range(0, managers.length).boxed().flatMap(s -> {
+            try {
+                return managers[s].streamAllStudents(fetchSize);
+            } catch (ServiceFailureException ex) {
+                throw new UncheckedServiceFailureException(ex);
+            }
+        });
+    }
+
+    private int shardOf(Student student) {
+        if (student.getId() == null) {
+            throw new IllegalEntityException("student id is null");
+        }
+        int shard = shards.shardOf(student.getId());
+        if (shard < 0) {
+            throw new IllegalEntityException("student id " + student.getId() + " belongs to no shard");
+        }
+        return shard;
+    }
+}
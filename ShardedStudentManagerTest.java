@@ -0,0 +1,190 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.IllegalEntityException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ShardedStudentManager and id ranges of Shards.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ShardedStudentManagerTest {
+
+    private List<DataSource> dataSources;
+    private Shards shards;
+    private ShardedStudentManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        dataSources = prepareShards(3);
+        shards = new Shards(dataSources);
+        shards.prepareIds();
+        manager = new ShardedStudentManager(shards);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        shards.close();
+        dropShards(dataSources);
+    }
+
+    static List<DataSource> prepareShards(int count) throws SQLException {
+        List<DataSource> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            EmbeddedDataSource ds = new EmbeddedDataSource();
+            ds.setDatabaseName("memory:thesismgr-shard" + i);
+            ds.setCreateDatabase("create");
+            DBUtils.executeSqlScript(ds, ThesisManager.class.getResource("createTables.sql"));
+            result.add(ds);
+        }
+        return result;
+    }
+
+    static void dropShards(List<DataSource> dataSources) throws SQLException {
+        for (DataSource ds : dataSources) {
+            DBUtils.executeSqlScript(ds, ThesisManager.class.getResource("dropTables.sql"));
+        }
+    }
+
+    @Test
+    public void studentsAreSpreadAcrossShards() throws Exception {
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            students.add(newStudent("Joshua", "Bloch"));
+        }
+        manager.createStudents(students.subList(0, 6));
+        manager.createStudent(students.get(6));
+
+        int[] perShard = new int[3];
+        for (Student student : students) {
+            perShard[shards.shardOf(student.getId())]++;
+            assertEquals(student, manager.getStudentById(student.getId()));
+        }
+        assertArrayEquals(new int[]{3, 2, 2}, perShard);
+        assertEquals(7, manager.findAllStudents().size());
+        try (Stream<Student> stream = manager.streamAllStudents(2)) {
+            assertEquals(7, stream.collect(Collectors.toList()).size());
+        }
+    }
+
+    @Test
+    public void pointOperationsGoToShardOfStudent() throws Exception {
+        Student first = newStudent("Joshua", "Bloch");
+        Student second = newStudent("Martin", "Fowler");
+        manager.createStudents(Arrays.asList(first, second));
+        assertEquals(1, shards.shardOf(second.getId()));
+        assertEquals(Shards.ID_RANGE + 1, (long) second.getId());
+
+        second.setName("Kent");
+        manager.updateStudent(second);
+        assertEquals("Kent", manager.getStudentById(second.getId()).getName());
+        manager.deleteStudent(second);
+        assertNull(manager.getStudentById(second.getId()));
+        assertEquals(first, manager.getStudentById(first.getId()));
+        assertNull(manager.getStudentById(10 * Shards.ID_RANGE));
+    }
+
+    @Test
+    public void preparedIdsAreKept() throws Exception {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudents(Arrays.asList(newStudent("Joshua", "Bloch"), student));
+        shards.prepareIds();
+        Student next = newStudent("Martin", "Fowler");
+        // the turn of shard 1 comes third
+        manager.createStudents(Arrays.asList(newStudent("Joshua", "Bloch"),
+                newStudent("Joshua", "Bloch"), next));
+        assertEquals(student.getId() + 1, (long) next.getId());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shardsInOtherOrder() throws Exception {
+        manager.createStudents(Arrays.asList(newStudent("Joshua", "Bloch"), newStudent("Martin", "Fowler")));
+        try (Shards swapped = new Shards(Arrays.asList(dataSources.get(1), dataSources.get(0)))) {
+            swapped.prepareIds();
+        }
+    }
+
+    @Test
+    public void idsArePreparedBeforeFirstWrite() throws Exception {
+        dropShards(dataSources);
+        dataSources = prepareShards(3);
+        try (Shards fresh = new Shards(dataSources)) {
+            ShardedStudentManager freshManager = new ShardedStudentManager(fresh);
+            Student first = newStudent("Joshua", "Bloch");
+            Student second = newStudent("Martin", "Fowler");
+            freshManager.createStudents(Arrays.asList(first, second));
+            assertEquals(0, fresh.shardOf(first.getId()));
+            assertEquals(1, fresh.shardOf(second.getId()));
+        }
+    }
+
+    @Test
+    public void idOfOtherShardIsRejected() throws Exception {
+        manager.createStudents(Arrays.asList(newStudent("Joshua", "Bloch"),
+                newStudent("Martin", "Fowler"), newStudent("Kent", "Beck")));
+        try (Connection conn = dataSources.get(1).getConnection();
+                Statement st = conn.createStatement()) {
+            st.execute("ALTER TABLE STUDENT ALTER COLUMN id RESTART WITH 1000");
+        }
+        Student student = newStudent("Kent", "Beck");
+        // the turn of shard 1 comes second
+        try {
+            manager.createStudents(Arrays.asList(newStudent("Joshua", "Bloch"), student));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        try (Connection conn = dataSources.get(1).getConnection();
+                Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM STUDENT")) {
+            rs.next();
+            assertEquals(1, rs.getLong(1));
+        }
+    }
+
+    @Test
+    public void firstShardIsCalledInCallingThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        assertEquals(Arrays.asList(true, false, false),
+                shards.onAll(shard -> Thread.currentThread() == caller));
+
+        try {
+            shards.onAll(shard -> {
+                throw new IllegalStateException("shard " + shard);
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            assertEquals("shard 0", ex.getMessage());
+            assertEquals(2, ex.getSuppressed().length);
+        }
+    }
+
+    @Test(expected = IllegalEntityException.class)
+    public void updateStudentOfNoShard() throws Exception {
+        Student student = newStudent("Joshua", "Bloch");
+        student.setId(5 * Shards.ID_RANGE);
+        manager.updateStudent(student);
+    }
+
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+        return student;
+    }
+}
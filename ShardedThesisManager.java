@@ -0,0 +1,269 @@
+package ThesisMan;
+
+import ThesisManCommon.IllegalEntityException;
+import ThesisManCommon.ServiceFailureException;
+import java.util.ArrayList;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ThesisManager of theses spread across {@link Shards}. Every thesis is
+ * stored on the shard of its author, so theses of one student are always
+ * on one shard and the author can not be changed to a student of other
+ * shard. Operations with one thesis or with theses of one student go
+ * directly to their shard, other queries are run on all shards in
+ * parallel and their results are merged.
+ * <p>
+ * Writes of several theses in one call are committed on every shard
+ * separately, like in {@link ShardedStudentManager}, and theses which get
+ * id outside of the range of their shard are rolled back as well.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ShardedThesisManager implements ThesisManager {
+
+    private final Shards shards;
+    private final ThesisManagerImpl[] managers;
+
+    public ShardedThesisManager(Shards shards) {
+        if (shards == null) {
+            throw new IllegalArgumentException("shards is null");
+        }
+        this.shards = shards;
+        this.managers = new ThesisManagerImpl[shards.size()];
+        for (int i = 0; i < managers.length; i++) {
+            managers[i] = new ThesisManagerImpl();
+            managers[i].setDataSource(shards.getDataSource(i));
+        }
+    }
+
+    @Override
+    public void createThesis(Thesis thesis) throws ServiceFailureException {
+        EntityValidator.INSTANCE.validate(thesis);
+        if (thesis.getId() != null) {
+            throw new IllegalEntityException("thesis id is already set");
+        }
+        shards.ensureIdsPrepared();
+        createOn(authorShard(thesis), Collections.singletonList(thesis));
+    }
+
+    /**
+     * Creates theses in parallel on the shards of their authors.
+     */
+    @Override
+    public void createTheses(Collection<Thesis> theses) throws ServiceFailureException {
+        if (theses == null) {
+            throw new IllegalArgumentException("theses is null");
+        }
+        final List<List<Thesis>> parts = new ArrayList<>(managers.length);
+        for (int i = 0; i < managers.length; i++) {
+            parts.add(new ArrayList<Thesis>());
+        }
+        Set<Integer> used = new TreeSet<>();
+        for (Thesis thesis : theses) {
+            EntityValidator.INSTANCE.validate(thesis);
+            if (thesis.getId() != null) {
+                throw new IllegalEntityException("thesis id is already set");
+            }
+            int shard = authorShard(thesis);
+            parts.get(shard).add(thesis);
+            used.add(shard);
+        }
+        shards.ensureIdsPrepared();
+        shards.on(used, s -> {
+            createOn(s, parts.get(s));
+            return null;
+        });
+    }
+
+    /**
+     * Creates theses on given shard in one transaction, which is rolled
+     * back when some of them gets id of other shard.
+     */
+    private void createOn(int shard, Collection<Thesis> theses) throws ServiceFailureException {
+        ThesisManagerImpl manager = managers[shard];
+        try {
+            manager.getTransactionManager().inTransaction(() -> {
+                manager.createTheses(theses);
+                for (Thesis thesis : theses) {
+                    shards.checkGeneratedId(shard, thesis.getId());
+                }
+                return null;
+            });
+        } catch (SQLException ex) {
+            throw new ServiceFailureException("Error when creating theses on shard " + shard, ex);
+        }
+    }
+
+    @Override
+    public void updateThesis(Thesis thesis) throws ServiceFailureException {
+        EntityValidator.INSTANCE.validate(thesis);
+        int shard = shardOf(thesis);
+        if (authorShard(thesis) != shard) {
+            throw new IllegalEntityException("author " + thesis.getAuthor()
+                    + " is on other shard than thesis " + thesis);
+        }
+        managers[shard].updateThesis(thesis);
+    }
+
+    @Override
+    public void deleteThesis(Thesis thesis) throws ServiceFailureException {
+        if (thesis == null) {
+            throw new IllegalArgumentException("thesis is null");
+        }
+        managers[shardOf(thesis)].deleteThesis(thesis);
+    }
+
+    @Override
+    public Thesis getThesisById(Long id) throws ServiceFailureException {
+        if (id == null) {
+            throw new IllegalArgumentException("id is null");
+        }
+        int shard = shards.shardOf(id);
+        return shard < 0 ? null : managers[shard].getThesisById(id);
+    }
+
+    @Override
+    public List<Thesis> getThesesForStudent(Student student) throws ServiceFailureException {
+        if (student == null) {
+            throw new IllegalArgumentException("student is null");
+        }
+        if (student.getId() == null) {
+            throw new IllegalEntityException("student id is null");
+        }
+        int shard = shards.shardOf(student.getId());
+        return shard < 0 ? new ArrayList<Thesis>() : managers[shard].getThesesForStudent(student);
+    }
+
+    /**
+     * Returns theses of all shards, which are queried in parallel. Theses
+     * are ordered by shards.
+     */
+    @Override
+    public List<Thesis> getAllTheses() throws ServiceFailureException {
+        return concat(shards.onAll(s -> managers[s].getAllTheses()));
+    }
+
+    /**
+     * Searches theses on the shards which can hold them, i.e. on the shards
+     * of given authors or on all shards, in parallel. Every shard returns
+     * its first offset + limit theses in the requested order; they are
+     * merged and the requested page is cut out of them.
+     */
+    @Override
+    public List<Thesis> findTheses(ThesisQuery query) throws ServiceFailureException {
+        if (query == null) {
+            throw new IllegalArgumentException("query is null");
+        }
+        Set<Integer> targets = new TreeSet<>();
+        if (query.getAuthorIds() != null) {
+            for (Long authorId : query.getAuthorIds()) {
+                int shard = shards.shardOf(authorId);
+                if (shard >= 0) {
+                    targets.add(shard);
+                }
+            }
+        } else {
+            for (int i = 0; i < managers.length; i++) {
+                targets.add(i);
+            }
+        }
+        if (targets.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (targets.size() == 1) {
+            return managers[targets.iterator().next()].findTheses(query);
+        }
+
+        final ThesisQuery shardQuery = copy(query);
+        shardQuery.setOffset(0);
+        if (query.getLimit() != null) {
+            shardQuery.setLimit((int) Math.min(Integer.MAX_VALUE, (long) query.getOffset() + query.getLimit()));
+        }
+        List<Thesis> merged = concat(shards.on(targets, s -> managers[s].findTheses(shardQuery)));
+        // the parts are sorted already, so sorting merges them
+        merged.sort(order(query));
+        int from = Math.min(query.getOffset(), merged.size());
+        int to = query.getLimit() == null ? merged.size()
+                : (int) Math.min(merged.size(), (long) from + query.getLimit());
+        return new ArrayList<>(merged.subList(from, to));
+    }
+
+    private static ThesisQuery copy(ThesisQuery query) {
+        ThesisQuery result = new ThesisQuery();
+        result.setTypes(query.getTypes());
+        result.setYearFrom(query.getYearFrom());
+        result.setYearTo(query.getYearTo());
+        result.setAuthorIds(query.getAuthorIds());
+        result.setNameContains(query.getNameContains());
+        result.setIdFrom(query.getIdFrom());
+        result.setSortBy(query.getSortBy(), query.isAscending());
+        result.setOffset(query.getOffset());
+        result.setLimit(query.getLimit());
+        return result;
+    }
+
+    /**
+     * Returns the order in which the database returns theses for given
+     * query, i.e. by the sort attribute and then by id.
+     */
+    private static Comparator<Thesis> order(ThesisQuery query) {
+        Comparator<Thesis> byId = Comparator.comparing(Thesis::getId);
+        Comparator<Thesis> result;
+        switch (query.getSortBy()) {
+            case NAME:
+                result = Comparator.comparing(Thesis::getName).thenComparing(byId);
+                break;
+            case YEAR:
+                result = Comparator.comparingInt(Thesis::getYear).thenComparing(byId);
+                break;
+            case TYPE:
+                result = Comparator.comparing((Thesis thesis) -> thesis.getType().toString())
+                        .thenComparing(byId);
+                break;
+            default:
+                result = byId;
+        }
+        return query.isAscending() ? result : result.reversed();
+    }
+
+    private static List<Thesis> concat(List<List<Thesis>> parts) {
+        int size = 0;
+        for (List<Thesis> part : parts) {
+            size += part.size();
+        }
+        List<Thesis> result = new ArrayList<>(size);
+        for (List<Thesis> part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    private int shardOf(Thesis thesis) {
+        if (thesis.getId() == null) {
+            throw new IllegalEntityException("thesis id is null");
+        }
+        int shard = shards.shardOf(thesis.getId());
+        if (shard < 0) {
+            throw new IllegalEntityException("thesis id " + thesis.getId() + " belongs to no shard");
+        }
+        return shard;
+    }
+
+    private int authorShard(Thesis thesis) {
+        Long authorId = thesis.getAuthor().getId();
+        if (authorId == null) {
+            throw new IllegalEntityException("author id is null");
+        }
+        int shard = shards.shardOf(authorId);
+        if (shard < 0) {
+            throw new IllegalEntityException("author id " + authorId + " belongs to no shard");
+        }
+        return shard;
+    }
+}
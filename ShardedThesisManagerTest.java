@@ -0,0 +1,103 @@
+package ThesisMan;
+
+import ThesisManCommon.IllegalEntityException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ShardedThesisManager.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ShardedThesisManagerTest {
+
+    private List<DataSource> dataSources;
+    private Shards shards;
+    private ShardedStudentManager studentManager;
+    private ShardedThesisManager thesisManager;
+    private List<Student> authors;
+
+    @Before
+    public void setUp() throws Exception {
+        dataSources = ShardedStudentManagerTest.prepareShards(3);
+        shards = new Shards(dataSources);
+        shards.prepareIds();
+        studentManager = new ShardedStudentManager(shards);
+        thesisManager = new ShardedThesisManager(shards);
+        authors = new ArrayList<>();
+        for (String surname : new String[]{"Bloch", "Fowler", "Beck"}) {
+            Student author = new Student();
+            author.setName("Joshua");
+            author.setSurname(surname);
+            authors.add(author);
+        }
+        studentManager.createStudents(authors);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        shards.close();
+        ShardedStudentManagerTest.dropShards(dataSources);
+    }
+
+    @Test
+    public void thesesAreStoredWithTheirAuthors() throws Exception {
+        List<Thesis> theses = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            theses.add(ThesisManagerImplTest.newThesis("Thesis " + i, Type.PHD, 2000 + i, authors.get(i % 3)));
+        }
+        thesisManager.createTheses(theses);
+
+        for (Thesis thesis : theses) {
+            assertEquals(shards.shardOf(thesis.getAuthor().getId()), shards.shardOf(thesis.getId()));
+            assertEquals(thesis, thesisManager.getThesisById(thesis.getId()));
+        }
+        assertEquals(3, thesisManager.getThesesForStudent(authors.get(1)).size());
+        assertEquals(9, thesisManager.getAllTheses().size());
+
+        Thesis thesis = theses.get(4);
+        thesis.setName("Refactoring");
+        thesisManager.updateThesis(thesis);
+        assertEquals("Refactoring", thesisManager.getThesisById(thesis.getId()).getName());
+        thesisManager.deleteThesis(thesis);
+        assertNull(thesisManager.getThesisById(thesis.getId()));
+    }
+
+    @Test
+    public void findThesesMergesShards() throws Exception {
+        List<Thesis> theses = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            theses.add(ThesisManagerImplTest.newThesis("Thesis " + i, Type.PHD, 2000 + i, authors.get(i % 3)));
+        }
+        thesisManager.createTheses(theses);
+
+        ThesisQuery query = new ThesisQuery();
+        query.setSortBy(ThesisQuery.SortBy.YEAR, false);
+        query.setOffset(2);
+        query.setLimit(4);
+        List<Thesis> found = thesisManager.findTheses(query);
+        assertEquals(Arrays.asList(theses.get(6), theses.get(5), theses.get(4), theses.get(3)), found);
+
+        query = new ThesisQuery();
+        query.setAuthorIds(Arrays.asList(authors.get(0).getId(), authors.get(2).getId()));
+        query.setSortBy(ThesisQuery.SortBy.NAME, true);
+        query.setLimit(3);
+        found = thesisManager.findTheses(query);
+        assertEquals(Arrays.asList(theses.get(0), theses.get(2), theses.get(3)), found);
+    }
+
+    @Test(expected = IllegalEntityException.class)
+    public void authorCanNotMoveToOtherShard() throws Exception {
+        Thesis thesis = ThesisManagerImplTest.newThesis("Java", Type.PHD, 2012, authors.get(0));
+        thesisManager.createThesis(thesis);
+        thesis.setAuthor(authors.get(1));
+        thesisManager.updateThesis(thesis);
+    }
+}
@@ -0,0 +1,237 @@
+package ThesisMan;
+
+import ThesisManCommon.DatabaseExecutor;
+import ThesisManCommon.ServiceFailureException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Databases which together hold the registry for
+ * {@link ShardedStudentManager} and {@link ShardedThesisManager}. Every
+ * database, a shard, has the same tables and holds a part of the students
+ * together with all their theses.
+ * <p>
+ * Shards generate ids from disjoint ranges: ids of students and theses of
+ * shard i lie between i * {@link #ID_RANGE} + 1 and (i + 1) * ID_RANGE, so
+ * the shard of every entity is given by its id. The ranges are set by
+ * {@link #prepareIds()}, which the managers call before their first write
+ * unless it was called already. Shards must always be given in the same
+ * order.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public final class Shards implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(
+            Shards.class.getName());
+
+    /** Number of ids available to one shard. */
+    public static final long ID_RANGE = 1L << 40;
+
+    private static final String[] TABLES = {"STUDENT", "THESIS"};
+
+    /**
+     * Call run on one shard.
+     *
+     * @param <T> type of the result
+     */
+    interface ShardCall<T> {
+
+        T call(int shard) throws ServiceFailureException;
+    }
+
+    private final List<DataSource> dataSources;
+    private final DatabaseExecutor executor;
+    private volatile boolean idsPrepared;
+
+    /**
+     * Creates shards of given databases. Calls on all shards run in
+     * parallel, one thread per shard.
+     *
+     * @param dataSources data sources of the shards, shard i is the i-th one
+     */
+    public Shards(List<DataSource> dataSources) {
+        if (dataSources == null || dataSources.isEmpty()) {
+            throw new IllegalArgumentException("dataSources are empty");
+        }
+        if (dataSources.contains(null)) {
+            throw new IllegalArgumentException("dataSources contain null");
+        }
+        this.dataSources = Collections.unmodifiableList(new ArrayList<>(dataSources));
+        this.executor = new DatabaseExecutor(dataSources.size());
+    }
+
+    public int size() {
+        return dataSources.size();
+    }
+
+    public DataSource getDataSource(int shard) {
+        return dataSources.get(shard);
+    }
+
+    /**
+     * Returns shard which generated given id.
+     *
+     * @param id id of student or thesis
+     * @return index of the shard, or -1 when the id belongs to no shard
+     */
+    public int shardOf(long id) {
+        if (id <= 0) {
+            return -1;
+        }
+        long shard = (id - 1) / ID_RANGE;
+        return shard < dataSources.size() ? (int) shard : -1;
+    }
+
+    /**
+     * Makes every shard generate ids from its range. Shards which already
+     * do are left as they are, so it is safe to call this method every time
+     * the application starts.
+     *
+     * @throws ServiceFailureException when db operation fails
+     * @throws IllegalStateException when a shard holds ids of other shard,
+     * e.g. when shards are given in other order than before
+     */
+    public synchronized void prepareIds() throws ServiceFailureException {
+        for (int shard = 0; shard < dataSources.size(); shard++) {
+            long first = shard * ID_RANGE + 1;
+            try (Connection conn = dataSources.get(shard).getConnection();
+                    Statement st = conn.createStatement()) {
+                for (String table : TABLES) {
+                    long next;
+                    try (ResultSet rs = st.executeQuery(
+                            "VALUES SYSCS_UTIL.SYSCS_PEEK_AT_IDENTITY(CURRENT SCHEMA, '" + table + "')")) {
+                        rs.next();
+                        next = rs.getLong(1);
+                    }
+                    if (next >= first && next <= first + ID_RANGE - 1) {
+                        continue;
+                    }
+                    if (next > first) {
+                        throw new IllegalStateException("Ids of " + table + " in shard " + shard
+                                + " are beyond its range, next id is " + next);
+                    }
+                    try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                        rs.next();
+                        if (rs.getLong(1) > 0) {
+                            throw new IllegalStateException(table + " in shard " + shard
+                                    + " holds ids of other shard");
+                        }
+                    }
+                    // the constant can not be given as a parameter
+                    st.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + first);
+                    logger.log(Level.INFO, "Ids of {0} in shard {1} start at {2}",
+                            new Object[]{table, shard, Long.toString(first)});
+                }
+            } catch (SQLException ex) {
+                throw new ServiceFailureException("Error when preparing ids of shard " + shard, ex);
+            }
+        }
+        idsPrepared = true;
+    }
+
+    /**
+     * Calls {@link #prepareIds()} unless it succeeded already.
+     */
+    void ensureIdsPrepared() throws ServiceFailureException {
+        if (!idsPrepared) {
+            prepareIds();
+        }
+    }
+
+    /**
+     * Checks that given id, generated by given shard, lies in its range.
+     *
+     * @throws IllegalStateException when the id belongs to other shard, 
+     * e.g. when ids of the shard were restarted after they were prepared
+     */
+    void checkGeneratedId(int shard, long id) {
+        if (shardOf(id) != shard) {
+            throw new IllegalStateException("Shard " + shard + " generated id " + id
+                    + " outside of its range");
+        }
+    }
+
+    /**
+     * Runs given call on all shards in parallel.
+     *
+     * @return results in the order of the shards
+     */
+    <T> List<T> onAll(ShardCall<T> call) throws ServiceFailureException {
+        Integer[] all = new Integer[dataSources.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        return on(Arrays.asList(all), call);
+    }
+
+    /**
+     * Runs given call on given shards in parallel, the first shard is run in
+     * the calling thread. All calls are finished before a failure is thrown.
+     *
+     * @return results in the order of given shards
+     */
+    <T> List<T> on(Collection<Integer> shards, final ShardCall<T> call) throws ServiceFailureException {
+        List<T> results = new ArrayList<>(shards.size());
+        if (shards.size() == 1) {
+            results.add(call.call(shards.iterator().next()));
+            return results;
+        }
+
+        Iterator<Integer> iterator = shards.iterator();
+        int first = iterator.next();
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size() - 1);
+        while (iterator.hasNext()) {
+            final int shard = iterator.next();
+            futures.add(executor.submit(() -> call.call(shard)));
+        }
+        Throwable failure = null;
+        try {
+            results.add(call.call(first));
+        } catch (ServiceFailureException | RuntimeException | Error ex) {
+            failure = ex;
+        }
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause();
+                } else {
+                    failure.addSuppressed(ex.getCause());
+                }
+            }
+        }
+        if (failure instanceof ServiceFailureException) {
+            throw (ServiceFailureException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new ServiceFailureException("Call on shards failed", failure);
+        }
+        return results;
+    }
+
+    /**
+     * Stops threads running calls on the shards.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
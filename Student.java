@@ -13,6 +13,7 @@ public class Student {
     private Long id;
     private String name;
     private String surname;
+    private int version;
     
     public Long getId() {
         return id;
@@ -37,6 +38,21 @@ public class Student {
     public void setSurname(String surname) {
         this.surname = surname;
     }
+
+    /**
+     * Returns version of the entity in the database. Version is increased
+     * by every update, so entity with older version than the database row
+     * is stale.
+     * 
+     * @return version of the entity
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
     
     @Override
     public String toString() {
@@ -0,0 +1,94 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares rows per second of {@link StudentManager#createStudents} with 
+ * the loop calling {@link StudentManager#createStudent} for every student.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StudentBulkInsertBenchmark {
+    
+    private static final int ROWS = 1000;
+    
+    @Param({"100", "1000"})
+    public int batchSize;
+    
+    private EmbeddedDataSource dataSource;
+    private StudentManagerImpl manager;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("memory:thesismgr-bench");
+        dataSource.setCreateDatabase("create");
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        
+        manager = new StudentManagerImpl();
+        manager.setDataSource(dataSource);
+        manager.setBatchSize(batchSize);
+    }
+    
+    @TearDown(Level.Iteration)
+    public void clearTables() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void createStudentLoop() throws ServiceFailureException {
+        for (Student student : newStudents()) {
+            manager.createStudent(student);
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void createStudents() throws ServiceFailureException {
+        manager.createStudents(newStudents());
+    }
+    
+    private static List<Student> newStudents() {
+        List<Student> students = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Student student = new Student();
+            student.setName("Joshua");
+            student.setSurname("Bloch");
+            students.add(student);
+        }
+        return students;
+    }
+}
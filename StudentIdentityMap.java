@@ -0,0 +1,68 @@
+package ThesisMan;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Identity map which makes sure that one student is represented by one 
+ * Student instance. It is used when theses are loaded, so theses of the 
+ * same author share one author instance instead of holding their own copies.
+ * <p>
+ * When the stored student differs from the row read from the database, 
+ * new instance is created and replaces the stored one, so the map never 
+ * returns stale data, not even when the stored instance was changed by its
+ * user. Returned instances are shared and should not be modified; 
+ * modifications are visible to every holder of the instance until it is 
+ * replaced. This implementation is not thread-safe, it should be
+ * used by one query or by one thread only. Use {@link WeakStudentIdentityMap}
+ * when the map is shared.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class StudentIdentityMap {
+    
+    private final Map<Long, Student> students = new HashMap<>();
+    
+    /**
+     * Returns student instance for given data. The same instance is returned
+     * for the same id as long as all its fields are equal to given data.
+     * 
+     * @param id id of the student
+     * @param version version of the student
+     * @param name name of the student
+     * @param surname surname of the student
+     * @return canonical student instance
+     */
+    public Student resolve(long id, int version, String name, String surname) {
+        Student student = get(id);
+        if (student == null || student.getVersion() != version
+                || !Objects.equals(student.getName(), name)
+                || !Objects.equals(student.getSurname(), surname)) {
+            student = new Student();
+            student.setId(id);
+            student.setName(name);
+            student.setSurname(surname);
+            student.setVersion(version);
+            put(id, student);
+        }
+        return student;
+    }
+    
+    /**
+     * Returns number of students in the map.
+     * 
+     * @return number of students
+     */
+    public int size() {
+        return students.size();
+    }
+    
+    protected Student get(long id) {
+        return students.get(id);
+    }
+    
+    protected void put(long id, Student student) {
+        students.put(id, student);
+    }
+}
@@ -1,7 +1,9 @@
 package ThesisMan;
 
 import ThesisManCommon.ServiceFailureException;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface for student manager.
@@ -21,20 +23,39 @@ public interface StudentManager {
     void createStudent(Student student) throws ServiceFailureException;
     
     /**
-     * Updates student in database.
+     * Stores all given students into database in one transaction. All students
+     * are validated before anything is stored, so either all of them are 
+     * created or none. Generated ids are stored into id attribute of each 
+     * student.
+     * 
+     * @param students students to be created
+     * @throws ServiceFailureException when db operation fails.
+     * @throws IllegalArgumentException when students is null, contains null, 
+     * or some student has already assigned id.
+     */
+    void createStudents(Collection<Student> students) throws ServiceFailureException;
+    
+    /**
+     * Updates student in database. Version of the student must match the version
+     * in database, it is increased by the update.
      * 
      * @param student updated student to be stored into database.
      * @throws ServiceFailureException when db operation fails.
      * @throws IllegalArgumentException when student is null, or student has null id.
+     * @throws ThesisManCommon.OptimisticLockException when the student was changed
+     * in database after it had been loaded.
      */
     void updateStudent(Student student) throws ServiceFailureException;
     
     /**
-     * Deletes student from database. 
+     * Deletes student from database. Version of the student must match the version
+     * in database.
      * 
      * @param student student to be deleted from db.
      * @throws ServiceFailureException when db operation fails.
      * @throws IllegalArgumentException when student is null, or student has null id.
+     * @throws ThesisManCommon.OptimisticLockException when the student was changed
+     * in database after it had been loaded.
      */
     void deleteStudent(Student student) throws ServiceFailureException;
     
@@ -55,4 +76,20 @@ public interface StudentManager {
      * @throws ServiceFailureException when db operation fails.
      */
     List<Student> findAllStudents() throws ServiceFailureException;
+    
+    /**
+     * Returns all students in the database as a lazily populated stream. Rows
+     * are read from an open database cursor while the stream is consumed, so 
+     * the whole table is never held in memory. The stream must be closed
+     * (preferably by try-with-resources) to release the underlying connection.
+     * Errors during reading are reported by 
+     * {@link ThesisManCommon.UncheckedServiceFailureException}.
+     * 
+     * @param fetchSize number of rows fetched from the database at once, 
+     * zero leaves the choice to the JDBC driver.
+     * @return stream of all students in database.
+     * @throws ServiceFailureException when db operation fails.
+     * @throws IllegalArgumentException when fetchSize is negative.
+     */
+    Stream<Student> streamAllStudents(int fetchSize) throws ServiceFailureException;
 }
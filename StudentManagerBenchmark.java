@@ -0,0 +1,141 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of StudentManagerImpl operations on in-memory Derby with given
+ * number of rows in the tables. Students deleted by the delete benchmark are
+ * created before every iteration by {@link DeleteTargets}, which only the
+ * delete benchmark uses, so the tables of the other benchmarks do not grow.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StudentManagerBenchmark {
+    
+    static final int DELETE_BATCH = 1000;
+    
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+    
+    private BenchmarkDatabase db;
+    private StudentManagerImpl manager;
+    private final Random random = new Random(42);
+    private final List<Student> created = new ArrayList<>();
+    
+    /**
+     * Students deleted by one iteration of {@link #deleteStudent(DeleteTargets)},
+     * the iteration runs exactly {@link #DELETE_BATCH} deletes.
+     */
+    @State(Scope.Benchmark)
+    public static class DeleteTargets {
+        
+        private final List<Student> students = new ArrayList<>();
+        private int next;
+        
+        @Setup(Level.Iteration)
+        public void createStudents(StudentManagerBenchmark benchmark) throws ServiceFailureException {
+            students.clear();
+            for (int i = 0; i < DELETE_BATCH; i++) {
+                students.add(BenchmarkDatabase.newStudent("Martin", "Fowler"));
+            }
+            benchmark.manager.createStudents(students);
+            next = 0;
+        }
+        
+        @TearDown(Level.Iteration)
+        public void deleteRest(StudentManagerBenchmark benchmark) throws ServiceFailureException {
+            for (; next < students.size(); next++) {
+                benchmark.manager.deleteStudent(students.get(next));
+            }
+        }
+        
+        Student next() {
+            return students.get(next++);
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, ServiceFailureException {
+        db = new BenchmarkDatabase("student-bench", rows);
+        manager = db.studentManager;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.drop();
+    }
+    
+    @TearDown(Level.Iteration)
+    public void deleteCreated() throws ServiceFailureException {
+        for (Student student : created) {
+            manager.deleteStudent(student);
+        }
+        created.clear();
+    }
+    
+    @Benchmark
+    public Student createStudent() throws ServiceFailureException {
+        Student student = BenchmarkDatabase.newStudent("Kent", "Beck");
+        manager.createStudent(student);
+        created.add(student);
+        return student;
+    }
+    
+    @Benchmark
+    public Student getStudentById() throws ServiceFailureException {
+        return manager.getStudentById(randomStudent().getId());
+    }
+    
+    @Benchmark
+    public Student updateStudent() throws ServiceFailureException {
+        Student student = randomStudent();
+        manager.updateStudent(student);
+        return student;
+    }
+    
+    /**
+     * Score is the time of {@link #DELETE_BATCH} deletes.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = DELETE_BATCH)
+    @Measurement(iterations = 5, batchSize = DELETE_BATCH)
+    public Student deleteStudent(DeleteTargets targets) throws ServiceFailureException {
+        Student student = targets.next();
+        manager.deleteStudent(student);
+        return student;
+    }
+    
+    @Benchmark
+    public List<Student> findAllStudents() throws ServiceFailureException {
+        return manager.findAllStudents();
+    }
+    
+    private Student randomStudent() {
+        return db.students.get(random.nextInt(db.students.size()));
+    }
+}
@@ -1,17 +1,25 @@
 package ThesisMan;
 
 import ThesisManCommon.DBUtils;
-import ThesisManCommon.ValidationException;
 import ThesisManCommon.ServiceFailureException;
 import ThesisManCommon.IllegalEntityException;
+import ThesisManCommon.ReadWriteDataSource;
+import ThesisManCommon.TransactionManager;
+import ThesisManCommon.UncheckedServiceFailureException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 
 /**
@@ -19,12 +27,97 @@ import javax.sql.DataSource;
  * 
  * @author Kristina Miklasova, 4333 83
  */
-public class StudentManagerImpl implements StudentManager {
+public class StudentManagerImpl implements StudentManager, TransactionAware {
 
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    
     private DataSource dataSource;
+    private TransactionManager transactions;
+    private ReadWriteDataSource readWrite;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private final ChangeEventPublisher<Student> changes = new ChangeEventPublisher<>();
     
+    /**
+     * Sets data source of the manager. Unless it is, or wraps, 
+     * {@link TransactionManager}, it is wrapped by a new one, so writes of
+     * this manager always run in transactions.
+     * <p>
+     * When the data source is, or wraps, {@link ReadWriteDataSource}, 
+     * read-only methods which do not run in a transaction read from its 
+     * replicas.
+     * 
+     * @param dataSource data source
+     */
     public void setDataSource(DataSource dataSource) {
-        this.dataSource = dataSource;
+        this.dataSource = dataSource == null ? null : TransactionManager.transactional(dataSource);
+        this.transactions = dataSource == null ? null : TransactionManager.of(this.dataSource);
+        this.readWrite = dataSource == null ? null : ReadWriteDataSource.find(this.dataSource);
+    }
+    
+    @Override
+    public TransactionManager getTransactionManager() {
+        return transactions;
+    }
+    
+    /**
+     * Sets the number of rows sent to the database in one JDBC batch by
+     * {@link #createStudents(Collection)}.
+     * 
+     * @param batchSize positive number of rows in one batch
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize is not positive");
+        }
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Registers listener notified about every student created, updated or
+     * deleted by this manager, after the change is committed.
+     * 
+     * @param listener listener of the changes
+     */
+    public void addChangeListener(ChangeListener<Student> listener) {
+        changes.addListener(listener);
+    }
+    
+    public void removeChangeListener(ChangeListener<Student> listener) {
+        changes.removeListener(listener);
+    }
+    
+    /**
+     * Notifies listeners and pins the thread to the primary database for 
+     * reading after the write is committed.
+     */
+    private void written(ChangeEvent.Kind kind, Student student) {
+        if (readWrite != null) {
+            transactions.afterCommit(readWrite::markWritten);
+        }
+        if (changes.hasListeners()) {
+            changes.publish(transactions, new ChangeEvent<>(kind, copy(student)));
+        }
+    }
+    
+    private static Student copy(Student student) {
+        Student result = new Student();
+        result.setId(student.getId());
+        result.setName(student.getName());
+        result.setSurname(student.getSurname());
+        result.setVersion(student.getVersion());
+        return result;
+    }
+    
+    /**
+     * Returns connection for read-only query, i.e. connection of a replica
+     * unless there are none or the query is a part of a transaction, which
+     * must see its own writes.
+     */
+    private Connection getReadConnection() throws SQLException {
+        if (readWrite == null || transactions.isInTransaction()) {
+            return dataSource.getConnection();
+        }
+        return readWrite.getReadConnection();
     }
     
     private void checkDataSource() {
@@ -57,35 +150,87 @@ public class StudentManagerImpl implements StudentManager {
             
             ResultSet keyRS = st.getGeneratedKeys();
             student.setId(getKey(keyRS, student));
+            student.setVersion(0);
             
         } catch (SQLException ex) {
             throw new ServiceFailureException("Error when inseting student " + student, ex);
         }
-        
+        written(ChangeEvent.Kind.CREATED, student);
     }
     
-    public void validate(Student student) throws IllegalArgumentException {
-        if (student == null) {
-            throw new IllegalArgumentException("student is null");
-        }
-        if (student.getName() == null) {
-            throw new ValidationException("student name is null");
+    @Override
+    public void createStudents(Collection<Student> students) throws ServiceFailureException {
+        checkDataSource();
+        if (students == null) {
+            throw new IllegalArgumentException("students is null");
         }
-        if (student.getSurname() == null ) {
-            throw new ValidationException("student surname is null");
+        for (Student student : students) {
+            validate(student);
+            if (student.getId() != null) {
+                throw new IllegalEntityException("student id is already set");
+            }
         }
-        if (student.getName().equals("")) {
-            throw new ValidationException("student name is empty");
+        if (students.isEmpty()) {
+            return;
         }
-        if (student.getSurname().equals("")) {
-            throw new ValidationException("student surname is empty");
+        
+        boolean committed = false;
+        try {
+            transactions.inTransaction(() -> {
+                try (Connection conn = dataSource.getConnection();
+                        Statement lock = conn.createStatement();
+                        PreparedStatement st = conn.prepareStatement(
+                        "INSERT INTO STUDENT (name, surname) VALUES (?, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    // The table lock guarantees that no other transaction inserts 
+                    // students meanwhile, see DBUtils.getBatchIds(...)
+                    lock.execute("LOCK TABLE student IN EXCLUSIVE MODE");
+                    
+                    List<Student> batch = new ArrayList<>(Math.min(batchSize, students.size()));
+                    Iterator<Student> iterator = students.iterator();
+                    while (iterator.hasNext()) {
+                        Student student = iterator.next();
+                        st.setString(1, student.getName());
+                        st.setString(2, student.getSurname());
+                        st.addBatch();
+                        batch.add(student);
+
+                        if (batch.size() == batchSize || !iterator.hasNext()) {
+                            executeInsertBatch(st, batch);
+                            batch.clear();
+                        }
+                    }
+                }
+                for (Student student : students) {
+                    written(ChangeEvent.Kind.CREATED, student);
+                }
+                return null;
+            });
+            committed = true;
+        } catch (SQLException ex) {
+            throw new ServiceFailureException("Error when inserting " + students.size() + " students", ex);
+        } finally {
+            if (!committed) {
+                for (Student student : students) {
+                    student.setId(null);
+                }
+            }
         }
-        if (!Pattern.matches("[a-zA-Z ]+", student.getName())) {
-            throw new ValidationException("student name does not contain only characters");
+    }
+    
+    private void executeInsertBatch(PreparedStatement st, List<Student> batch) 
+            throws SQLException, ServiceFailureException {
+        
+        DBUtils.checkBatchUpdatesCount(st.executeBatch(), batch.size());
+        long[] ids = DBUtils.getBatchIds(st, batch.size());
+        for (int i = 0; i < ids.length; i++) {
+            batch.get(i).setId(ids[i]);
+            batch.get(i).setVersion(0);
         }
-        if (!Pattern.matches("[a-zA-Z ]+", student.getSurname())) {
-            throw new ValidationException("student surname does not contain only characters");
-        }      
+    }
+    
+    public void validate(Student student) throws IllegalArgumentException {
+        EntityValidator.INSTANCE.validate(student);
     }
     
     private Long getKey(ResultSet keyRS, Student student) throws ServiceFailureException, SQLException {
@@ -117,29 +262,26 @@ public class StudentManagerImpl implements StudentManager {
             throw new IllegalEntityException("student id is null");
         }
         
-        Connection conn = null;
-        PreparedStatement st = null;
-        try {
-            conn = dataSource.getConnection();
-            // Temporary turn autocommit mode off. It is turned back on in 
-            // method DBUtils.closeQuietly(...) 
-            conn.setAutoCommit(false);
-            st = conn.prepareStatement(
-                    "UPDATE Student SET name = ?, surname = ? WHERE id = ?");
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement st = conn.prepareStatement(
+                "UPDATE Student SET name = ?, surname = ?, version = version + 1 "
+                + "WHERE id = ? AND version = ?")) {
             st.setString(1, student.getName());
             st.setString(2, student.getSurname());
             st.setLong(3, student.getId());
+            st.setInt(4, student.getVersion());
 
             int count = st.executeUpdate();
+            if (count == 0) {
+                DBUtils.checkVersionConflict(conn, "student", student.getId(), student);
+            }
             DBUtils.checkUpdatesCount(count, student, false);
-            conn.commit();
+            student.setVersion(student.getVersion() + 1);
         } catch (SQLException ex) {
             String msg = "Error when updating grave in the db";
             throw new ServiceFailureException(msg, ex);
-        } finally {
-            DBUtils.doRollbackQuietly(conn);
-            DBUtils.closeQuietly(conn, st);
         }
+        written(ChangeEvent.Kind.UPDATED, student);
     }
 
     @Override
@@ -152,27 +294,22 @@ public class StudentManagerImpl implements StudentManager {
             throw new IllegalEntityException("student id is null");
         }
         
-        Connection conn = null;
-        PreparedStatement st = null;
-        try {
-            conn = dataSource.getConnection();
-            // Temporary turn autocommit mode off. It is turned back on in 
-            // method DBUtils.closeQuietly(...) 
-            conn.setAutoCommit(false);
-            st = conn.prepareStatement(
-                    "DELETE FROM Student WHERE id = ?");
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement st = conn.prepareStatement(
+                "DELETE FROM Student WHERE id = ? AND version = ?")) {
             st.setLong(1, student.getId());
+            st.setInt(2, student.getVersion());
 
             int count = st.executeUpdate();
+            if (count == 0) {
+                DBUtils.checkVersionConflict(conn, "student", student.getId(), student);
+            }
             DBUtils.checkUpdatesCount(count, student, false);
-            conn.commit();
         } catch (SQLException ex) {
             String msg = "Error when deleting student from the db";
             throw new ServiceFailureException(msg, ex);
-        } finally {
-            DBUtils.doRollbackQuietly(conn);
-            DBUtils.closeQuietly(conn, st);
         }
+        written(ChangeEvent.Kind.DELETED, student);
     }
 
     @Override
@@ -182,9 +319,9 @@ public class StudentManagerImpl implements StudentManager {
             throw new IllegalArgumentException("id is null");
         }
         
-        try ( Connection connection = dataSource.getConnection();
+        try ( Connection connection = getReadConnection();
             PreparedStatement st = connection.prepareStatement(
-            "SELECT id, name, surname FROM student WHERE id = ?")) {
+            "SELECT id, name, surname, version FROM student WHERE id = ?")) {
                 st.setLong(1, id);
                 ResultSet rs = st.executeQuery();
             
@@ -210,20 +347,21 @@ public class StudentManagerImpl implements StudentManager {
         
     }
 
-    private Student resultSetToStudent(ResultSet rs) throws SQLException {
+    Student resultSetToStudent(ResultSet rs) throws SQLException {
         Student student = new Student();
         student.setId(rs.getLong("id"));
         student.setName(rs.getString("name"));
         student.setSurname(rs.getString("surname"));
+        student.setVersion(rs.getInt("version"));
         return student;
     }
     
     @Override
     public List<Student> findAllStudents() throws ServiceFailureException {
         checkDataSource();
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = getReadConnection();
              PreparedStatement st = connection.prepareStatement(
-             "SELECT id,name,surname FROM student")) {
+             "SELECT id,name,surname,version FROM student")) {
             
             ResultSet rs = st.executeQuery();
             
@@ -237,6 +375,58 @@ public class StudentManagerImpl implements StudentManager {
             throw new ServiceFailureException(
                     "Error when retrieving all students", ex);
         }
-    }   
+    }
+    
+    @Override
+    public Stream<Student> streamAllStudents(int fetchSize) throws ServiceFailureException {
+        checkDataSource();
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize is negative");
+        }
+        
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            conn = dataSource.getConnection();
+            st = conn.prepareStatement("SELECT id,name,surname,version FROM student",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            st.setFetchSize(fetchSize);
+            rs = st.executeQuery();
+        } catch (SQLException ex) {
+            DBUtils.closeQuietly(rs);
+            DBUtils.closeQuietly(conn, st);
+            throw new ServiceFailureException(
+                    "Error when retrieving all students", ex);
+        }
+        
+        final Connection connection = conn;
+        final PreparedStatement statement = st;
+        final ResultSet resultSet = rs;
+        Spliterator<Student> spliterator = new Spliterators.AbstractSpliterator<Student>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            
+            @Override
+            public boolean tryAdvance(Consumer<? super Student> action) {
+                try {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    action.accept(resultSetToStudent(resultSet));
+                    return true;
+                } catch (SQLException ex) {
+                    throw new UncheckedServiceFailureException(new ServiceFailureException(
+                            "Error when retrieving all students", ex));
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            @Override
+            public void run() {
+                DBUtils.closeQuietly(resultSet);
+                DBUtils.closeQuietly(connection, statement);
+            }
+        });
+    }
     
 }
@@ -4,11 +4,21 @@ import ThesisManCommon.DBUtils;
 import ThesisManCommon.ValidationException;
 import ThesisManCommon.ServiceFailureException;
 import ThesisManCommon.IllegalEntityException;
+import ThesisManCommon.OptimisticLockException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 import org.apache.derby.jdbc.EmbeddedDataSource;
 import static org.hamcrest.CoreMatchers.*;
@@ -142,6 +152,101 @@ public class StudentManagerImplTest {
         assertDeepEquals(expected, actual);
     }
     
+    @Test
+    public void streamAllStudents() throws ServiceFailureException {
+        try (Stream<Student> stream = manager.streamAllStudents(0)) {
+            assertEquals(0, stream.count());
+        }
+        
+        List<Student> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Student student = newStudent("Joshua", "Bloch" + (char) ('a' + i));
+            manager.createStudent(student);
+            expected.add(student);
+        }
+        
+        List<Student> actual;
+        try (Stream<Student> stream = manager.streamAllStudents(4)) {
+            actual = stream.collect(Collectors.toList());
+        }
+        
+        Collections.sort(actual, idComparator);
+        Collections.sort(expected, idComparator);
+        
+        assertEquals(expected, actual);
+        assertDeepEquals(expected, actual);
+    }
+    
+    @Test
+    public void streamAllStudentsReleasesConnectionOnClose() throws ServiceFailureException {
+        manager.createStudent(newStudent("Joshua", "Bloch"));
+        manager.createStudent(newStudent("Martin", "Fowler"));
+        
+        AtomicInteger openConnections = new AtomicInteger();
+        manager.setDataSource(trackingDataSource(dataSource, openConnections));
+        
+        Stream<Student> stream = manager.streamAllStudents(1);
+        assertEquals(1, openConnections.get());
+        assertEquals(1, stream.limit(1).count());
+        assertEquals(1, openConnections.get());
+        stream.close();
+        assertEquals(0, openConnections.get());
+    }
+    
+    @Test
+    public void streamAllStudentsWithNegativeFetchSize() throws ServiceFailureException {
+        expectedException.expect(IllegalArgumentException.class);
+        manager.streamAllStudents(-1);
+    }
+    
+    @Test
+    public void createStudents() throws ServiceFailureException {
+        manager.setBatchSize(4);
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            students.add(newStudent("Joshua", "Bloch" + (char) ('a' + i)));
+        }
+        
+        manager.createStudents(students);
+        
+        for (Student student : students) {
+            assertNotNull(student.getId());
+            assertDeepEquals(student, manager.getStudentById(student.getId()));
+        }
+        assertEquals(10, manager.findAllStudents().size());
+    }
+    
+    @Test
+    public void createStudentsValidatesAllBeforeInsert() throws ServiceFailureException {
+        List<Student> students = Arrays.asList(
+                newStudent("Joshua", "Bloch"),
+                newStudent("Martin", "Fowler"),
+                newStudent("Jos69", "Bloch"));
+        
+        try {
+            manager.createStudents(students);
+            fail("ValidationException expected");
+        } catch (ValidationException ex) {
+            // expected
+        }
+        assertTrue(manager.findAllStudents().isEmpty());
+        assertNull(students.get(0).getId());
+    }
+    
+    @Test
+    public void createStudentsWithExistingId() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        student.setId(1L);
+        
+        expectedException.expect(IllegalEntityException.class);        
+        manager.createStudents(Arrays.asList(newStudent("Martin", "Fowler"), student));
+    }
+    
+    @Test (expected = IllegalArgumentException.class)
+    public void createNullStudents() throws ServiceFailureException {
+        manager.createStudents(null);
+    }
+    
     @Test
     public void getStudentById() throws ServiceFailureException {
         Student student = newStudent("Joshua", "Bloch");     
@@ -191,6 +296,49 @@ public class StudentManagerImplTest {
         assertDeepEquals(student2, manager.getStudentById(student2.getId()));
     }
    
+    @Test
+    public void updateIncreasesVersion() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+        assertEquals(0, student.getVersion());
+        
+        student.setName("George");
+        manager.updateStudent(student);
+        
+        assertEquals(1, student.getVersion());
+        assertEquals(1, manager.getStudentById(student.getId()).getVersion());
+    }
+    
+    @Test
+    public void updateStaleStudent() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+        Student stale = manager.getStudentById(student.getId());
+        
+        student.setName("George");
+        manager.updateStudent(student);
+        
+        stale.setSurname("Bush");
+        expectedException.expect(OptimisticLockException.class);
+        manager.updateStudent(stale);
+    }
+    
+    @Test
+    public void deleteStaleStudent() throws ServiceFailureException {
+        Student student = newStudent("Joshua", "Bloch");
+        manager.createStudent(student);
+        Student stale = manager.getStudentById(student.getId());
+        manager.updateStudent(student);
+        
+        try {
+            manager.deleteStudent(stale);
+            fail("OptimisticLockException expected");
+        } catch (OptimisticLockException ex) {
+            // expected
+        }
+        assertNotNull(manager.getStudentById(student.getId()));
+    }
+    
     @Test (expected = IllegalArgumentException.class)
     public void updateWithNullStudent() throws ServiceFailureException {    
         manager.updateStudent(null);
@@ -326,6 +474,43 @@ public class StudentManagerImplTest {
         return student;
     }
     
+    /**
+     * Wraps given data source so that the number of connections which were 
+     * obtained and not closed yet is tracked.
+     */
+    private static DataSource trackingDataSource(final DataSource target, final AtomicInteger openConnections) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object result = invokeTarget(target, method, args);
+                if (result instanceof Connection) {
+                    openConnections.incrementAndGet();
+                    final Connection conn = (Connection) result;
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                            new Class<?>[]{Connection.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if (method.getName().equals("close") && !conn.isClosed()) {
+                                openConnections.decrementAndGet();
+                            }
+                            return invokeTarget(conn, method, args);
+                        }
+                    });
+                }
+                return result;
+            }
+        });
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+    
     private static Comparator<Student> idComparator = new Comparator<Student>() {
 
         @Override
@@ -0,0 +1,458 @@
+package ThesisMan;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory prefix index of student names and surnames for autocompletion.
+ * Names and surnames are compared case-insensitively and without
+ * diacritics, so "sved" completes also to Svedova written with carons
+ * and acutes.
+ * <p>
+ * Most of the students are kept in compact sorted arrays: distinct names
+ * and surnames are stored only once, sorted, and every one of them points
+ * to a range of positions of students who have it. Prefix lookup is
+ * therefore a binary search plus a scan of adjacent entries. Students
+ * written since the last compaction are kept in a small sorted set, which
+ * is merged with the arrays by lookups, and the arrays are rebuilt when
+ * these changes exceed an eighth of the compacted students.
+ * <p>
+ * The index is thread-safe; lookups run concurrently, changes are
+ * exclusive.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class StudentPrefixIndex {
+
+    private static final int MIN_CHANGES_TO_COMPACT = 1024;
+
+    /* sizes of objects on 64-bit JVM with compressed references */
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Distinct normalized names and surnames of compacted students, sorted. */
+    private String[] terms = new String[0];
+    /** Students having terms[t] are at entries[termStart[t]] until entries[termStart[t + 1]]. */
+    private int[] termStart = {0};
+    /** Positions of compacted students grouped by term, ascending within term. */
+    private int[] entries = new int[0];
+    /** Ids of compacted students sorted ascending, other arrays are indexed by position in it. */
+    private long[] studentIds = new long[0];
+    private int[] nameTerms = new int[0];
+    private int[] surnameTerms = new int[0];
+    /** Compacted students which were removed or changed since compaction. */
+    private BitSet removed = new BitSet();
+    private int removedCount;
+
+    /** Normalized name and surname of students written since compaction. */
+    private final Map<Long, String[]> added = new HashMap<>();
+    private final TreeSet<Key> addedKeys = new TreeSet<>();
+
+    /**
+     * Adds student to the index or replaces its previous name and surname.
+     *
+     * @param student student with id
+     */
+    public void put(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("student is null");
+        }
+        if (student.getId() == null) {
+            throw new IllegalArgumentException("student id is null");
+        }
+        put(student.getId(), student.getName(), student.getSurname());
+    }
+
+    /**
+     * Adds student with given id to the index or replaces its previous name
+     * and surname.
+     *
+     * @param id id of the student
+     * @param name name of the student, null is indexed as empty name
+     * @param surname surname of the student, null is indexed as empty surname
+     */
+    public void put(long id, String name, String surname) {
+        String[] fields = {normalize(name), normalize(surname)};
+        lock.writeLock().lock();
+        try {
+            removeStudent(id);
+            added.put(id, fields);
+            for (String field : fields) {
+                addedKeys.add(new Key(field, id));
+            }
+            if (added.size() + removedCount > Math.max(MIN_CHANGES_TO_COMPACT, studentIds.length / 8)) {
+                compactLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes student with given id from the index.
+     *
+     * @param id id of the student
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeStudent(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all students from the index.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            added.clear();
+            addedKeys.clear();
+            terms = new String[0];
+            termStart = new int[]{0};
+            entries = new int[0];
+            studentIds = new long[0];
+            nameTerms = new int[0];
+            surnameTerms = new int[0];
+            removed = new BitSet();
+            removedCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves all students written since the last compaction into the sorted
+     * arrays. It is done automatically when there are enough such students,
+     * calling it explicitly makes sense after the index was filled.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            compactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of indexed students.
+     *
+     * @return number of students
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return studentIds.length - removedCount + added.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns estimated number of bytes occupied by the index on 64-bit JVM
+     * with compressed references. Divided by {@link #size()} it gives memory
+     * used per indexed student.
+     *
+     * @return estimated size of the index in bytes
+     */
+    public long estimateMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = arrayBytes(REFERENCE, terms.length) + arrayBytes(4, termStart.length)
+                    + arrayBytes(4, entries.length) + arrayBytes(8, studentIds.length)
+                    + arrayBytes(4, nameTerms.length) + arrayBytes(4, surnameTerms.length)
+                    + removed.size() / 8;
+            for (String term : terms) {
+                bytes += stringBytes(term);
+            }
+            for (String[] fields : added.values()) {
+                // map entry with boxed id, array of fields and two keys in tree set
+                bytes += align(OBJECT_HEADER + 4 * REFERENCE) + align(OBJECT_HEADER + 8)
+                        + arrayBytes(REFERENCE, 2) + stringBytes(fields[0]) + stringBytes(fields[1])
+                        + 2 * (align(OBJECT_HEADER + 5 * REFERENCE) + align(OBJECT_HEADER + REFERENCE + 8));
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Completes given text to students. Every word of the text must be
+     * a prefix of the name or surname of the student, so both "jo" and
+     * "bloch jo" complete to Joshua Bloch.
+     * <p>
+     * Students are ordered by the name or surname completing the most
+     * selective word and then by id, so exact matches go before longer
+     * names. The scan stops as soon as limit students are found, so lookups
+     * take microseconds even when the prefix matches most of the students.
+     *
+     * @param text prefixes separated by white space
+     * @param limit maximal number of returned ids
+     * @return ids of found students, at most limit of them
+     */
+    public List<Long> complete(String text, int limit) {
+        if (text == null) {
+            throw new IllegalArgumentException("text is null");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit is negative");
+        }
+        String normalized = normalize(text).trim();
+        if (normalized.isEmpty() || limit == 0) {
+            return new ArrayList<>();
+        }
+        String[] words = normalized.split("\\s+");
+
+        lock.readLock().lock();
+        try {
+            int[] range = null;
+            String driver = null;
+            for (String word : words) {
+                int[] wordRange = termRange(word);
+                if (range == null || entryCount(wordRange) < entryCount(range)) {
+                    range = wordRange;
+                    driver = word;
+                }
+            }
+
+            Set<Long> found = new LinkedHashSet<>();
+            Iterator<Key> changes = addedKeys.subSet(new Key(driver, Long.MIN_VALUE), true,
+                    new Key(driver + Character.MAX_VALUE, Long.MIN_VALUE), false).iterator();
+            Key change = changes.hasNext() ? changes.next() : null;
+            int term = range[0];
+            int entry = termStart[term];
+            while (found.size() < limit) {
+                while (term < range[1] && entry == termStart[term + 1]) {
+                    term++;
+                }
+                boolean compacted = term < range[1];
+                if (!compacted && change == null) {
+                    break;
+                }
+                if (compacted && (change == null || compare(terms[term], studentIds[entries[entry]], change) < 0)) {
+                    int position = entries[entry++];
+                    if (!removed.get(position) && matches(words,
+                            terms[nameTerms[position]], terms[surnameTerms[position]])) {
+                        found.add(studentIds[position]);
+                    }
+                } else {
+                    String[] fields = added.get(change.id);
+                    if (matches(words, fields[0], fields[1])) {
+                        found.add(change.id);
+                    }
+                    change = changes.hasNext() ? changes.next() : null;
+                }
+            }
+            return new ArrayList<>(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeStudent(long id) {
+        int position = Arrays.binarySearch(studentIds, id);
+        if (position >= 0 && !removed.get(position)) {
+            removed.set(position);
+            removedCount++;
+        }
+        String[] fields = added.remove(id);
+        if (fields != null) {
+            for (String field : fields) {
+                addedKeys.remove(new Key(field, id));
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the sorted arrays from compacted students which were not
+     * removed and from students written since the last compaction.
+     */
+    private void compactLocked() {
+        long[] addedIds = new long[added.size()];
+        int i = 0;
+        for (Long id : added.keySet()) {
+            addedIds[i++] = id;
+        }
+        Arrays.sort(addedIds);
+
+        int count = studentIds.length - removedCount + addedIds.length;
+        long[] ids = new long[count];
+        String[] names = new String[count];
+        String[] surnames = new String[count];
+        int position = 0;
+        int a = 0;
+        for (int s = 0; s < studentIds.length || a < addedIds.length;) {
+            if (s < studentIds.length && removed.get(s)) {
+                s++;
+            } else if (a == addedIds.length || (s < studentIds.length && studentIds[s] < addedIds[a])) {
+                ids[position] = studentIds[s];
+                names[position] = terms[nameTerms[s]];
+                surnames[position++] = terms[surnameTerms[s]];
+                s++;
+            } else {
+                String[] fields = added.get(addedIds[a]);
+                ids[position] = addedIds[a++];
+                names[position] = fields[0];
+                surnames[position++] = fields[1];
+            }
+        }
+
+        Map<String, Integer> ranks = new HashMap<>();
+        for (int s = 0; s < count; s++) {
+            ranks.put(names[s], 0);
+            ranks.put(surnames[s], 0);
+        }
+        String[] sortedTerms = ranks.keySet().toArray(new String[ranks.size()]);
+        Arrays.sort(sortedTerms);
+        for (int t = 0; t < sortedTerms.length; t++) {
+            ranks.put(sortedTerms[t], t);
+        }
+
+        // counting sort of students by term, positions are ascending within term
+        int[] newNameTerms = new int[count];
+        int[] newSurnameTerms = new int[count];
+        int[] start = new int[sortedTerms.length + 1];
+        for (int s = 0; s < count; s++) {
+            newNameTerms[s] = ranks.get(names[s]);
+            newSurnameTerms[s] = ranks.get(surnames[s]);
+            start[newNameTerms[s] + 1]++;
+            if (newSurnameTerms[s] != newNameTerms[s]) {
+                start[newSurnameTerms[s] + 1]++;
+            }
+        }
+        for (int t = 0; t < sortedTerms.length; t++) {
+            start[t + 1] += start[t];
+        }
+        int[] newEntries = new int[start[sortedTerms.length]];
+        int[] next = Arrays.copyOf(start, sortedTerms.length);
+        for (int s = 0; s < count; s++) {
+            newEntries[next[newNameTerms[s]]++] = s;
+            if (newSurnameTerms[s] != newNameTerms[s]) {
+                newEntries[next[newSurnameTerms[s]]++] = s;
+            }
+        }
+
+        terms = sortedTerms;
+        termStart = start;
+        entries = newEntries;
+        studentIds = ids;
+        nameTerms = newNameTerms;
+        surnameTerms = newSurnameTerms;
+        removed = new BitSet();
+        removedCount = 0;
+        added.clear();
+        addedKeys.clear();
+    }
+
+    /** Returns range of terms starting with given prefix. */
+    private int[] termRange(String prefix) {
+        return new int[]{insertionPoint(prefix), insertionPoint(prefix + Character.MAX_VALUE)};
+    }
+
+    private int insertionPoint(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int entryCount(int[] range) {
+        return termStart[range[1]] - termStart[range[0]];
+    }
+
+    private static boolean matches(String[] words, String name, String surname) {
+        for (String word : words) {
+            if (!name.startsWith(word) && !surname.startsWith(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compare(String term, long id, Key key) {
+        int result = term.compareTo(key.term);
+        return result != 0 ? result : Long.compare(id, key.id);
+    }
+
+    /**
+     * Converts text to lower case and removes diacritics.
+     *
+     * @param text text to convert, may be null
+     * @return normalized text, empty for null
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String result = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < result.length(); i++) {
+            if (result.charAt(i) > 0x7f) {
+                // decomposed accented letter is base letter and combining mark
+                String decomposed = Normalizer.normalize(result, Normalizer.Form.NFD);
+                StringBuilder builder = new StringBuilder(decomposed.length());
+                for (int j = 0; j < decomposed.length(); j++) {
+                    char c = decomposed.charAt(j);
+                    if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                        builder.append(c);
+                    }
+                }
+                return builder.toString();
+            }
+        }
+        return result;
+    }
+
+    private static long arrayBytes(int elementSize, int length) {
+        return align(ARRAY_HEADER + (long) elementSize * length);
+    }
+
+    private static long stringBytes(String text) {
+        boolean latin1 = true;
+        for (int i = 0; i < text.length() && latin1; i++) {
+            latin1 = text.charAt(i) <= 0xff;
+        }
+        return align(OBJECT_HEADER + REFERENCE + 8) + arrayBytes(latin1 ? 1 : 2, text.length());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Name or surname of student written since compaction, ordered like
+     * compacted entries: by the term and then by id.
+     */
+    private static final class Key implements Comparable<Key> {
+
+        private final String term;
+        private final long id;
+
+        Key(String term, long id) {
+            this.term = term;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int result = term.compareTo(other.term);
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
+}
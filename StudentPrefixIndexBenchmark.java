@@ -0,0 +1,87 @@
+package ThesisMan;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of StudentPrefixIndex lookups on one million generated
+ * students. Names are picked from 2000 names and surnames from 100000
+ * surnames, both with Zipf-like distribution, so short prefixes match
+ * hundreds of thousands of students. Memory used per student is logged
+ * after the index is filled.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StudentPrefixIndexBenchmark {
+
+    private static final Logger logger = Logger.getLogger(
+            StudentPrefixIndexBenchmark.class.getName());
+
+    private static final int STUDENTS = 1000000;
+
+    private final StudentPrefixIndex index = new StudentPrefixIndex();
+    private long nextId = STUDENTS + 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        for (int id = 1; id <= STUDENTS; id++) {
+            index.put(id, word(random, 2000, "n"), word(random, 100000, "s"));
+        }
+        index.compact();
+        logger.log(java.util.logging.Level.INFO, "Student prefix index filled: {0} bytes per student",
+                index.estimateMemoryBytes() / index.size());
+    }
+
+    /** Returns word with rank r chosen with probability about 1 / r. */
+    private static String word(Random random, int words, String prefix) {
+        int rank = (int) Math.pow(words, random.nextDouble());
+        return prefix + Integer.toString(rank, 36);
+    }
+
+    @Benchmark
+    public List<Long> shortPrefix() {
+        return index.complete("s", 10);
+    }
+
+    @Benchmark
+    public List<Long> longPrefix() {
+        return index.complete("s2b", 10);
+    }
+
+    @Benchmark
+    public List<Long> surnameAndName() {
+        return index.complete("s1 n2", 10);
+    }
+
+    @Benchmark
+    public List<Long> noMatch() {
+        return index.complete("x", 10);
+    }
+
+    @Benchmark
+    public List<Long> putAndComplete() {
+        long id = nextId++;
+        index.put(id, "n1", "s1z" + id);
+        return index.complete("s1z", 10);
+    }
+}
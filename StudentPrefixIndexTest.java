@@ -0,0 +1,101 @@
+package ThesisMan;
+
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for StudentPrefixIndex.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class StudentPrefixIndexTest {
+
+    private StudentPrefixIndex index;
+
+    @Before
+    public void setUp() {
+        index = new StudentPrefixIndex();
+        index.put(1, "Joshua", "Bloch");
+        index.put(2, "Martin", "Fowler");
+        index.put(3, "Krist\u00edna", "Mikl\u00e1\u0161ov\u00e1");
+        index.put(4, "Jan", "Blochov\u00e1");
+        index.put(5, "Jana", "Jan\u00e1\u010dkov\u00e1");
+    }
+
+    @Test
+    public void normalize() {
+        assertEquals("svedova", StudentPrefixIndex.normalize("\u0160V\u00c9DOV\u00c1"));
+        assertEquals("bloch", StudentPrefixIndex.normalize("Bloch"));
+        assertEquals("", StudentPrefixIndex.normalize(null));
+    }
+
+    @Test
+    public void completeIgnoresCaseAndDiacritics() {
+        assertEquals(Arrays.asList(3L), index.complete("MIKLAS", 10));
+        assertEquals(Arrays.asList(3L), index.complete("krist\u00ed", 10));
+        assertEquals(Collections.emptyList(), index.complete("unknown", 10));
+        assertEquals(Collections.emptyList(), index.complete("  ", 10));
+    }
+
+    @Test
+    public void shorterCompletionsGoFirst() {
+        assertEquals(Arrays.asList(1L, 4L), index.complete("bl", 10));
+        assertEquals(Arrays.asList(4L, 5L), index.complete("jan", 10));
+        assertEquals(Arrays.asList(4L), index.complete("jan", 1));
+    }
+
+    @Test
+    public void everyWordMustMatch() {
+        assertEquals(Arrays.asList(1L), index.complete("bloch jo", 10));
+        assertEquals(Arrays.asList(4L), index.complete("ja blo", 10));
+        assertEquals(Collections.emptyList(), index.complete("fowler jo", 10));
+    }
+
+    @Test
+    public void putReplacesAndRemoveDeletes() {
+        index.put(1, "Joshua", "Fowler");
+        assertEquals(Arrays.asList(4L), index.complete("bloch", 10));
+        assertEquals(Arrays.asList(1L, 2L), index.complete("fow", 10));
+
+        index.remove(2);
+        index.remove(42);
+        assertEquals(4, index.size());
+        assertEquals(Arrays.asList(1L), index.complete("fow", 10));
+    }
+
+    @Test
+    public void compactedAndChangedStudentsAreMerged() {
+        index.compact();
+        index.put(0, "Kent", "Blo");
+        index.put(6, "Kent", "Bloch");
+        index.put(4, "Jan", "Nov\u00e1k");
+        index.remove(1);
+
+        assertEquals(Arrays.asList(0L, 6L), index.complete("blo", 10));
+        assertEquals(6, index.size());
+
+        index.compact();
+        assertEquals(Arrays.asList(0L, 6L), index.complete("blo", 10));
+        assertEquals(Arrays.asList(4L), index.complete("nov", 10));
+        assertEquals(6, index.size());
+    }
+
+    @Test
+    public void manyStudentsAreCompactedAutomatically() {
+        for (int id = 100; id < 10100; id++) {
+            index.put(id, "Student", "Surname" + id);
+        }
+        assertEquals(10005, index.size());
+        assertEquals(Arrays.asList(100L, 1000L, 10000L), index.complete("surname100", 3));
+        assertEquals(Arrays.asList(100L, 101L), index.complete("stud", 2));
+        assertTrue(index.estimateMemoryBytes() / index.size() < 200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void completeWithNegativeLimit() {
+        index.complete("bloch", -1);
+    }
+}
@@ -1,5 +1,6 @@
 CREATE TABLE student (
     id BIGINT NOT NULL PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
     name VARCHAR(30),
-    surname VARCHAR(30)
+    surname VARCHAR(30),
+    version INTEGER NOT NULL DEFAULT 0
 );
\ No newline at end of file
@@ -16,6 +16,7 @@ public class Thesis {
     private int year;
     private Type type;
     private Student author;
+    private int version;
 
     public Long getId() {
         return id;
@@ -57,6 +58,21 @@ public class Thesis {
         this.author = author;
     }
 
+    /**
+     * Returns version of the entity in the database. Version is increased
+     * by every update, so entity with older version than the database row
+     * is stale.
+     * 
+     * @return version of the entity
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Thesis{" + "id=" + id + ", name=" + name + ", year=" + year + ", type=" + type + ", author=" + author + '}';
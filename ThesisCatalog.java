@@ -0,0 +1,161 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Holds current {@link ThesisCatalogSnapshot} of the database. The snapshot
+ * is replaced by a new one built by {@link #rebuild()}, either on demand or
+ * periodically after {@link #scheduleRebuild(long, TimeUnit)}. The old
+ * snapshot stays current until the new one is complete, so readers always
+ * see one whole snapshot and never wait for a rebuild.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ThesisCatalog implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(
+            ThesisCatalog.class.getName());
+
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    // the snapshot columns are not nullable, so theses without type or year
+    // are left out of the catalog
+    private static final String SELECT_CATALOG_THESES =
+            "SELECT thesis.id, thesis.name, thesis.yearOfPublication, thesis.type, "
+            + "thesis.authorId, student.surname "
+            + "FROM thesis JOIN student ON thesis.authorId = student.id "
+            + "WHERE thesis.type IS NOT NULL AND thesis.yearOfPublication IS NOT NULL";
+
+    private final DataSource dataSource;
+    private volatile ThesisCatalogSnapshot snapshot = new ThesisCatalogSnapshot.Builder().build();
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scheduledRebuild;
+
+    public ThesisCatalog(DataSource dataSource) {
+        if (dataSource == null) {
+            throw new IllegalArgumentException("dataSource is null");
+        }
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Sets number of theses fetched from the database at once when the
+     * snapshot is rebuilt.
+     *
+     * @param fetchSize positive number of theses
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize is not positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Returns current snapshot, which is empty until the first rebuild.
+     *
+     * @return current snapshot
+     */
+    public ThesisCatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Builds new snapshot by one scan of all theses with their authors and
+     * makes it current. Theses without type or year are not included. Rows are streamed into the columns, so the theses
+     * never are in memory as objects. When the scan fails, the current
+     * snapshot is kept.
+     *
+     * @return the new snapshot
+     * @throws ServiceFailureException when db operation fails
+     */
+    public synchronized ThesisCatalogSnapshot rebuild() throws ServiceFailureException {
+        long start = System.nanoTime();
+        ThesisCatalogSnapshot.Builder builder = new ThesisCatalogSnapshot.Builder();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement st = connection.prepareStatement(
+                     SELECT_CATALOG_THESES,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            st.setFetchSize(fetchSize);
+            ResultSet rs = st.executeQuery();
+            while (rs.next()) {
+                builder.add(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                        Type.valueOf(rs.getString(4)), rs.getLong(5), rs.getString(6));
+            }
+        } catch (SQLException ex) {
+            throw new ServiceFailureException(
+                    "Error when loading theses into catalog", ex);
+        }
+        ThesisCatalogSnapshot built = builder.build();
+        snapshot = built;
+        int size = built.size();
+        logger.log(Level.INFO, "Thesis catalog rebuilt in {0} ms: {1} theses, "
+                + "{2} bytes per thesis, {3} bytes of dictionaries", new Object[]{
+                    (System.nanoTime() - start) / 1000000, size,
+                    size == 0 ? 0 : built.estimateColumnBytes() / size,
+                    built.estimateDictionaryBytes()});
+        return built;
+    }
+
+    /**
+     * Rebuilds the snapshot periodically in a background thread, the first
+     * rebuild comes after one period. Failed rebuild is logged and the
+     * current snapshot is kept until the next one. Calling the method again
+     * replaces the previous schedule.
+     *
+     * @param period time between the end of one rebuild and the start of
+     * the next one
+     * @param unit unit of the period
+     */
+    public synchronized void scheduleRebuild(long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period is not positive");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit is null");
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "thesis-catalog-rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (scheduledRebuild != null) {
+            scheduledRebuild.cancel(false);
+        }
+        scheduledRebuild = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (ServiceFailureException | RuntimeException ex) {
+                // exception would cancel all following runs
+                logger.log(Level.WARNING, "Scheduled rebuild of thesis catalog failed", ex);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops scheduled rebuilds, the current snapshot can still be used.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+            scheduledRebuild = null;
+        }
+    }
+}
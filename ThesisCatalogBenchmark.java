@@ -0,0 +1,88 @@
+package ThesisMan;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of ThesisCatalogSnapshot queries on one million generated
+ * theses of 100000 authors with 50000 distinct names. Memory used by the
+ * columns per thesis and by the dictionaries is logged after the
+ * snapshot is built.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ThesisCatalogBenchmark {
+
+    private static final Logger logger = Logger.getLogger(
+            ThesisCatalogBenchmark.class.getName());
+
+    private static final int THESES = 1000000;
+
+    private ThesisCatalogSnapshot snapshot;
+    private final CatalogFilter all = new CatalogFilter();
+    private final CatalogFilter typeAndYears = new CatalogFilter();
+    private final CatalogFilter surname = new CatalogFilter();
+    private final CatalogFilter nameContains = new CatalogFilter();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Type[] types = Type.values();
+        Random random = new Random(42);
+        ThesisCatalogSnapshot.Builder builder = new ThesisCatalogSnapshot.Builder();
+        for (int id = 1; id <= THESES; id++) {
+            int author = random.nextInt(100000);
+            builder.add(id, "Thesis " + random.nextInt(50000), 1970 + random.nextInt(50),
+                    types[random.nextInt(types.length)], author, "Surname" + author % 20000);
+        }
+        snapshot = builder.build();
+        logger.log(java.util.logging.Level.INFO, "Thesis catalog built: {0} bytes per thesis, "
+                + "{1} bytes of dictionaries", new Object[]{
+                    snapshot.estimateColumnBytes() / THESES, snapshot.estimateDictionaryBytes()});
+
+        typeAndYears.setTypes(EnumSet.of(Type.PHD));
+        typeAndYears.setYearFrom(2000);
+        typeAndYears.setYearTo(2009);
+        surname.setAuthorSurname("Surname42");
+        nameContains.setNameContains("123");
+    }
+
+    @Benchmark
+    public long countAll() {
+        return snapshot.count(all);
+    }
+
+    @Benchmark
+    public YearHistogram countByYearOfType() {
+        return snapshot.countByYear(typeAndYears);
+    }
+
+    @Benchmark
+    public EnumMap<Type, Long> countByTypeOfSurname() {
+        return snapshot.countByType(surname);
+    }
+
+    @Benchmark
+    public long countNameContains() {
+        return snapshot.count(nameContains);
+    }
+}
@@ -0,0 +1,465 @@
+package ThesisMan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Read-only columnar snapshot of the thesis catalog for analytical queries.
+ * Every attribute of theses is held in its own primitive array indexed by
+ * row: ids and author ids in long[], years in int[], type ordinals in
+ * byte[], and names of theses and surnames of their authors as int codes
+ * into sorted dictionaries of distinct values. Columns take 29 bytes per
+ * thesis; every distinct name or surname is stored once in a dictionary.
+ * <p>
+ * Queries evaluate {@link CatalogFilter} over blocks of rows. Each block is
+ * first turned into a bitmap of matching rows by simple loops over
+ * primitive arrays, one loop per restricted column, which the JIT compiler
+ * can vectorize; only then are the matching rows aggregated. Ranges of
+ * rows of large snapshots are processed in parallel by the common
+ * fork-join pool.
+ * <p>
+ * The snapshot never changes, so it can be shared by any number of threads.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public final class ThesisCatalogSnapshot {
+
+    private static final Type[] TYPES = Type.values();
+    /** Rows in one bitmap block. */
+    private static final int BLOCK_SIZE = 4096;
+    /** Ranges of at most this many rows are not split for parallel processing. */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /* sizes of objects on 64-bit JVM with compressed references */
+    private static final int ARRAY_HEADER = 16;
+    private static final int STRING_OBJECT = 24;
+
+    private final int size;
+    private final long[] ids;
+    private final long[] authorIds;
+    private final int[] years;
+    private final byte[] types;
+    private final int[] nameCodes;
+    private final int[] surnameCodes;
+    /** Distinct names of theses, sorted. */
+    private final String[] names;
+    /** Distinct surnames of authors, sorted. */
+    private final String[] surnames;
+    private final int minYear;
+    private final int maxYear;
+    private final long createdMillis = System.currentTimeMillis();
+
+    private ThesisCatalogSnapshot(Builder builder, int[] nameCodes, String[] names,
+            int[] surnameCodes, String[] surnames) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.authorIds = Arrays.copyOf(builder.authorIds, size);
+        this.years = Arrays.copyOf(builder.years, size);
+        this.types = Arrays.copyOf(builder.types, size);
+        this.nameCodes = nameCodes;
+        this.names = names;
+        this.surnameCodes = surnameCodes;
+        this.surnames = surnames;
+        this.minYear = builder.minYear;
+        this.maxYear = builder.maxYear;
+    }
+
+    /**
+     * Returns number of theses in the snapshot.
+     *
+     * @return number of theses
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns time when the snapshot was created.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Counts theses matching given filter.
+     *
+     * @param filter criteria of counted theses
+     * @return number of matching theses
+     */
+    public long count(CatalogFilter filter) {
+        return aggregate(filter, Grouping.NONE)[0];
+    }
+
+    /**
+     * Counts theses matching given filter in every year, from the first to
+     * the last year in which some matching thesis was published.
+     *
+     * @param filter criteria of counted theses
+     * @return histogram of years of publication
+     */
+    public YearHistogram countByYear(CatalogFilter filter) {
+        long[] counts = aggregate(filter, Grouping.YEAR);
+        int first = 0;
+        while (first < counts.length && counts[first] == 0) {
+            first++;
+        }
+        int last = counts.length - 1;
+        while (last >= first && counts[last] == 0) {
+            last--;
+        }
+        if (first > last) {
+            return new YearHistogram(0, new long[0]);
+        }
+        return new YearHistogram(minYear + first, Arrays.copyOfRange(counts, first, last + 1));
+    }
+
+    /**
+     * Counts theses matching given filter by type.
+     *
+     * @param filter criteria of counted theses
+     * @return number of theses for every type, types without theses have zero
+     */
+    public EnumMap<Type, Long> countByType(CatalogFilter filter) {
+        long[] counts = aggregate(filter, Grouping.TYPE);
+        EnumMap<Type, Long> result = new EnumMap<>(Type.class);
+        for (Type type : TYPES) {
+            result.put(type, counts[type.ordinal()]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns ids of theses matching given filter in the order in which
+     * they were loaded.
+     *
+     * @param filter criteria of the theses
+     * @param limit maximal number of returned ids
+     * @return ids of matching theses
+     */
+    public List<Long> findIds(CatalogFilter filter, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit is negative");
+        }
+        Predicate predicate = compile(filter);
+        List<Long> result = new ArrayList<>();
+        if (predicate == null) {
+            return result;
+        }
+        long[] words = new long[BLOCK_SIZE / 64];
+        for (int from = 0; from < size && result.size() < limit; from += BLOCK_SIZE) {
+            int to = Math.min(size, from + BLOCK_SIZE);
+            select(predicate, from, to, words);
+            for (int w = 0; w < words.length && result.size() < limit; w++) {
+                for (long word = words[w]; word != 0 && result.size() < limit; word &= word - 1) {
+                    result.add(ids[from + w * 64 + Long.numberOfTrailingZeros(word)]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns estimated number of bytes occupied by the columns, i.e. memory
+     * which grows with every thesis regardless of dictionaries.
+     *
+     * @return estimated size of the columns in bytes
+     */
+    public long estimateColumnBytes() {
+        return 6L * ARRAY_HEADER + (8L + 8 + 4 + 1 + 4 + 4) * size;
+    }
+
+    /**
+     * Returns estimated number of bytes occupied by the dictionaries of
+     * names and surnames.
+     *
+     * @return estimated size of the dictionaries in bytes
+     */
+    public long estimateDictionaryBytes() {
+        return dictionaryBytes(names) + dictionaryBytes(surnames);
+    }
+
+    private static long dictionaryBytes(String[] dictionary) {
+        long bytes = ARRAY_HEADER + 4L * dictionary.length;
+        for (String value : dictionary) {
+            boolean latin1 = true;
+            for (int i = 0; i < value.length() && latin1; i++) {
+                latin1 = value.charAt(i) <= 0xff;
+            }
+            bytes += STRING_OBJECT + ((ARRAY_HEADER + (long) value.length() * (latin1 ? 1 : 2) + 7) & ~7L);
+        }
+        return bytes;
+    }
+
+    private enum Grouping {
+        NONE, YEAR, TYPE
+    }
+
+    private long[] aggregate(CatalogFilter filter, Grouping grouping) {
+        Predicate predicate = compile(filter);
+        int groups = grouping == Grouping.NONE ? 1
+                : grouping == Grouping.TYPE ? TYPES.length
+                : size == 0 ? 0 : maxYear - minYear + 1;
+        if (predicate == null) {
+            return new long[groups];
+        }
+        return ForkJoinPool.commonPool().invoke(new Aggregation(predicate, grouping, groups, 0, size));
+    }
+
+    /**
+     * Aggregates matching rows of a range, ranges larger than the threshold
+     * are split in halves aggregated in parallel.
+     */
+    private final class Aggregation extends RecursiveTask<long[]> {
+
+        private final Predicate predicate;
+        private final Grouping grouping;
+        private final int groups;
+        private final int from;
+        private final int to;
+
+        Aggregation(Predicate predicate, Grouping grouping, int groups, int from, int to) {
+            this.predicate = predicate;
+            this.grouping = grouping;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                Aggregation second = new Aggregation(predicate, grouping, groups, middle, to);
+                second.fork();
+                long[] result = new Aggregation(predicate, grouping, groups, from, middle).compute();
+                long[] other = second.join();
+                for (int g = 0; g < groups; g++) {
+                    result[g] += other[g];
+                }
+                return result;
+            }
+
+            long[] result = new long[groups];
+            long[] words = new long[BLOCK_SIZE / 64];
+            for (int block = from; block < to; block += BLOCK_SIZE) {
+                int blockEnd = Math.min(to, block + BLOCK_SIZE);
+                select(predicate, block, blockEnd, words);
+                switch (grouping) {
+                    case NONE:
+                        for (long word : words) {
+                            result[0] += Long.bitCount(word);
+                        }
+                        break;
+                    case YEAR:
+                        for (int w = 0; w < words.length; w++) {
+                            for (long word = words[w]; word != 0; word &= word - 1) {
+                                result[years[block + w * 64 + Long.numberOfTrailingZeros(word)] - minYear]++;
+                            }
+                        }
+                        break;
+                    default:
+                        for (int w = 0; w < words.length; w++) {
+                            for (long word = words[w]; word != 0; word &= word - 1) {
+                                result[types[block + w * 64 + Long.numberOfTrailingZeros(word)]]++;
+                            }
+                        }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Sets bits of rows from given range which match the predicate, bit i
+     * stands for row from + i. The range is at most one block long.
+     */
+    private void select(Predicate predicate, int from, int to, long[] words) {
+        Arrays.fill(words, 0);
+        int typeMask = predicate.typeMask;
+        int yearFrom = predicate.yearFrom;
+        int yearTo = predicate.yearTo;
+        for (int i = from; i < to; i++) {
+            int year = years[i];
+            boolean match = ((typeMask >>> types[i]) & 1) != 0 & year >= yearFrom & year <= yearTo;
+            words[(i - from) >>> 6] |= (match ? 1L : 0L) << (i - from);
+        }
+        if (predicate.surnameCode >= 0) {
+            int code = predicate.surnameCode;
+            for (int i = from; i < to; i++) {
+                words[(i - from) >>> 6] &= ~((surnameCodes[i] != code ? 1L : 0L) << (i - from));
+            }
+        }
+        if (predicate.nameMatches != null) {
+            boolean[] nameMatches = predicate.nameMatches;
+            for (int i = from; i < to; i++) {
+                words[(i - from) >>> 6] &= ~((nameMatches[nameCodes[i]] ? 0L : 1L) << (i - from));
+            }
+        }
+        if (predicate.authorIds != null) {
+            // rare restriction, only rows which still match are looked up
+            for (int w = 0; w < words.length; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    if (Arrays.binarySearch(predicate.authorIds, authorIds[from + w * 64 + bit]) < 0) {
+                        words[w] &= ~(1L << bit);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Translates filter to values compared with the columns.
+     *
+     * @return predicate, or null when no thesis can match
+     */
+    private Predicate compile(CatalogFilter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("filter is null");
+        }
+        Predicate predicate = new Predicate();
+        if (filter.getTypes() == null) {
+            predicate.typeMask = (1 << TYPES.length) - 1;
+        } else {
+            for (Type type : filter.getTypes()) {
+                predicate.typeMask |= 1 << type.ordinal();
+            }
+        }
+        predicate.yearFrom = filter.getYearFrom() == null ? Integer.MIN_VALUE : filter.getYearFrom();
+        predicate.yearTo = filter.getYearTo() == null ? Integer.MAX_VALUE : filter.getYearTo();
+        if (predicate.typeMask == 0 || predicate.yearFrom > predicate.yearTo) {
+            return null;
+        }
+        if (filter.getAuthorSurname() != null) {
+            predicate.surnameCode = Arrays.binarySearch(surnames, filter.getAuthorSurname());
+            if (predicate.surnameCode < 0) {
+                return null;
+            }
+        }
+        if (filter.getNameContains() != null) {
+            // the dictionary is searched once instead of the name of every thesis
+            boolean[] nameMatches = new boolean[names.length];
+            boolean any = false;
+            for (int code = 0; code < names.length; code++) {
+                nameMatches[code] = names[code].contains(filter.getNameContains());
+                any |= nameMatches[code];
+            }
+            if (!any) {
+                return null;
+            }
+            predicate.nameMatches = nameMatches;
+        }
+        if (filter.getAuthorIds() != null) {
+            if (filter.getAuthorIds().isEmpty()) {
+                return null;
+            }
+            long[] sorted = new long[filter.getAuthorIds().size()];
+            int i = 0;
+            for (Long id : filter.getAuthorIds()) {
+                sorted[i++] = id;
+            }
+            Arrays.sort(sorted);
+            predicate.authorIds = sorted;
+        }
+        return predicate;
+    }
+
+    private static final class Predicate {
+
+        private int typeMask;
+        private int yearFrom;
+        private int yearTo;
+        /** Code of the required surname, -1 for any surname. */
+        private int surnameCode = -1;
+        /** Whether name with given code matches, null for any name. */
+        private boolean[] nameMatches;
+        /** Sorted ids of allowed authors, null for any author. */
+        private long[] authorIds;
+    }
+
+    /**
+     * Collects rows of new snapshot. Names and surnames get codes in the
+     * order in which they come; codes are renumbered by the sorted
+     * dictionaries when the snapshot is built.
+     */
+    static final class Builder {
+
+        private int size;
+        private long[] ids = new long[1024];
+        private long[] authorIds = new long[1024];
+        private int[] years = new int[1024];
+        private byte[] types = new byte[1024];
+        private int[] nameCodes = new int[1024];
+        private int[] surnameCodes = new int[1024];
+        private final Map<String, Integer> names = new HashMap<>();
+        private final Map<String, Integer> surnames = new HashMap<>();
+        private int minYear = Integer.MAX_VALUE;
+        private int maxYear = Integer.MIN_VALUE;
+
+        void add(long id, String name, int year, Type type, long authorId, String authorSurname) {
+            if (type == null) {
+                throw new IllegalArgumentException("type is null");
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                authorIds = Arrays.copyOf(authorIds, capacity);
+                years = Arrays.copyOf(years, capacity);
+                types = Arrays.copyOf(types, capacity);
+                nameCodes = Arrays.copyOf(nameCodes, capacity);
+                surnameCodes = Arrays.copyOf(surnameCodes, capacity);
+            }
+            ids[size] = id;
+            authorIds[size] = authorId;
+            years[size] = year;
+            types[size] = (byte) type.ordinal();
+            nameCodes[size] = code(names, name == null ? "" : name);
+            surnameCodes[size] = code(surnames, authorSurname == null ? "" : authorSurname);
+            minYear = Math.min(minYear, year);
+            maxYear = Math.max(maxYear, year);
+            size++;
+        }
+
+        private static int code(Map<String, Integer> dictionary, String value) {
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.put(value, code);
+            }
+            return code;
+        }
+
+        ThesisCatalogSnapshot build() {
+            String[] sortedNames = sorted(names);
+            String[] sortedSurnames = sorted(surnames);
+            return new ThesisCatalogSnapshot(this, recode(nameCodes, names, sortedNames), sortedNames,
+                    recode(surnameCodes, surnames, sortedSurnames), sortedSurnames);
+        }
+
+        private static String[] sorted(Map<String, Integer> dictionary) {
+            String[] result = dictionary.keySet().toArray(new String[dictionary.size()]);
+            Arrays.sort(result);
+            return result;
+        }
+
+        private int[] recode(int[] codes, Map<String, Integer> dictionary, String[] sorted) {
+            int[] newCodes = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                newCodes[dictionary.get(sorted[i])] = i;
+            }
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = newCodes[codes[i]];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ThesisMan;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ThesisCatalogSnapshot.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ThesisCatalogSnapshotTest {
+
+    private ThesisCatalogSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        ThesisCatalogSnapshot.Builder builder = new ThesisCatalogSnapshot.Builder();
+        builder.add(1, "Java Puzzlers", 2005, Type.PHD, 10, "Bloch");
+        builder.add(2, "Effective Java", 2008, Type.MASTER, 10, "Bloch");
+        builder.add(3, "Refactoring", 1999, Type.PHD, 20, "Fowler");
+        builder.add(4, "Refactoring", 2010, Type.BACHELOR, 30, "Beck");
+        builder.add(5, "Java Concurrency", 2006, Type.PHD, 40, "Goetz");
+        snapshot = builder.build();
+    }
+
+    @Test
+    public void emptyFilter() {
+        CatalogFilter filter = new CatalogFilter();
+        assertEquals(5, snapshot.size());
+        assertEquals(5, snapshot.count(filter));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), snapshot.findIds(filter, 10));
+        assertEquals(Arrays.asList(1L, 2L), snapshot.findIds(filter, 2));
+
+        EnumMap<Type, Long> byType = snapshot.countByType(filter);
+        assertEquals(Long.valueOf(1), byType.get(Type.BACHELOR));
+        assertEquals(Long.valueOf(1), byType.get(Type.MASTER));
+        assertEquals(Long.valueOf(3), byType.get(Type.PHD));
+
+        YearHistogram byYear = snapshot.countByYear(filter);
+        assertEquals(1999, byYear.getFirstYear());
+        assertEquals(2010, byYear.getLastYear());
+        assertEquals(5, byYear.getTotal());
+    }
+
+    @Test
+    public void filter() {
+        CatalogFilter filter = new CatalogFilter();
+        filter.setTypes(EnumSet.of(Type.PHD, Type.MASTER));
+        filter.setYearFrom(2000);
+        assertEquals(Arrays.asList(1L, 2L, 5L), snapshot.findIds(filter, 10));
+        assertEquals(new YearHistogram(2005, new long[]{1, 1, 0, 1}), snapshot.countByYear(filter));
+
+        filter.setNameContains("Java");
+        filter.setYearTo(2006);
+        assertEquals(Arrays.asList(1L, 5L), snapshot.findIds(filter, 10));
+
+        filter.setAuthorSurname("Bloch");
+        assertEquals(1, snapshot.count(filter));
+
+        filter = new CatalogFilter();
+        filter.setAuthorIds(Arrays.asList(40L, 20L));
+        assertEquals(Arrays.asList(3L, 5L), snapshot.findIds(filter, 10));
+    }
+
+    @Test
+    public void filterMatchingNothing() {
+        CatalogFilter filter = new CatalogFilter();
+        filter.setAuthorSurname("Knuth");
+        assertEquals(0, snapshot.count(filter));
+        assertTrue(snapshot.countByYear(filter).isEmpty());
+
+        filter = new CatalogFilter();
+        filter.setNameContains("java");
+        assertEquals(0, snapshot.count(filter));
+
+        filter = new CatalogFilter();
+        filter.setTypes(Collections.<Type>emptySet());
+        assertEquals(Long.valueOf(0), snapshot.countByType(filter).get(Type.PHD));
+
+        filter = new CatalogFilter();
+        filter.setYearFrom(2011);
+        assertTrue(snapshot.findIds(filter, 10).isEmpty());
+    }
+
+    @Test
+    public void emptySnapshot() {
+        ThesisCatalogSnapshot empty = new ThesisCatalogSnapshot.Builder().build();
+        CatalogFilter filter = new CatalogFilter();
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.count(filter));
+        assertTrue(empty.countByYear(filter).isEmpty());
+        assertTrue(empty.findIds(filter, 10).isEmpty());
+    }
+
+    @Test
+    public void largeSnapshotMatchesSequentialScan() {
+        // large enough to be split among threads and into several blocks
+        int size = 300000;
+        Type[] types = Type.values();
+        Random random = new Random(42);
+        ThesisCatalogSnapshot.Builder builder = new ThesisCatalogSnapshot.Builder();
+        int[] years = new int[size];
+        Type[] thesisTypes = new Type[size];
+        long[] authorIds = new long[size];
+        for (int i = 0; i < size; i++) {
+            years[i] = 1990 + random.nextInt(30);
+            thesisTypes[i] = types[random.nextInt(types.length)];
+            authorIds[i] = random.nextInt(1000);
+            builder.add(i, "Thesis " + random.nextInt(500), years[i], thesisTypes[i],
+                    authorIds[i], "Surname" + authorIds[i] % 100);
+        }
+        ThesisCatalogSnapshot large = builder.build();
+
+        CatalogFilter filter = new CatalogFilter();
+        filter.setTypes(EnumSet.of(Type.PHD));
+        filter.setYearFrom(2000);
+        filter.setYearTo(2009);
+        filter.setAuthorSurname("Surname7");
+        long expected = 0;
+        for (int i = 0; i < size; i++) {
+            if (thesisTypes[i] == Type.PHD && years[i] >= 2000 && years[i] <= 2009
+                    && authorIds[i] % 100 == 7) {
+                expected++;
+            }
+        }
+        assertEquals(expected, large.count(filter));
+        assertEquals(expected, large.countByYear(filter).getTotal());
+        assertEquals(Long.valueOf(expected), large.countByType(filter).get(Type.PHD));
+
+        List<Long> ids = large.findIds(filter, Integer.MAX_VALUE);
+        assertEquals(expected, ids.size());
+        for (long id : ids) {
+            assertEquals(7, authorIds[(int) id] % 100);
+        }
+    }
+
+    @Test
+    public void memory() {
+        // array headers aside, less than 32 bytes per thesis
+        assertTrue(snapshot.estimateColumnBytes() < 32L * snapshot.size() + 6 * 16);
+        assertTrue(snapshot.estimateDictionaryBytes() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullFilter() {
+        snapshot.count(null);
+    }
+}
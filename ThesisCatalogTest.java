@@ -0,0 +1,136 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ThesisCatalog.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ThesisCatalogTest {
+
+    private DataSource dataSource;
+    private StudentManagerImpl studentManager;
+    private ThesisManagerImpl thesisManager;
+    private ThesisCatalog catalog;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = prepareDataSource();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(dataSource);
+        thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(dataSource);
+        catalog = new ThesisCatalog(dataSource);
+        catalog.setFetchSize(2);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        catalog.close();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    private static DataSource prepareDataSource() throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:thesismgr-test");
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+
+    @Test
+    public void rebuild() throws ServiceFailureException {
+        assertEquals(0, catalog.getSnapshot().size());
+
+        Student bloch = newStudent("Joshua", "Bloch");
+        Student fowler = newStudent("Martin", "Fowler");
+        studentManager.createStudent(bloch);
+        studentManager.createStudent(fowler);
+        thesisManager.createTheses(Arrays.asList(
+                ThesisManagerImplTest.newThesis("Effective Java", Type.PHD, 2008, bloch),
+                ThesisManagerImplTest.newThesis("Java Puzzlers", Type.MASTER, 2005, bloch),
+                ThesisManagerImplTest.newThesis("Refactoring", Type.PHD, 1999, fowler)));
+
+        ThesisCatalogSnapshot old = catalog.getSnapshot();
+        ThesisCatalogSnapshot snapshot = catalog.rebuild();
+        assertSame(snapshot, catalog.getSnapshot());
+        assertEquals(0, old.size());
+        assertEquals(3, snapshot.size());
+
+        CatalogFilter filter = new CatalogFilter();
+        filter.setAuthorSurname("Bloch");
+        assertEquals(2, snapshot.count(filter));
+        filter.setAuthorIds(Arrays.asList(fowler.getId()));
+        assertEquals(0, snapshot.count(filter));
+
+        filter = new CatalogFilter();
+        filter.setNameContains("Refactor");
+        Thesis refactoring = thesisManager.getThesesForStudent(fowler).get(0);
+        assertEquals(Arrays.asList(refactoring.getId()), snapshot.findIds(filter, 10));
+    }
+
+    @Test
+    public void rebuildSkipsThesesWithMissingValues() throws ServiceFailureException, SQLException {
+        Student author = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(author);
+        thesisManager.createThesis(ThesisManagerImplTest.newThesis("Effective Java", Type.PHD, 2008, author));
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement st = conn.prepareStatement(
+                        "INSERT INTO thesis (authorId, name, type, yearOfPublication) VALUES (?, ?, ?, ?)")) {
+            st.setLong(1, author.getId());
+            st.setString(2, "Without year");
+            st.setString(3, Type.PHD.toString());
+            st.setNull(4, Types.INTEGER);
+            st.executeUpdate();
+            st.setString(2, "Without type");
+            st.setNull(3, Types.VARCHAR);
+            st.setInt(4, 2010);
+            st.executeUpdate();
+        }
+
+        ThesisCatalogSnapshot snapshot = catalog.rebuild();
+        assertEquals(1, snapshot.size());
+        assertEquals(new YearHistogram(2008, new long[]{1}), snapshot.countByYear(new CatalogFilter()));
+    }
+
+    @Test
+    public void scheduledRebuild() throws Exception {
+        Student author = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(author);
+        thesisManager.createThesis(ThesisManagerImplTest.newThesis("Effective Java", Type.PHD, 2008, author));
+
+        catalog.scheduleRebuild(10, TimeUnit.MILLISECONDS);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (catalog.getSnapshot().size() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, catalog.getSnapshot().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scheduleRebuildWithZeroPeriod() {
+        catalog.scheduleRebuild(0, TimeUnit.SECONDS);
+    }
+
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+
+        return student;
+    }
+}
@@ -1,6 +1,7 @@
 package ThesisMan;
 
 import ThesisManCommon.ServiceFailureException;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,21 +21,43 @@ public interface ThesisManager {
      */
     void createThesis(Thesis thesis) throws ServiceFailureException;
     
+    /**
+     * Stores all given theses into database. All theses are validated and 
+     * existence of all their authors is checked before anything is stored.
+     * Theses are inserted in batches and every batch is committed separately,
+     * so when db operation fails, theses from already committed batches stay
+     * in the database with their ids set and the remaining ones have null id.
+     * When called in a unit of work of {@link ThesisManCommon.TransactionManager},
+     * all batches are part of its transaction.
+     * 
+     * @param theses theses to be created
+     * @throws ServiceFailureException when db operation fails.
+     * @throws IllegalArgumentException when theses is null, contains null, 
+     * some thesis has already assigned id or its author does not exist.
+     */
+    void createTheses(Collection<Thesis> theses) throws ServiceFailureException;
+    
      /**
-     * Updates thesis in database.
+     * Updates thesis in database. Version of the thesis must match the version
+     * in database, it is increased by the update.
      * 
      * @param thesis updated thesis to be stored into database.
      * @throws ServiceFailureException when db operation fails.
      * @throws IllegalArgumentException when thesis is null, or thesis has null id.
+     * @throws ThesisManCommon.OptimisticLockException when the thesis was changed
+     * in database after it had been loaded.
      */
     void updateThesis(Thesis thesis) throws ServiceFailureException;
 
     /**
-     * Deletes thesis from database. 
+     * Deletes thesis from database. Version of the thesis must match the version
+     * in database.
      * 
      * @param thesis thesis to be deleted from db.
      * @throws ServiceFailureException when db operation fails.
      * @throws IllegalArgumentException when thesis is null, or thesis has null id.
+     * @throws ThesisManCommon.OptimisticLockException when the thesis was changed
+     * in database after it had been loaded.
      */
     void deleteThesis(Thesis thesis) throws ServiceFailureException;
     
@@ -65,4 +88,15 @@ public interface ThesisManager {
      * @throws ServiceFailureException when db operation fails.
      */
     List<Thesis> getAllTheses() throws ServiceFailureException;
+    
+    /**
+     * Returns theses which meet all criteria of given query, ordered and 
+     * limited as the query requests. The search is done by the database.
+     * 
+     * @param query criteria of the search
+     * @return list of found theses.
+     * @throws ServiceFailureException when db operation fails.
+     * @throws IllegalArgumentException when query is null.
+     */
+    List<Thesis> findTheses(ThesisQuery query) throws ServiceFailureException;
 }
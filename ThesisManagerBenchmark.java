@@ -0,0 +1,148 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of ThesisManagerImpl operations on in-memory Derby with given
+ * number of rows in the tables. Authors of theses are skewed, so 
+ * getThesesForStudent returns lists of very different lengths. Theses
+ * deleted by the delete benchmark are created before every iteration by
+ * {@link DeleteTargets}, which only the delete benchmark uses, so the
+ * tables of the other benchmarks do not grow.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ThesisManagerBenchmark {
+    
+    static final int DELETE_BATCH = 1000;
+    
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+    
+    private BenchmarkDatabase db;
+    private ThesisManagerImpl manager;
+    private final Random random = new Random(42);
+    private final List<Thesis> created = new ArrayList<>();
+    
+    /**
+     * Theses deleted by one iteration of {@link #deleteThesis(DeleteTargets)},
+     * the iteration runs exactly {@link #DELETE_BATCH} deletes. Their authors
+     * are chosen uniformly, so no author gets many more theses.
+     */
+    @State(Scope.Benchmark)
+    public static class DeleteTargets {
+        
+        private final Random random = new Random(7);
+        private final List<Thesis> theses = new ArrayList<>();
+        private int next;
+        
+        @Setup(Level.Iteration)
+        public void createTheses(ThesisManagerBenchmark benchmark) throws ServiceFailureException {
+            theses.clear();
+            List<Student> students = benchmark.db.students;
+            for (int i = 0; i < DELETE_BATCH; i++) {
+                theses.add(BenchmarkDatabase.newThesis("Refactoring", Type.MASTER, 1999,
+                        students.get(random.nextInt(students.size()))));
+            }
+            benchmark.manager.createTheses(theses);
+            next = 0;
+        }
+        
+        @TearDown(Level.Iteration)
+        public void deleteRest(ThesisManagerBenchmark benchmark) throws ServiceFailureException {
+            for (; next < theses.size(); next++) {
+                benchmark.manager.deleteThesis(theses.get(next));
+            }
+        }
+        
+        Thesis next() {
+            return theses.get(next++);
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, ServiceFailureException {
+        db = new BenchmarkDatabase("thesis-bench", rows);
+        manager = db.thesisManager;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.drop();
+    }
+    
+    @TearDown(Level.Iteration)
+    public void deleteCreated() throws ServiceFailureException {
+        for (Thesis thesis : created) {
+            manager.deleteThesis(thesis);
+        }
+        created.clear();
+    }
+    
+    @Benchmark
+    public Thesis createThesis() throws ServiceFailureException {
+        Thesis thesis = BenchmarkDatabase.newThesis("Effective Java", Type.PHD, 2001, db.skewedStudent(random));
+        manager.createThesis(thesis);
+        created.add(thesis);
+        return thesis;
+    }
+    
+    @Benchmark
+    public Thesis getThesisById() throws ServiceFailureException {
+        return manager.getThesisById(db.theses.get(random.nextInt(db.theses.size())).getId());
+    }
+    
+    @Benchmark
+    public Thesis updateThesis() throws ServiceFailureException {
+        Thesis thesis = db.theses.get(random.nextInt(db.theses.size()));
+        manager.updateThesis(thesis);
+        return thesis;
+    }
+    
+    /**
+     * Score is the time of {@link #DELETE_BATCH} deletes.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = DELETE_BATCH)
+    @Measurement(iterations = 5, batchSize = DELETE_BATCH)
+    public Thesis deleteThesis(DeleteTargets targets) throws ServiceFailureException {
+        Thesis thesis = targets.next();
+        manager.deleteThesis(thesis);
+        return thesis;
+    }
+    
+    @Benchmark
+    public List<Thesis> getAllTheses() throws ServiceFailureException {
+        return manager.getAllTheses();
+    }
+    
+    @Benchmark
+    public List<Thesis> getThesesForStudent() throws ServiceFailureException {
+        return manager.getThesesForStudent(db.skewedStudent(random));
+    }
+}
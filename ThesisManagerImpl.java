@@ -1,16 +1,24 @@
 package ThesisMan;
 
-import ThesisManCommon.ValidationException;
+import ThesisManCommon.DBUtils;
 import ThesisManCommon.ServiceFailureException;
 import ThesisManCommon.IllegalEntityException;
+import ThesisManCommon.ReadWriteDataSource;
 import ThesisManCommon.EntityNotFoundException;
+import ThesisManCommon.TransactionManager;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.sql.DataSource;
 
 
@@ -18,12 +26,145 @@ import javax.sql.DataSource;
  * Implements methods for ThesisManager.
  * @author peter
  */
-public class ThesisManagerImpl implements ThesisManager {
+public class ThesisManagerImpl implements ThesisManager, TransactionAware {
+    
+    /**
+     * Loads theses together with their authors in one query, so lists of 
+     * theses do not need separate query for every author.
+     */
+    static final String SELECT_THESIS_WITH_AUTHOR =
+            "SELECT thesis.id, thesis.name, thesis.yearOfPublication, thesis.type, "
+            + "thesis.version, thesis.authorId, student.name AS authorName, "
+            + "student.surname AS authorSurname, student.version AS authorVersion "
+            + "FROM thesis JOIN student ON thesis.authorId = student.id";
+    
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    
+    /**
+     * SQL statements generated by {@link #findTheses(ThesisQuery)} keyed by 
+     * the shape of the query. IN lists are padded, so the number of shapes
+     * and thus the number of statements compiled by the database stay small.
+     */
+    private static final int FIND_SQL_CACHE_SIZE = 64;
+    private static final Map<String, String> findSqlCache = 
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > FIND_SQL_CACHE_SIZE;
+        }
+    };
     
     private DataSource dataSource;
+    private TransactionManager transactions;
+    private ReadWriteDataSource readWrite;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private StudentIdentityMap authorIdentityMap;
+    private final ChangeEventPublisher<Thesis> changes = new ChangeEventPublisher<>();
     
+    /**
+     * Sets data source of the manager. Unless it is, or wraps, 
+     * {@link TransactionManager}, it is wrapped by a new one, so writes of
+     * this manager always run in transactions.
+     * <p>
+     * When the data source is, or wraps, {@link ReadWriteDataSource}, 
+     * read-only methods which do not run in a transaction read from its 
+     * replicas.
+     * 
+     * @param databSource data source
+     */
     public void setDataSource(DataSource databSource) {
-        this.dataSource = databSource;
+        this.dataSource = databSource == null ? null : TransactionManager.transactional(databSource);
+        this.transactions = databSource == null ? null : TransactionManager.of(this.dataSource);
+        this.readWrite = databSource == null ? null : ReadWriteDataSource.find(this.dataSource);
+    }
+    
+    @Override
+    public TransactionManager getTransactionManager() {
+        return transactions;
+    }
+    
+    /**
+     * Sets the number of rows sent to the database in one JDBC batch and 
+     * committed together by {@link #createTheses(Collection)}.
+     * 
+     * @param batchSize positive number of rows in one batch
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize is not positive");
+        }
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Sets identity map used for authors of loaded theses across all queries, 
+     * e.g. shared {@link WeakStudentIdentityMap}. When no map is set, every 
+     * query uses its own map, so theses loaded by one query share author
+     * instances.
+     * 
+     * @param authorIdentityMap identity map or null
+     */
+    public void setAuthorIdentityMap(StudentIdentityMap authorIdentityMap) {
+        this.authorIdentityMap = authorIdentityMap;
+    }
+    
+    /**
+     * Registers listener notified about every thesis created, updated or
+     * deleted by this manager, after the change is committed.
+     * 
+     * @param listener listener of the changes
+     */
+    public void addChangeListener(ChangeListener<Thesis> listener) {
+        changes.addListener(listener);
+    }
+    
+    public void removeChangeListener(ChangeListener<Thesis> listener) {
+        changes.removeListener(listener);
+    }
+    
+    /**
+     * Notifies listeners and pins the thread to the primary database for 
+     * reading after the write is committed.
+     */
+    private void written(ChangeEvent.Kind kind, Thesis thesis) {
+        if (readWrite != null) {
+            transactions.afterCommit(readWrite::markWritten);
+        }
+        if (changes.hasListeners()) {
+            changes.publish(transactions, new ChangeEvent<>(kind, copy(thesis)));
+        }
+    }
+    
+    private static Thesis copy(Thesis thesis) {
+        Student author = new Student();
+        author.setId(thesis.getAuthor().getId());
+        author.setName(thesis.getAuthor().getName());
+        author.setSurname(thesis.getAuthor().getSurname());
+        author.setVersion(thesis.getAuthor().getVersion());
+        Thesis result = new Thesis();
+        result.setId(thesis.getId());
+        result.setName(thesis.getName());
+        result.setYear(thesis.getYear());
+        result.setType(thesis.getType());
+        result.setAuthor(author);
+        result.setVersion(thesis.getVersion());
+        return result;
+    }
+    
+    private StudentIdentityMap authorIdentityMap() {
+        return authorIdentityMap != null ? authorIdentityMap : new StudentIdentityMap();
+    }
+    
+    /**
+     * Returns connection for read-only query, i.e. connection of a replica
+     * unless there are none or the query is a part of a transaction, which
+     * must see its own writes.
+     */
+    private Connection getReadConnection() throws SQLException {
+        if (readWrite == null || transactions.isInTransaction()) {
+            return dataSource.getConnection();
+        }
+        return readWrite.getReadConnection();
     }
     
     private void checkDataSource() {
@@ -59,32 +200,126 @@ public class ThesisManagerImpl implements ThesisManager {
             
             ResultSet keyRS = st.getGeneratedKeys();
             thesis.setId(getKey(keyRS, thesis));
+            thesis.setVersion(0);
             
         } catch (SQLException ex) {
             throw new ServiceFailureException("Error when inseting thesis " + thesis, ex);
         }     
+        written(ChangeEvent.Kind.CREATED, thesis);
     }
     
-    public void validate(Thesis thesis) throws IllegalArgumentException {
-        if (thesis == null) {
-            throw new IllegalArgumentException("thesis is null");
+    @Override
+    public void createTheses(Collection<Thesis> theses) throws ServiceFailureException {
+        checkDataSource();
+        if (theses == null) {
+            throw new IllegalArgumentException("theses is null");
         }
-        if (thesis.getName() == null) {
-            throw new ValidationException("thesis name is null");
+        Set<Long> authorIds = new HashSet<>();
+        for (Thesis thesis : theses) {
+            validate(thesis);
+            if (thesis.getId() != null) {
+                throw new IllegalEntityException("thesis id is already set");
+            }
+            if (thesis.getAuthor().getId() == null) {
+                throw new IllegalEntityException("author id is null");
+            }
+            authorIds.add(thesis.getAuthor().getId());
+        }
+        if (theses.isEmpty()) {
+            return;
         }
-        if (thesis.getName().equals("")) {
-            throw new ValidationException("thesis name is empty");
-        }           
-        if (thesis.getAuthor() == null) {
-            throw new ValidationException("author is null");
+        
+        List<Thesis> batch = new ArrayList<>(Math.min(batchSize, theses.size()));
+        try {
+            try (Connection conn = dataSource.getConnection()) {
+                checkAuthorsExist(conn, authorIds);
+            }
+            Iterator<Thesis> iterator = theses.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    insertBatch(batch);
+                    batch.clear();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new ServiceFailureException("Error when inserting " + theses.size() + " theses", ex);
+        } finally {
+            for (Thesis thesis : batch) {
+                thesis.setId(null);
+            }
         }
-        if (thesis.getYear() < 0 ) {
-            throw new ValidationException("year is negative");
+    }
+    
+    /**
+     * Inserts given theses in one transaction, or as a part of the running
+     * transaction.
+     */
+    private void insertBatch(List<Thesis> batch) throws SQLException, ServiceFailureException {
+        transactions.inTransaction(() -> {
+            try (Connection conn = dataSource.getConnection();
+                    Statement lock = conn.createStatement();
+                    PreparedStatement st = conn.prepareStatement(
+                    "INSERT INTO THESIS (name, type, yearOfPublication, authorId) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                // The table lock guarantees that no other transaction inserts 
+                // theses meanwhile, see DBUtils.getBatchIds(...)
+                lock.execute("LOCK TABLE thesis IN EXCLUSIVE MODE");
+                for (Thesis thesis : batch) {
+                    st.setString(1, thesis.getName());
+                    st.setString(2, thesis.getType().toString());
+                    st.setInt(3, thesis.getYear());
+                    st.setLong(4, thesis.getAuthor().getId());
+                    st.addBatch();
+                }
+                DBUtils.checkBatchUpdatesCount(st.executeBatch(), batch.size());
+                long[] ids = DBUtils.getBatchIds(st, batch.size());
+                for (int i = 0; i < ids.length; i++) {
+                    batch.get(i).setId(ids[i]);
+                    batch.get(i).setVersion(0);
+                }
+            }
+            for (Thesis thesis : batch) {
+                written(ChangeEvent.Kind.CREATED, thesis);
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Checks that students with all given ids exist. Ids are looked up by 
+     * set-based queries, each of them with at most batchSize ids.
+     */
+    private void checkAuthorsExist(Connection conn, Set<Long> authorIds) throws SQLException {
+        Set<Long> missing = new HashSet<>(authorIds);
+        List<Long> ids = new ArrayList<>(authorIds);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            StringBuilder sql = new StringBuilder("SELECT id FROM student WHERE id IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+            
+            try (PreparedStatement st = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    st.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = st.executeQuery()) {
+                    while (rs.next()) {
+                        missing.remove(rs.getLong(1));
+                    }
+                }
+            }
         }
-        if (thesis.getType() == null) {
-            throw new ValidationException("type is null");
+        if (!missing.isEmpty()) {
+            throw new IllegalEntityException("Authors with ids " + missing + " do not exist in the db");
         }
     }
+    
+    public void validate(Thesis thesis) throws IllegalArgumentException {
+        EntityValidator.INSTANCE.validate(thesis);
+    }
 
     @Override
     public void updateThesis(Thesis thesis) throws ServiceFailureException {
@@ -97,24 +332,29 @@ public class ThesisManagerImpl implements ThesisManager {
         
         try(Connection connection = dataSource.getConnection();
                 PreparedStatement st = connection.prepareStatement(
-                "UPDATE Thesis SET name = ?, yearOfPublication = ?, type = ?,  authorId = ? WHERE id = ?")){
+                "UPDATE Thesis SET name = ?, yearOfPublication = ?, type = ?,  authorId = ?, "
+                + "version = version + 1 WHERE id = ? AND version = ?")){
             
             st.setString(1, thesis.getName());
             st.setInt(2, thesis.getYear());
             st.setObject(3, thesis.getType().toString());
             st.setLong(4, thesis.getAuthor().getId());
             st.setLong(5, thesis.getId());
+            st.setInt(6, thesis.getVersion());
             
             int count = st.executeUpdate();
             if (count == 0) {
+                DBUtils.checkVersionConflict(connection, "thesis", thesis.getId(), thesis);
                 throw new EntityNotFoundException("Thesis " + thesis + " was not found in database!");
             } else if (count != 1) {
                 throw new ServiceFailureException("Invalid updated rows count detected (one row should be updated): " + count);
             }
+            thesis.setVersion(thesis.getVersion() + 1);
         } catch (SQLException ex) {
             throw new ServiceFailureException(
                     "Error when updating thesis " + thesis, ex);
         }        
+        written(ChangeEvent.Kind.UPDATED, thesis);
     }
 
     @Override
@@ -128,12 +368,14 @@ public class ThesisManagerImpl implements ThesisManager {
         }
         try (Connection connection = dataSource.getConnection();
                PreparedStatement st = connection.prepareStatement(
-               "DELETE FROM thesis WHERE id = ?")){
+               "DELETE FROM thesis WHERE id = ? AND version = ?")){
             
             st.setLong(1, thesis.getId());
+            st.setInt(2, thesis.getVersion());
            
             int count = st.executeUpdate();
             if (count == 0) {
+                DBUtils.checkVersionConflict(connection, "thesis", thesis.getId(), thesis);
                 throw new IllegalArgumentException("thesis " + thesis + " was not found in database!");
             } else if (count != 1) {
                 throw new ServiceFailureException("Invalid deleted rows count detected (one row should be updated): " + count);
@@ -143,6 +385,7 @@ public class ThesisManagerImpl implements ThesisManager {
             throw new ServiceFailureException(
                     "Error when updating thesis " + thesis, ex);
         }
+        written(ChangeEvent.Kind.DELETED, thesis);
     }
 
     @Override
@@ -153,20 +396,21 @@ public class ThesisManagerImpl implements ThesisManager {
             throw new IllegalArgumentException("id is null");
         }
         
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = getReadConnection();
              PreparedStatement st = connection.prepareStatement(
-             "SELECT id, name, type, yearOfPublication, authorId FROM thesis WHERE id = ?")) {
+             SELECT_THESIS_WITH_AUTHOR + " WHERE thesis.id = ?")) {
                             
                 st.setLong(1, id);
                 ResultSet rs = st.executeQuery();
                
                 if (rs.next()) {                   
-                    Thesis thesis = resultToThesis(rs, connection);
+                    StudentIdentityMap authors = authorIdentityMap();
+                    Thesis thesis = resultToThesis(rs, authors);
                    
                     if (rs.next()) {
                     throw new ServiceFailureException(
                             "Internal error: More entities with the same id found "
-                            + "(source id: " + id + ", found " + thesis + " and " + resultSetToThesis(rs));
+                            + "(source id: " + id + ", found " + thesis + " and " + resultToThesis(rs, authors));
                     }
                     
                     return thesis;
@@ -181,54 +425,21 @@ public class ThesisManagerImpl implements ThesisManager {
         } 
     }
     
-    private Thesis resultToThesis(ResultSet rs, Connection conn) throws SQLException, ServiceFailureException {
-        Thesis thesis = new Thesis();
-        thesis.setId(rs.getLong("id"));
-        thesis.setName(rs.getString("name"));
-        thesis.setYear(rs.getInt("yearofpublication"));
-        thesis.setType(Type.valueOf(rs.getString("type")));
-        thesis.setAuthor(null);
-       
-        Long authorId = rs.getLong("authorid");
-        
-        if (authorId == null) {
-            throw new IllegalArgumentException("authorId is null");
-        }
-        
-        try (PreparedStatement st = conn.prepareStatement(
-            "SELECT id, name, surname FROM student WHERE id = ?")) {
-                st.setLong(1, authorId);
-                ResultSet rset = st.executeQuery();
-            
-                if (rset.next()) {
-                    Student student = resultSetToStudent(rset);
-                    
-                    if (rset.next()) {
-                        throw new ServiceFailureException(
-                            "Internal error: More entities with the same id found "
-                            + "(source id: " + authorId + ", found " + student + " and " + resultSetToStudent(rset));
-                    }
-                
-                    thesis.setAuthor(student);
-                    return thesis;
-           
-                } else {
-                    return null;
-                }
-                
-        } catch (SQLException ex) {
-                    throw new ServiceFailureException(
-                    "Error when retrieving student with id " + authorId, ex);
-        }
-    }
-    
-    private Student resultSetToStudent(ResultSet rs) throws SQLException {
-        Student student = new Student();
-        student.setId(rs.getLong("id"));
-        student.setName(rs.getString("name"));
-        student.setSurname(rs.getString("surname"));
+    /**
+     * Maps one row of {@link #SELECT_THESIS_WITH_AUTHOR} to thesis together 
+     * with its author, so no additional query per row is needed.
+     * 
+     * @param rs result set positioned on the row to be mapped
+     * @param authors identity map which provides author instances
+     * @return thesis with author filled in
+     * @throws SQLException when reading of the row fails
+     */
+    Thesis resultToThesis(ResultSet rs, StudentIdentityMap authors) throws SQLException {
+        Thesis thesis = resultSetToThesis(rs);
+        thesis.setAuthor(authors.resolve(rs.getLong("authorId"), rs.getInt("authorVersion"),
+                rs.getString("authorName"), rs.getString("authorSurname")));
         
-        return student;
+        return thesis;
     }
     
     private Thesis resultSetToThesis(ResultSet rs) throws SQLException {
@@ -237,6 +448,7 @@ public class ThesisManagerImpl implements ThesisManager {
         thesis.setName(rs.getString("name"));
         thesis.setYear(rs.getInt("yearOfPublication"));
         thesis.setType(Type.valueOf(rs.getString("type")));
+        thesis.setVersion(rs.getInt("version"));
 
         return thesis;
     }
@@ -244,16 +456,17 @@ public class ThesisManagerImpl implements ThesisManager {
     @Override
     public List<Thesis> getAllTheses() throws ServiceFailureException {
         checkDataSource();
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = getReadConnection();
              PreparedStatement st = connection.prepareStatement(
-             "SELECT id, name, yearOfPublication, type, authorId FROM thesis")) {
+             SELECT_THESIS_WITH_AUTHOR)) {
             
             ResultSet rs = st.executeQuery();
             
             List<Thesis> result = new ArrayList<>();
+            StudentIdentityMap authors = authorIdentityMap();
 
             while (rs.next()) {                   
-                Thesis thesis = resultToThesis(rs, connection);       
+                Thesis thesis = resultToThesis(rs, authors);       
                 result.add(thesis);
                     
             } 
@@ -271,16 +484,17 @@ public class ThesisManagerImpl implements ThesisManager {
         if (student == null) {
             throw new IllegalArgumentException("student is null");
         }
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = getReadConnection();
              PreparedStatement st = connection.prepareStatement(
-             "SELECT id, name, yearOfPublication, type, authorId FROM thesis WHERE authorId = ?")) {
+             SELECT_THESIS_WITH_AUTHOR + " WHERE thesis.authorId = ?")) {
             
                 st.setLong(1, student.getId());
                 ResultSet rs = st.executeQuery();
                 
                 List<Thesis> result = new ArrayList<>();
+                StudentIdentityMap authors = authorIdentityMap();
                 while (rs.next()) {                   
-                    Thesis thesis = resultToThesis(rs, connection);
+                    Thesis thesis = resultToThesis(rs, authors);
                    
                     result.add(thesis);  
                 } 
@@ -292,6 +506,203 @@ public class ThesisManagerImpl implements ThesisManager {
         }
     }
     
+    @Override
+    public List<Thesis> findTheses(ThesisQuery query) throws ServiceFailureException {
+        checkDataSource();
+        if (query == null) {
+            throw new IllegalArgumentException("query is null");
+        }
+        Set<Type> types = query.getTypes();
+        Set<Long> authorIds = query.getAuthorIds();
+        if ((types != null && types.isEmpty()) 
+                || (authorIds != null && authorIds.isEmpty())
+                || (query.getLimit() != null && query.getLimit() == 0)) {
+            return new ArrayList<>();
+        }
+        
+        int authorParams = authorIds == null ? 0 : inListSize(authorIds.size());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement st = connection.prepareStatement(findSql(query, authorParams))) {
+            
+            int index = 1;
+            if (types != null) {
+                for (Type type : types) {
+                    st.setString(index++, type.toString());
+                }
+            }
+            if (query.getYearFrom() != null) {
+                st.setInt(index++, query.getYearFrom());
+            }
+            if (query.getYearTo() != null && !isSingleYear(query)) {
+                st.setInt(index++, query.getYearTo());
+            }
+            if (authorIds != null) {
+                long lastId = 0;
+                for (Long authorId : authorIds) {
+                    lastId = authorId;
+                    st.setLong(index++, authorId);
+                }
+                // padding of the IN list, repeated id does not change the result
+                for (int i = authorIds.size(); i < authorParams; i++) {
+                    st.setLong(index++, lastId);
+                }
+            }
+            if (query.getNameContains() != null) {
+                st.setString(index++, "%" + escapeLike(query.getNameContains()) + "%");
+            }
+            if (query.getIdFrom() != null) {
+                st.setLong(index++, query.getIdFrom());
+            }
+            if (query.getOffset() > 0 || query.getLimit() != null) {
+                st.setInt(index++, query.getOffset());
+            }
+            if (query.getLimit() != null) {
+                st.setInt(index++, query.getLimit());
+            }
+            
+            ResultSet rs = st.executeQuery();
+            List<Thesis> result = new ArrayList<>();
+            StudentIdentityMap authors = authorIdentityMap();
+            while (rs.next()) {
+                result.add(resultToThesis(rs, authors));
+            }
+            return result;
+            
+        } catch (SQLException ex) {
+            throw new ServiceFailureException(
+                    "Error when searching theses " + query, ex);
+        }
+    }
+    
+    /**
+     * Returns SQL statement for given query. Parameters are in the order of 
+     * criteria in {@link ThesisQuery}, paging parameters are the last ones.
+     */
+    private static String findSql(ThesisQuery query, int authorParams) {
+        int typeParams = query.getTypes() == null ? 0 : query.getTypes().size();
+        boolean paged = query.getOffset() > 0 || query.getLimit() != null;
+        String shape = typeParams 
+                + (isSingleYear(query) ? "Y" : query.getYearFrom() != null ? "F" : "-")
+                + (query.getYearTo() != null ? "T" : "-")
+                + authorParams
+                + (query.getNameContains() != null ? "N" : "-")
+                + (query.getIdFrom() != null ? "I" : "-")
+                + query.getSortBy() + (query.isAscending() ? "+" : "-")
+                + (paged ? "O" : "-")
+                + (query.getLimit() != null ? "L" : "-");
+        
+        synchronized (findSqlCache) {
+            String sql = findSqlCache.get(shape);
+            if (sql != null) {
+                return sql;
+            }
+        }
+        
+        StringBuilder sql = new StringBuilder(SELECT_THESIS_WITH_AUTHOR);
+        String separator = " WHERE ";
+        // equality is used where possible, Derby estimates it better than
+        // IN list or range and prefers the index on type and year then
+        if (typeParams == 1) {
+            sql.append(separator).append("thesis.type = ?");
+            separator = " AND ";
+        } else if (typeParams > 1) {
+            sql.append(separator).append("thesis.type IN (");
+            appendParams(sql, typeParams);
+            sql.append(')');
+            separator = " AND ";
+        }
+        if (isSingleYear(query)) {
+            sql.append(separator).append("thesis.yearOfPublication = ?");
+            separator = " AND ";
+        } else if (query.getYearFrom() != null) {
+            sql.append(separator).append("thesis.yearOfPublication >= ?");
+            separator = " AND ";
+        }
+        if (query.getYearTo() != null && !isSingleYear(query)) {
+            sql.append(separator).append("thesis.yearOfPublication <= ?");
+            separator = " AND ";
+        }
+        if (authorParams > 0) {
+            sql.append(separator).append("thesis.authorId IN (");
+            appendParams(sql, authorParams);
+            sql.append(')');
+            separator = " AND ";
+        }
+        if (query.getNameContains() != null) {
+            sql.append(separator).append("thesis.name LIKE ? ESCAPE '\\'");
+            separator = " AND ";
+        }
+        if (query.getIdFrom() != null) {
+            sql.append(separator).append("thesis.id >= ?");
+        }
+        
+        sql.append(" ORDER BY ").append(sortColumn(query.getSortBy()));
+        sql.append(query.isAscending() ? " ASC" : " DESC");
+        if (query.getSortBy() != ThesisQuery.SortBy.ID) {
+            sql.append(", thesis.id").append(query.isAscending() ? " ASC" : " DESC");
+        }
+        if (paged) {
+            sql.append(" OFFSET ? ROWS");
+        }
+        if (query.getLimit() != null) {
+            sql.append(" FETCH NEXT ? ROWS ONLY");
+        }
+        
+        synchronized (findSqlCache) {
+            findSqlCache.put(shape, sql.toString());
+        }
+        return sql.toString();
+    }
+    
+    private static boolean isSingleYear(ThesisQuery query) {
+        return query.getYearFrom() != null && query.getYearFrom().equals(query.getYearTo());
+    }
+    
+    private static void appendParams(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+    }
+    
+    private static String sortColumn(ThesisQuery.SortBy sortBy) {
+        switch (sortBy) {
+            case NAME:
+                return "thesis.name";
+            case YEAR:
+                return "thesis.yearOfPublication";
+            case TYPE:
+                return "thesis.type";
+            default:
+                return "thesis.id";
+        }
+    }
+    
+    /**
+     * Number of parameters in IN list for given number of values. Small lists
+     * are padded to the power of two, larger ones to the multiple of 64.
+     */
+    private static int inListSize(int count) {
+        if (count <= 1) {
+            return count;
+        }
+        if (count > 64) {
+            return (count + 63) / 64 * 64;
+        }
+        return Integer.highestOneBit(count - 1) << 1;
+    }
+    
+    private static String escapeLike(String text) {
+        StringBuilder result = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' || c == '%' || c == '_') {
+                result.append('\\');
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+    
      private Long getKey(ResultSet keyRS, Thesis thesis) throws ServiceFailureException, SQLException {
         if (keyRS.next()) {
             if (keyRS.getMetaData().getColumnCount() != 1) {
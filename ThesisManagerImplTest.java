@@ -4,11 +4,21 @@ import ThesisManCommon.DBUtils;
 import ThesisManCommon.ValidationException;
 import ThesisManCommon.ServiceFailureException;
 import ThesisManCommon.IllegalEntityException;
+import ThesisManCommon.OptimisticLockException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import static junit.framework.Assert.assertEquals;
 import static org.hamcrest.CoreMatchers.*;
 import org.junit.Before;
@@ -127,6 +137,67 @@ public class ThesisManagerImplTest {
         manager.createThesis(thesis);
     }
 
+    @Test
+    public void createTheses() throws ServiceFailureException {
+        student = createStudent();
+        Student student2 = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(student2);
+        
+        manager.setBatchSize(3);
+        List<Thesis> theses = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            theses.add(newThesis("Thesis" + i, Type.MASTER, 2000 + i, i % 2 == 0 ? student : student2));
+        }
+        
+        manager.createTheses(theses);
+        
+        for (Thesis thesis : theses) {
+            assertNotNull(thesis.getId());
+            assertDeepEquals(thesis, manager.getThesisById(thesis.getId()));
+        }
+        assertEquals(7, manager.getAllTheses().size());
+    }
+    
+    @Test
+    public void createThesesWithNonExistingAuthor() throws ServiceFailureException {
+        student = createStudent();
+        Student missing = newStudent("Joshua", "Bloch");
+        missing.setId(student.getId() + 100);
+        List<Thesis> theses = Arrays.asList(
+                newThesis("RocketScience", Type.MASTER, 2012, student),
+                newThesis("Math", Type.BACHELOR, 2003, missing));
+        
+        try {
+            manager.createTheses(theses);
+            fail("IllegalEntityException expected");
+        } catch (IllegalEntityException ex) {
+            // expected
+        }
+        assertTrue(manager.getAllTheses().isEmpty());
+        assertNull(theses.get(0).getId());
+    }
+    
+    @Test
+    public void createThesesValidatesAllBeforeInsert() throws ServiceFailureException {
+        student = createStudent();
+        List<Thesis> theses = Arrays.asList(
+                newThesis("RocketScience", Type.MASTER, 2012, student),
+                newThesis("Math", Type.BACHELOR, -1, student));
+        
+        try {
+            manager.createTheses(theses);
+            fail("ValidationException expected");
+        } catch (ValidationException ex) {
+            // expected
+        }
+        assertTrue(manager.getAllTheses().isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void createNullTheses() throws ServiceFailureException {
+        manager.createTheses(null);
+    }
+
     @Test
     public void updateThesisName() throws ServiceFailureException {
         student = createStudent();
@@ -144,6 +215,28 @@ public class ThesisManagerImplTest {
         assertThat(thesis.getYear(), is(equalTo(2012)));
     }
 
+    @Test
+    public void updateStaleThesis() throws ServiceFailureException {
+        student = createStudent();
+        Thesis thesis = newThesis("RocketScience", Type.MASTER, 2012, student);
+        manager.createThesis(thesis);
+        Thesis stale = manager.getThesisById(thesis.getId());
+
+        thesis.setName("NoScience");
+        manager.updateThesis(thesis);
+        assertEquals(1, thesis.getVersion());
+        assertEquals(1, manager.getThesisById(thesis.getId()).getVersion());
+
+        stale.setYear(1876);
+        try {
+            manager.updateThesis(stale);
+            fail("OptimisticLockException expected");
+        } catch (OptimisticLockException ex) {
+            // expected
+        }
+        assertThat(manager.getThesisById(thesis.getId()).getYear(), is(equalTo(2012)));
+    }
+
     @Test
     public void updateThesisType() throws ServiceFailureException {
         student = createStudent();
@@ -347,6 +440,215 @@ public class ThesisManagerImplTest {
         assertDeepEquals(expected, actual);
     }
 
+    @Test
+    public void getAllThesesUsesConstantNumberOfQueries() throws ServiceFailureException {
+        student = createStudent();
+        manager.createThesis(newThesis("RocketScience", Type.MASTER, 2012, student));
+
+        AtomicInteger queries = new AtomicInteger();
+        manager.setDataSource(countingDataSource(dataSource, queries));
+        assertEquals(1, manager.getAllTheses().size());
+        assertEquals(1, queries.get());
+
+        manager.setDataSource(dataSource);
+        for (int i = 0; i < 20; i++) {
+            Student author = newStudent("Author", "Number" + (char) ('A' + i));
+            studentManager.createStudent(author);
+            manager.createThesis(newThesis("Thesis" + i, Type.BACHELOR, 2000 + i, author));
+        }
+
+        queries.set(0);
+        manager.setDataSource(countingDataSource(dataSource, queries));
+        List<Thesis> theses = manager.getAllTheses();
+        assertEquals(21, theses.size());
+        assertEquals(1, queries.get());
+        for (Thesis thesis : theses) {
+            assertNotNull(thesis.getAuthor().getName());
+            assertNotNull(thesis.getAuthor().getSurname());
+        }
+    }
+
+    @Test
+    public void getThesesForStudentUsesConstantNumberOfQueries() throws ServiceFailureException {
+        student = createStudent();
+        manager.createThesis(newThesis("RocketScience", Type.MASTER, 2012, student));
+
+        AtomicInteger queries = new AtomicInteger();
+        manager.setDataSource(countingDataSource(dataSource, queries));
+        assertEquals(1, manager.getThesesForStudent(student).size());
+        assertEquals(1, queries.get());
+
+        manager.setDataSource(dataSource);
+        for (int i = 0; i < 20; i++) {
+            manager.createThesis(newThesis("Thesis" + i, Type.PHD, 2000 + i, student));
+        }
+
+        queries.set(0);
+        manager.setDataSource(countingDataSource(dataSource, queries));
+        List<Thesis> theses = manager.getThesesForStudent(student);
+        assertEquals(21, theses.size());
+        assertEquals(1, queries.get());
+        for (Thesis thesis : theses) {
+            assertDeepEquals(student, thesis.getAuthor());
+        }
+    }
+
+    @Test
+    public void thesesOfOneAuthorShareAuthorInstance() throws ServiceFailureException {
+        student = createStudent();
+        Student student2 = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(student2);
+        for (int i = 0; i < 50; i++) {
+            manager.createThesis(newThesis("Thesis" + i, Type.MASTER, 2000, i < 40 ? student : student2));
+        }
+
+        List<Thesis> theses = manager.getAllTheses();
+
+        // footprint of the authors: one Student with its name and surname 
+        // per author instead of one per thesis
+        Set<Object> retained = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        for (Thesis thesis : theses) {
+            retained.add(thesis.getAuthor());
+            retained.add(thesis.getAuthor().getName());
+            retained.add(thesis.getAuthor().getSurname());
+        }
+        assertEquals(50, theses.size());
+        assertEquals(2 * 3, retained.size());
+        
+        List<Thesis> forStudent = manager.getThesesForStudent(student);
+        assertEquals(40, forStudent.size());
+        for (Thesis thesis : forStudent) {
+            assertSame(forStudent.get(0).getAuthor(), thesis.getAuthor());
+        }
+    }
+
+    @Test
+    public void sharedIdentityMapReusesAuthorsAcrossQueries() throws ServiceFailureException {
+        student = createStudent();
+        Thesis thesis = newThesis("RocketScience", Type.MASTER, 2012, student);
+        manager.createThesis(thesis);
+        manager.setAuthorIdentityMap(new WeakStudentIdentityMap());
+
+        Student author = manager.getAllTheses().get(0).getAuthor();
+        assertSame(author, manager.getThesisById(thesis.getId()).getAuthor());
+        assertSame(author, manager.getThesesForStudent(student).get(0).getAuthor());
+
+        student.setSurname("Bloch");
+        studentManager.updateStudent(student);
+        Student updated = manager.getAllTheses().get(0).getAuthor();
+        assertNotSame(author, updated);
+        assertEquals("Bloch", updated.getSurname());
+        assertEquals("Mad", author.getSurname());
+    }
+
+    @Test
+    public void modifiedAuthorIsNotReturnedBySharedIdentityMap() throws ServiceFailureException {
+        student = createStudent();
+        Thesis thesis = newThesis("RocketScience", Type.MASTER, 2012, student);
+        manager.createThesis(thesis);
+        manager.setAuthorIdentityMap(new WeakStudentIdentityMap());
+
+        Student author = manager.getThesisById(thesis.getId()).getAuthor();
+        author.setSurname("Bloch");
+        Student loaded = manager.getThesisById(thesis.getId()).getAuthor();
+        assertNotSame(author, loaded);
+        assertEquals(student.getSurname(), loaded.getSurname());
+        assertSame(loaded, manager.getAllTheses().get(0).getAuthor());
+    }
+
+    @Test
+    public void findTheses() throws ServiceFailureException {
+        student = createStudent();
+        Student student2 = newStudent("Joshua", "Bloch");
+        studentManager.createStudent(student2);
+        Thesis t1 = newThesis("Rocket Science", Type.PHD, 2010, student);
+        Thesis t2 = newThesis("Rocket Math", Type.PHD, 2015, student2);
+        Thesis t3 = newThesis("Math", Type.MASTER, 2012, student);
+        Thesis t4 = newThesis("Science 100%", Type.PHD, 2016, student2);
+        manager.createTheses(Arrays.asList(t1, t2, t3, t4));
+
+        ThesisQuery query = new ThesisQuery();
+        assertEquals(Arrays.asList(t1, t2, t3, t4), manager.findTheses(query));
+
+        query.setTypes(Arrays.asList(Type.PHD));
+        query.setYearFrom(2010);
+        query.setYearTo(2015);
+        assertEquals(Arrays.asList(t1, t2), manager.findTheses(query));
+
+        query.setAuthorIds(Arrays.asList(student2.getId()));
+        assertEquals(Arrays.asList(t2), manager.findTheses(query));
+
+        query = new ThesisQuery();
+        query.setNameContains("Rocket");
+        query.setSortBy(ThesisQuery.SortBy.YEAR, false);
+        assertEquals(Arrays.asList(t2, t1), manager.findTheses(query));
+
+        query.setNameContains("0%");
+        assertEquals(Arrays.asList(t4), manager.findTheses(query));
+    }
+
+    @Test
+    public void findThesesWithPaging() throws ServiceFailureException {
+        student = createStudent();
+        List<Thesis> theses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            theses.add(newThesis("Thesis" + i, Type.BACHELOR, 2000 + i, student));
+        }
+        manager.createTheses(theses);
+
+        ThesisQuery query = new ThesisQuery();
+        query.setSortBy(ThesisQuery.SortBy.NAME, true);
+        query.setOffset(3);
+        query.setLimit(4);
+        assertEquals(theses.subList(3, 7), manager.findTheses(query));
+
+        query.setLimit(null);
+        assertEquals(theses.subList(3, 10), manager.findTheses(query));
+
+        query.setLimit(0);
+        assertTrue(manager.findTheses(query).isEmpty());
+    }
+
+    @Test
+    public void findThesesByKey() throws ServiceFailureException {
+        student = createStudent();
+        List<Thesis> theses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            theses.add(newThesis("Thesis" + i, Type.BACHELOR, 2000 + i, student));
+        }
+        manager.createTheses(theses);
+
+        ThesisQuery query = new ThesisQuery();
+        query.setLimit(4);
+        query.setIdFrom(theses.get(3).getId());
+        assertEquals(theses.subList(3, 7), manager.findTheses(query));
+
+        query.setIdFrom(theses.get(9).getId() + 1);
+        assertTrue(manager.findTheses(query).isEmpty());
+    }
+
+    @Test
+    public void findThesesWithEmptySets() throws ServiceFailureException {
+        student = createStudent();
+        manager.createThesis(newThesis("RocketScience", Type.MASTER, 2012, student));
+
+        ThesisQuery query = new ThesisQuery();
+        query.setTypes(new ArrayList<Type>());
+        assertTrue(manager.findTheses(query).isEmpty());
+
+        query = new ThesisQuery();
+        query.setAuthorIds(new ArrayList<Long>());
+        assertTrue(manager.findTheses(query).isEmpty());
+
+        query.setAuthorIds(Arrays.asList(student.getId(), student.getId() + 1, student.getId() + 2));
+        assertEquals(1, manager.findTheses(query).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void findThesesWithNullQuery() throws ServiceFailureException {
+        manager.findTheses(null);
+    }
+
     private static Comparator<Thesis> idComparator = new Comparator<Thesis>() {
         @Override
         public int compare(Thesis t1, Thesis t2) {
@@ -364,6 +666,56 @@ public class ThesisManagerImplTest {
         return thesis;
     }
 
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+
+        return student;
+    }
+
+    /**
+     * Wraps given data source so that every statement prepared on its 
+     * connections is counted.
+     */
+    private static DataSource countingDataSource(final DataSource target, final AtomicInteger counter) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object result = invokeTarget(target, method, args);
+                if (result instanceof Connection) {
+                    final Connection conn = (Connection) result;
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                            new Class<?>[]{Connection.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if (method.getName().startsWith("prepare")) {
+                                counter.incrementAndGet();
+                            }
+                            return invokeTarget(conn, method, args);
+                        }
+                    });
+                }
+                return result;
+            }
+        });
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private void assertDeepEquals(Student expected, Student actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getSurname(), actual.getSurname());
+    }
+
     private void assertDeepEquals(List<Thesis> expectedList, List<Thesis> actualList) {
         for (int i = 0; i < expectedList.size(); i++) {
             Thesis expected = expectedList.get(i);
@@ -0,0 +1,186 @@
+package ThesisMan;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Criteria for searching theses by {@link ThesisManager#findTheses(ThesisQuery)}.
+ * Criteria which are not set do not restrict the result, the criteria which
+ * are set must all be met. Set of types or author ids which is set but empty
+ * matches no thesis.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ThesisQuery {
+
+    /**
+     * Attribute by which found theses are sorted.
+     */
+    public enum SortBy {
+        ID, NAME, YEAR, TYPE
+    }
+
+    private Set<Type> types;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Set<Long> authorIds;
+    private String nameContains;
+    private Long idFrom;
+    private SortBy sortBy = SortBy.ID;
+    private boolean ascending = true;
+    private int offset;
+    private Integer limit;
+
+    public Set<Type> getTypes() {
+        return types == null ? null : Collections.unmodifiableSet(types);
+    }
+
+    /**
+     * Restricts result to theses of given types.
+     *
+     * @param types allowed types, or null for any type
+     */
+    public void setTypes(Collection<Type> types) {
+        this.types = types == null ? null
+                : types.isEmpty() ? EnumSet.noneOf(Type.class) : EnumSet.copyOf(types);
+    }
+
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    /**
+     * Restricts result to theses published in given year or later.
+     *
+     * @param yearFrom the first year, or null for no lower bound
+     */
+    public void setYearFrom(Integer yearFrom) {
+        this.yearFrom = yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    /**
+     * Restricts result to theses published in given year or sooner.
+     *
+     * @param yearTo the last year, or null for no upper bound
+     */
+    public void setYearTo(Integer yearTo) {
+        this.yearTo = yearTo;
+    }
+
+    public Set<Long> getAuthorIds() {
+        return authorIds == null ? null : Collections.unmodifiableSet(authorIds);
+    }
+
+    /**
+     * Restricts result to theses of given authors.
+     *
+     * @param authorIds ids of allowed authors, or null for any author
+     */
+    public void setAuthorIds(Collection<Long> authorIds) {
+        if (authorIds != null && authorIds.contains(null)) {
+            throw new IllegalArgumentException("authorIds contains null");
+        }
+        this.authorIds = authorIds == null ? null : new LinkedHashSet<>(authorIds);
+    }
+
+    public String getNameContains() {
+        return nameContains;
+    }
+
+    /**
+     * Restricts result to theses whose name contains given text. Comparison
+     * is case sensitive.
+     *
+     * @param nameContains text contained in the name, or null for any name
+     */
+    public void setNameContains(String nameContains) {
+        this.nameContains = nameContains;
+    }
+
+    public Long getIdFrom() {
+        return idFrom;
+    }
+
+    /**
+     * Restricts result to theses with given id or greater. Together with
+     * ascending order by id it pages through theses by key: the next page
+     * starts after the last id of the previous one, so the page does not
+     * shift when theses are deleted meanwhile and earlier theses are not
+     * skipped again like by offset.
+     *
+     * @param idFrom the least id, or null for no lower bound
+     */
+    public void setIdFrom(Long idFrom) {
+        this.idFrom = idFrom;
+    }
+
+    public SortBy getSortBy() {
+        return sortBy;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Sets order of found theses. Theses with the same value of sort
+     * attribute are ordered by id. Default order is ascending by id.
+     *
+     * @param sortBy attribute to sort by
+     * @param ascending true for ascending, false for descending order
+     */
+    public void setSortBy(SortBy sortBy, boolean ascending) {
+        if (sortBy == null) {
+            throw new IllegalArgumentException("sortBy is null");
+        }
+        this.sortBy = sortBy;
+        this.ascending = ascending;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Sets number of theses skipped at the beginning of the result.
+     *
+     * @param offset non-negative number of skipped theses
+     */
+    public void setOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset is negative");
+        }
+        this.offset = offset;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets maximal number of returned theses.
+     *
+     * @param limit non-negative number of theses, or null for no limit
+     */
+    public void setLimit(Integer limit) {
+        if (limit != null && limit < 0) {
+            throw new IllegalArgumentException("limit is negative");
+        }
+        this.limit = limit;
+    }
+
+    @Override
+    public String toString() {
+        return "ThesisQuery{" + "types=" + types + ", yearFrom=" + yearFrom + ", yearTo=" + yearTo
+                + ", authorIds=" + authorIds + ", nameContains=" + nameContains + ", idFrom=" + idFrom
+                + ", sortBy=" + sortBy
+                + ", ascending=" + ascending + ", offset=" + offset + ", limit=" + limit + '}';
+    }
+}
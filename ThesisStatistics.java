@@ -0,0 +1,54 @@
+package ThesisMan;
+
+import ThesisManCommon.ServiceFailureException;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Interface for statistics about theses. All statistics are computed by the
+ * database, only the resulting groups are transferred.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public interface ThesisStatistics {
+    
+    /**
+     * Returns number of theses of every type.
+     * 
+     * @return number of theses for every type, types without theses have zero.
+     * @throws ServiceFailureException when db operation fails.
+     */
+    EnumMap<Type, Long> countByType() throws ServiceFailureException;
+    
+    /**
+     * Returns number of theses published in every year, from the first to 
+     * the last year in which some thesis was published.
+     * 
+     * @param type type of counted theses, or null for all theses.
+     * @return histogram of years of publication.
+     * @throws ServiceFailureException when db operation fails.
+     */
+    YearHistogram countByYear(Type type) throws ServiceFailureException;
+    
+    /**
+     * Returns number of theses of given student.
+     * 
+     * @param student author of counted theses.
+     * @return number of theses of the student.
+     * @throws ServiceFailureException when db operation fails.
+     * @throws IllegalArgumentException when student is null, or student has null id.
+     */
+    long countThesesForStudent(Student student) throws ServiceFailureException;
+    
+    /**
+     * Returns students with the most theses, ordered by the number of theses
+     * from the highest one. Students with the same number of theses are 
+     * ordered by id.
+     * 
+     * @param n maximal number of returned students.
+     * @return at most n students with their numbers of theses.
+     * @throws ServiceFailureException when db operation fails.
+     * @throws IllegalArgumentException when n is negative.
+     */
+    List<AuthorThesisCount> getMostProlificAuthors(int n) throws ServiceFailureException;
+}
@@ -0,0 +1,167 @@
+package ThesisMan;
+
+import ThesisManCommon.IllegalEntityException;
+import ThesisManCommon.ServiceFailureException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import javax.sql.DataSource;
+
+/**
+ * Implements ThesisStatistics by GROUP BY queries. Counts by type and year 
+ * are read from the index on type and year and counts by author from the 
+ * index backing the author foreign key, so rows of the THESIS table itself
+ * are not read.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ThesisStatisticsImpl implements ThesisStatistics {
+    
+    private DataSource dataSource;
+    
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+    
+    private void checkDataSource() {
+        if (dataSource == null) {
+            throw new IllegalStateException("DataSource is not set");
+        }
+    }
+
+    @Override
+    public EnumMap<Type, Long> countByType() throws ServiceFailureException {
+        checkDataSource();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement st = connection.prepareStatement(
+             "SELECT type, COUNT(*) FROM thesis WHERE type IS NOT NULL "
+             + "GROUP BY type")) {
+            
+            ResultSet rs = st.executeQuery();
+            EnumMap<Type, Long> result = new EnumMap<>(Type.class);
+            for (Type type : Type.values()) {
+                result.put(type, 0L);
+            }
+            while (rs.next()) {
+                result.put(Type.valueOf(rs.getString(1)), rs.getLong(2));
+            }
+            return result;
+            
+        } catch (SQLException ex) {
+            throw new ServiceFailureException(
+                    "Error when counting theses by type", ex);
+        }
+    }
+
+    @Override
+    public YearHistogram countByYear(Type type) throws ServiceFailureException {
+        checkDataSource();
+        // theses without year are left out, they have no place in the histogram
+        String sql = "SELECT yearOfPublication, COUNT(*) FROM thesis "
+                + "WHERE yearOfPublication IS NOT NULL "
+                + (type == null ? "" : "AND type = ? ")
+                + "GROUP BY yearOfPublication ORDER BY yearOfPublication";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            
+            if (type != null) {
+                st.setString(1, type.toString());
+            }
+            ResultSet rs = st.executeQuery();
+            
+            // groups are ordered, so years and counts are filled in sequence
+            int[] years = new int[16];
+            long[] counts = new long[16];
+            int size = 0;
+            while (rs.next()) {
+                if (size == years.length) {
+                    years = Arrays.copyOf(years, size * 2);
+                    counts = Arrays.copyOf(counts, size * 2);
+                }
+                years[size] = rs.getInt(1);
+                counts[size] = rs.getLong(2);
+                size++;
+            }
+            if (size == 0) {
+                return new YearHistogram(0, new long[0]);
+            }
+            
+            int firstYear = years[0];
+            long[] histogram = new long[years[size - 1] - firstYear + 1];
+            for (int i = 0; i < size; i++) {
+                histogram[years[i] - firstYear] = counts[i];
+            }
+            return new YearHistogram(firstYear, histogram);
+            
+        } catch (SQLException ex) {
+            throw new ServiceFailureException(
+                    "Error when counting theses by year", ex);
+        }
+    }
+
+    @Override
+    public long countThesesForStudent(Student student) throws ServiceFailureException {
+        checkDataSource();
+        if (student == null) {
+            throw new IllegalArgumentException("student is null");
+        }
+        if (student.getId() == null) {
+            throw new IllegalEntityException("student id is null");
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement st = connection.prepareStatement(
+             "SELECT COUNT(*) FROM thesis WHERE authorId = ?")) {
+            
+            st.setLong(1, student.getId());
+            ResultSet rs = st.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+            
+        } catch (SQLException ex) {
+            throw new ServiceFailureException(
+                    "Error when counting theses of student " + student, ex);
+        }
+    }
+
+    @Override
+    public List<AuthorThesisCount> getMostProlificAuthors(int n) throws ServiceFailureException {
+        checkDataSource();
+        if (n < 0) {
+            throw new IllegalArgumentException("n is negative");
+        }
+        if (n == 0) {
+            return new ArrayList<>();
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement st = connection.prepareStatement(
+             "SELECT student.id, student.name, student.surname, student.version, counts.theses "
+             + "FROM (SELECT authorId, COUNT(*) AS theses FROM thesis GROUP BY authorId) counts "
+             + "JOIN student ON student.id = counts.authorId "
+             + "ORDER BY counts.theses DESC, student.id "
+             + "FETCH FIRST ? ROWS ONLY")) {
+            
+            st.setInt(1, n);
+            ResultSet rs = st.executeQuery();
+            // n may be far more than the number of authors
+            List<AuthorThesisCount> result = new ArrayList<>();
+            while (rs.next()) {
+                Student author = new Student();
+                author.setId(rs.getLong(1));
+                author.setName(rs.getString(2));
+                author.setSurname(rs.getString(3));
+                author.setVersion(rs.getInt(4));
+                result.add(new AuthorThesisCount(author, rs.getLong(5)));
+            }
+            return result;
+            
+        } catch (SQLException ex) {
+            throw new ServiceFailureException(
+                    "Error when retrieving most prolific authors", ex);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ThesisMan;
+
+import ThesisManCommon.DBUtils;
+import ThesisManCommon.ServiceFailureException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ThesisStatisticsImpl.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ThesisStatisticsImplTest {
+    
+    private ThesisStatisticsImpl statistics;
+    private ThesisManagerImpl thesisManager;
+    private StudentManagerImpl studentManager;
+    private DataSource dataSource;
+    
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = prepareDataSource();
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("createTables.sql"));
+        statistics = new ThesisStatisticsImpl();
+        statistics.setDataSource(dataSource);
+        thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(dataSource);
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(dataSource);
+    }
+    
+    @After
+    public void tearDown() throws SQLException {
+        DBUtils.executeSqlScript(dataSource, ThesisManager.class.getResource("dropTables.sql"));
+    }
+    
+    private static DataSource prepareDataSource() throws SQLException {
+        EmbeddedDataSource ds = new EmbeddedDataSource();
+        ds.setDatabaseName("memory:thesismgr-test");
+        ds.setCreateDatabase("create");
+        return ds;
+    }
+    
+    @Test
+    public void emptyStatistics() throws ServiceFailureException {
+        EnumMap<Type, Long> byType = statistics.countByType();
+        for (Type type : Type.values()) {
+            assertEquals(Long.valueOf(0), byType.get(type));
+        }
+        assertTrue(statistics.countByYear(null).isEmpty());
+        assertEquals(0, statistics.countByYear(null).getTotal());
+        assertTrue(statistics.getMostProlificAuthors(5).isEmpty());
+    }
+    
+    @Test
+    public void countByType() throws ServiceFailureException {
+        Student author = newStudent("Joshua", "Bloch");
+        thesisManager.createTheses(Arrays.asList(
+                ThesisManagerImplTest.newThesis("Math", Type.PHD, 2010, author),
+                ThesisManagerImplTest.newThesis("Physics", Type.PHD, 2011, author),
+                ThesisManagerImplTest.newThesis("Biology", Type.MASTER, 2011, author)));
+        
+        EnumMap<Type, Long> byType = statistics.countByType();
+        assertEquals(Long.valueOf(0), byType.get(Type.BACHELOR));
+        assertEquals(Long.valueOf(1), byType.get(Type.MASTER));
+        assertEquals(Long.valueOf(2), byType.get(Type.PHD));
+    }
+    
+    @Test
+    public void countByYear() throws ServiceFailureException {
+        Student author = newStudent("Joshua", "Bloch");
+        thesisManager.createTheses(Arrays.asList(
+                ThesisManagerImplTest.newThesis("Math", Type.PHD, 2010, author),
+                ThesisManagerImplTest.newThesis("Physics", Type.PHD, 2013, author),
+                ThesisManagerImplTest.newThesis("Biology", Type.MASTER, 2013, author)));
+        
+        YearHistogram histogram = statistics.countByYear(null);
+        assertEquals(new YearHistogram(2010, new long[]{1, 0, 0, 2}), histogram);
+        assertEquals(2010, histogram.getFirstYear());
+        assertEquals(2013, histogram.getLastYear());
+        assertEquals(2, histogram.getCount(2013));
+        assertEquals(0, histogram.getCount(1999));
+        assertEquals(3, histogram.getTotal());
+        
+        assertEquals(new YearHistogram(2010, new long[]{1, 0, 0, 1}), statistics.countByYear(Type.PHD));
+        assertEquals(new YearHistogram(2013, new long[]{1}), statistics.countByYear(Type.MASTER));
+    }
+    
+    @Test
+    public void countThesesWithMissingValues() throws ServiceFailureException, SQLException {
+        Student author = newStudent("Joshua", "Bloch");
+        thesisManager.createTheses(Arrays.asList(
+                ThesisManagerImplTest.newThesis("Math", Type.PHD, 2010, author)));
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement st = conn.prepareStatement(
+                        "INSERT INTO thesis (authorId) VALUES (?)")) {
+            st.setLong(1, author.getId());
+            st.executeUpdate();
+        }
+        
+        EnumMap<Type, Long> byType = statistics.countByType();
+        assertEquals(Long.valueOf(1), byType.get(Type.PHD));
+        assertEquals(new YearHistogram(2010, new long[]{1}), statistics.countByYear(null));
+        assertEquals(new YearHistogram(2010, new long[]{1}), statistics.countByYear(Type.PHD));
+        assertEquals(2, statistics.countThesesForStudent(author));
+    }
+    
+    @Test
+    public void mostProlificAuthors() throws ServiceFailureException {
+        Student s1 = newStudent("Joshua", "Bloch");
+        Student s2 = newStudent("Martin", "Fowler");
+        Student s3 = newStudent("Kent", "Beck");
+        thesisManager.createTheses(Arrays.asList(
+                ThesisManagerImplTest.newThesis("Math", Type.PHD, 2010, s2),
+                ThesisManagerImplTest.newThesis("Physics", Type.PHD, 2013, s2),
+                ThesisManagerImplTest.newThesis("Biology", Type.MASTER, 2013, s3),
+                ThesisManagerImplTest.newThesis("Chemistry", Type.MASTER, 2013, s1)));
+        
+        List<AuthorThesisCount> top = statistics.getMostProlificAuthors(2);
+        assertEquals(2, top.size());
+        assertEquals(s2, top.get(0).getAuthor());
+        assertEquals(s2.getVersion(), top.get(0).getAuthor().getVersion());
+        assertEquals(2, top.get(0).getCount());
+        assertEquals(s1, top.get(1).getAuthor());
+        assertEquals(1, top.get(1).getCount());
+        
+        assertEquals(3, statistics.getMostProlificAuthors(10).size());
+        assertEquals(3, statistics.getMostProlificAuthors(Integer.MAX_VALUE).size());
+        assertEquals(2, statistics.countThesesForStudent(s2));
+        assertEquals(1, statistics.countThesesForStudent(s3));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void mostProlificAuthorsWithNegativeCount() throws ServiceFailureException {
+        statistics.getMostProlificAuthors(-1);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void countThesesForNullStudent() throws ServiceFailureException {
+        statistics.countThesesForStudent(null);
+    }
+    
+    private Student newStudent(String name, String surname) throws ServiceFailureException {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+        studentManager.createStudent(student);
+        return student;
+    }
+}
@@ -0,0 +1,462 @@
+package ThesisMan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index of thesis names. Names are split into terms at
+ * every character which is not a letter or digit, terms are lower-cased.
+ * Every term has posting list of ids of theses containing it, stored in
+ * primitive arrays sorted by id, so lists can be intersected and merged 
+ * without boxing.
+ * <p>
+ * Query consists of words separated by white space; word ending with '*' 
+ * matches all terms starting with it. Theses must contain all words, or 
+ * any of them, see {@link Match}. Found theses are ranked by tf-idf: rare
+ * terms weigh more than common ones, repeated terms weigh more but 
+ * sublinearly and terms of short names weigh more than terms of long names.
+ * <p>
+ * The index is thread-safe; searches run concurrently, changes are 
+ * exclusive.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ThesisTitleIndex {
+
+    /**
+     * How query words are combined.
+     */
+    public enum Match {
+        /** Thesis must match all query words. */
+        ALL,
+        /** Thesis must match at least one query word. */
+        ANY
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    /** Distinct terms of every indexed thesis, needed to remove it. */
+    private final Map<Long, String[]> documents = new HashMap<>();
+
+    /**
+     * Adds thesis to the index or replaces its previous name.
+     *
+     * @param thesis thesis with id and name
+     */
+    public void put(Thesis thesis) {
+        if (thesis == null) {
+            throw new IllegalArgumentException("thesis is null");
+        }
+        if (thesis.getId() == null) {
+            throw new IllegalArgumentException("thesis id is null");
+        }
+        put(thesis.getId(), thesis.getName());
+    }
+
+    /**
+     * Adds name of thesis with given id to the index or replaces its 
+     * previous name.
+     *
+     * @param id id of the thesis
+     * @param name name of the thesis, null is indexed as empty name
+     */
+    public void put(long id, String name) {
+        List<String> tokens = tokenize(name);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        // terms of short names weigh more than terms of long ones
+        float norm = tokens.isEmpty() ? 0 : (float) (1 / Math.sqrt(tokens.size()));
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            String[] documentTerms = new String[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings postings = terms.get(entry.getKey());
+                if (postings == null) {
+                    postings = new Postings(entry.getKey());
+                    terms.put(postings.term, postings);
+                }
+                postings.add(id, (float) (1 + Math.log(entry.getValue())) * norm);
+                documentTerms[i++] = postings.term;
+            }
+            documents.put(id, documentTerms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes thesis with given id from the index.
+     *
+     * @param id id of the thesis
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all theses from the index.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of indexed theses.
+     *
+     * @return number of theses
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of distinct terms in the index.
+     *
+     * @return number of terms
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeDocument(long id) {
+        String[] documentTerms = documents.remove(id);
+        if (documentTerms == null) {
+            return;
+        }
+        for (String term : documentTerms) {
+            Postings postings = terms.get(term);
+            postings.remove(id);
+            if (postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Finds theses matching given query.
+     *
+     * @param query words separated by white space, word ending with '*' is
+     * a prefix
+     * @param match whether all or any words must match
+     * @param limit maximal number of returned ids
+     * @return ids of found theses, the best match first
+     */
+    public List<Long> search(String query, Match match, int limit) {
+        if (query == null) {
+            throw new IllegalArgumentException("query is null");
+        }
+        if (match == null) {
+            throw new IllegalArgumentException("match is null");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit is negative");
+        }
+        List<QueryTerm> queryTerms = parse(query);
+        if (queryTerms.isEmpty() || limit == 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Hits> hits = new ArrayList<>(queryTerms.size());
+            for (QueryTerm queryTerm : queryTerms) {
+                Hits termHits = lookup(queryTerm);
+                if (termHits.size == 0 && match == Match.ALL) {
+                    return Collections.emptyList();
+                }
+                hits.add(termHits);
+            }
+            Hits result = match == Match.ALL ? intersect(hits) : merge(hits, 0, hits.size());
+            return top(result, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns hits of one query term with scores multiplied by idf of the
+     * matching terms.
+     */
+    private Hits lookup(QueryTerm queryTerm) {
+        if (!queryTerm.prefix) {
+            Postings postings = terms.get(queryTerm.text);
+            return postings == null ? Hits.EMPTY : new Hits(postings, idf(postings));
+        }
+        List<Hits> matching = new ArrayList<>();
+        for (Postings postings : terms.subMap(queryTerm.text, true,
+                queryTerm.text + Character.MAX_VALUE, false).values()) {
+            matching.add(new Hits(postings, idf(postings)));
+        }
+        return merge(matching, 0, matching.size());
+    }
+
+    private float idf(Postings postings) {
+        return (float) Math.log(1 + (double) documents.size() / postings.size);
+    }
+
+    /**
+     * Intersects hits, starting with the shortest list. Other lists are 
+     * searched by galloping from the last found position.
+     */
+    private static Hits intersect(List<Hits> hits) {
+        Hits[] sorted = hits.toArray(new Hits[hits.size()]);
+        Arrays.sort(sorted, (h1, h2) -> Integer.compare(h1.size, h2.size));
+        Hits shortest = sorted[0];
+        int[] positions = new int[sorted.length];
+        long[] ids = new long[shortest.size];
+        float[] scores = new float[shortest.size];
+        int size = 0;
+
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            long id = shortest.ids[i];
+            float score = shortest.score(i);
+            for (int h = 1; h < sorted.length; h++) {
+                int position = gallop(sorted[h], positions[h], id);
+                positions[h] = position;
+                if (position >= sorted[h].size) {
+                    break candidates;
+                }
+                if (sorted[h].ids[position] != id) {
+                    continue candidates;
+                }
+                score += sorted[h].score(position);
+            }
+            ids[size] = id;
+            scores[size] = score;
+            size++;
+        }
+        return new Hits(ids, scores, size);
+    }
+
+    /** Returns position of the first id not smaller than given one. */
+    private static int gallop(Hits hits, int from, long id) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < hits.size && hits.ids[high] < id) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, hits.size);
+        int index = Arrays.binarySearch(hits.ids, low, high, id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Merges hits from given range into one list, scores of the same id are
+     * summed up. Lists are merged pairwise like in merge sort.
+     */
+    private static Hits merge(List<Hits> hits, int from, int to) {
+        if (to - from == 0) {
+            return Hits.EMPTY;
+        }
+        if (to - from == 1) {
+            return hits.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        Hits first = merge(hits, from, middle);
+        Hits second = merge(hits, middle, to);
+        long[] ids = new long[first.size + second.size];
+        float[] scores = new float[ids.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < first.size || j < second.size) {
+            if (j == second.size || (i < first.size && first.ids[i] < second.ids[j])) {
+                ids[size] = first.ids[i];
+                scores[size++] = first.score(i++);
+            } else if (i == first.size || second.ids[j] < first.ids[i]) {
+                ids[size] = second.ids[j];
+                scores[size++] = second.score(j++);
+            } else {
+                ids[size] = first.ids[i];
+                scores[size++] = first.score(i++) + second.score(j++);
+            }
+        }
+        return new Hits(ids, scores, size);
+    }
+
+    /**
+     * Selects ids with the highest score by bounded heap; ties are broken 
+     * by id, so results are stable.
+     */
+    private static List<Long> top(final Hits hits, int limit) {
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.min(limit, hits.size) + 1,
+                (i1, i2) -> compare(hits, i1, i2));
+        for (int i = 0; i < hits.size; i++) {
+            if (heap.size() < limit) {
+                heap.add(i);
+            } else if (compare(hits, i, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        Long[] result = new Long[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = hits.ids[heap.poll()];
+        }
+        return Arrays.asList(result);
+    }
+
+    /** Compares hits by score, the better hit is greater. */
+    private static int compare(Hits hits, int i1, int i2) {
+        int result = Float.compare(hits.score(i1), hits.score(i2));
+        return result != 0 ? result : Long.compare(hits.ids[i2], hits.ids[i1]);
+    }
+
+    /**
+     * Splits text into lower-cased terms.
+     *
+     * @param text text to split, may be null
+     * @return terms in the order of the text
+     */
+    static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private static List<QueryTerm> parse(String query) {
+        List<QueryTerm> result = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = tokenize(word);
+            for (int i = 0; i < tokens.size(); i++) {
+                result.add(new QueryTerm(tokens.get(i), prefix && i == tokens.size() - 1));
+            }
+        }
+        return result;
+    }
+
+    private static final class QueryTerm {
+
+        private final String text;
+        private final boolean prefix;
+
+        QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * Posting list of one term: ids of theses sorted ascending together with
+     * normalized frequency of the term in their names. Ids usually come in 
+     * ascending order, so adding is mostly appending.
+     */
+    private static final class Postings {
+
+        private final String term;
+        private long[] ids = new long[2];
+        private float[] weights = new float[2];
+        private int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(long id, float weight) {
+            int index = size == 0 || ids[size - 1] < id ? size
+                    : -Arrays.binarySearch(ids, 0, size, id) - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(weights, index, weights, index + 1, size - index);
+            ids[index] = id;
+            weights[index] = weight;
+            size++;
+        }
+
+        void remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Scored ids sorted ascending. Hits of single term share arrays of its
+     * posting list, its weights are multiplied by idf when they are read.
+     */
+    private static final class Hits {
+
+        private static final Hits EMPTY = new Hits(new long[0], new float[0], 0);
+
+        private final long[] ids;
+        private final float[] weights;
+        private final float factor;
+        private final int size;
+
+        Hits(long[] ids, float[] scores, int size) {
+            this.ids = ids;
+            this.weights = scores;
+            this.factor = 1;
+            this.size = size;
+        }
+
+        Hits(Postings postings, float idf) {
+            this.ids = postings.ids;
+            this.weights = postings.weights;
+            this.factor = idf;
+            this.size = postings.size;
+        }
+
+        float score(int index) {
+            return weights[index] * factor;
+        }
+    }
+}
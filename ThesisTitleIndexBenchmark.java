@@ -0,0 +1,77 @@
+package ThesisMan;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of ThesisTitleIndex queries on one million generated names.
+ * Words of names follow Zipf-like distribution over vocabulary of 20000
+ * words, so some terms are in most names and most terms are rare.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ThesisTitleIndexBenchmark {
+
+    private static final int THESES = 1000000;
+    private static final int WORDS = 20000;
+
+    private final ThesisTitleIndex index = new ThesisTitleIndex();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder name = new StringBuilder();
+        for (int id = 1; id <= THESES; id++) {
+            name.setLength(0);
+            int length = 3 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                name.append(word(random)).append(' ');
+            }
+            index.put(id, name.toString());
+        }
+    }
+
+    /** Returns word with rank r chosen with probability about 1 / r. */
+    private static String word(Random random) {
+        int rank = (int) Math.pow(WORDS, random.nextDouble());
+        return "w" + Integer.toString(rank, 36);
+    }
+
+    @Benchmark
+    public List<Long> rareAndRareTerms() {
+        return index.search("w1a2 w2b3", ThesisTitleIndex.Match.ALL, 20);
+    }
+
+    @Benchmark
+    public List<Long> commonAndRareTerms() {
+        return index.search("w1 w3k1", ThesisTitleIndex.Match.ALL, 20);
+    }
+
+    @Benchmark
+    public List<Long> rareOrRareTerms() {
+        return index.search("w1a2 w2b3", ThesisTitleIndex.Match.ANY, 20);
+    }
+
+    @Benchmark
+    public List<Long> prefixAndTerm() {
+        return index.search("w3k* w5", ThesisTitleIndex.Match.ALL, 20);
+    }
+}
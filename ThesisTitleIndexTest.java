@@ -0,0 +1,93 @@
+package ThesisMan;
+
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for ThesisTitleIndex.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class ThesisTitleIndexTest {
+
+    private ThesisTitleIndex index;
+
+    @Before
+    public void setUp() {
+        index = new ThesisTitleIndex();
+        index.put(1, "Rocket Science for Beginners");
+        index.put(2, "Advanced rocket engines");
+        index.put(3, "Science of cooking");
+        index.put(4, "Rocket science, rocket engines and rocket fuel in the history of mankind");
+    }
+
+    @Test
+    public void tokenize() {
+        assertEquals(Arrays.asList("real", "time", "java", "8"),
+                ThesisTitleIndex.tokenize("Real-time  Java 8!"));
+        assertEquals(Collections.emptyList(), ThesisTitleIndex.tokenize(null));
+    }
+
+    @Test
+    public void searchAllWords() {
+        assertEquals(Arrays.asList(1L, 4L),
+                index.search("science ROCKET", ThesisTitleIndex.Match.ALL, 10));
+        assertEquals(Collections.emptyList(),
+                index.search("rocket cooking", ThesisTitleIndex.Match.ALL, 10));
+        assertEquals(Collections.emptyList(),
+                index.search("unknown", ThesisTitleIndex.Match.ALL, 10));
+    }
+
+    @Test
+    public void searchAnyWord() {
+        assertEquals(Arrays.asList(3L, 2L),
+                index.search("cooking engines", ThesisTitleIndex.Match.ANY, 2));
+        assertEquals(4, index.search("cooking rocket", ThesisTitleIndex.Match.ANY, 10).size());
+    }
+
+    @Test
+    public void shortNamesAreRankedFirst() {
+        assertEquals(Arrays.asList(3L, 1L, 4L),
+                index.search("science", ThesisTitleIndex.Match.ALL, 10));
+    }
+
+    @Test
+    public void searchPrefix() {
+        assertEquals(Arrays.asList(3L),
+                index.search("sci* cook*", ThesisTitleIndex.Match.ALL, 10));
+        assertEquals(Arrays.asList(2L, 4L),
+                index.search("eng*", ThesisTitleIndex.Match.ALL, 10));
+    }
+
+    @Test
+    public void putReplacesAndRemoveDeletes() {
+        index.put(3, "Rocket cooking");
+        assertEquals(Arrays.asList(3L),
+                index.search("rocket cooking", ThesisTitleIndex.Match.ALL, 10));
+        assertEquals(Collections.emptyList(),
+                index.search("science cooking", ThesisTitleIndex.Match.ALL, 10));
+
+        index.remove(3);
+        index.remove(42);
+        assertEquals(3, index.size());
+        assertEquals(Collections.emptyList(),
+                index.search("cooking", ThesisTitleIndex.Match.ANY, 10));
+    }
+
+    @Test
+    public void idsAddedOutOfOrder() {
+        index.put(0, "rocket");
+        index.put(-5, "rocket");
+        assertEquals(5, index.search("rocket", ThesisTitleIndex.Match.ANY, 10).size());
+        assertEquals(Arrays.asList(-5L, 0L),
+                index.search("rocket", ThesisTitleIndex.Match.ANY, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void searchWithNegativeLimit() {
+        index.search("rocket", ThesisTitleIndex.Match.ALL, -1);
+    }
+}
@@ -0,0 +1,491 @@
+package ThesisManCommon;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * DataSource which traces all statements executed on its connections. Every
+ * execution is timed and rows read from result sets are counted; statistics
+ * are aggregated per SQL text and can be read by {@link #getStatistics()}.
+ * Executions slower than given threshold are logged with their bound 
+ * parameters at level WARNING.
+ * <p>
+ * Overhead is one proxy call per JDBC call and a few lock-free counter 
+ * updates per execution, so the tracing can stay on in production. Number 
+ * of distinct SQL texts with their own statistics is limited, the rest is
+ * aggregated under {@value #OTHER_STATEMENTS}.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class TracingDataSource implements DataSource {
+
+    private static final Logger logger = Logger.getLogger(
+            TracingDataSource.class.getName());
+
+    public static final String OTHER_STATEMENTS = "(other statements)";
+
+    private static final int MAX_LOGGED_VALUE_LENGTH = 100;
+
+    private final DataSource target;
+    private final ConcurrentMap<String, Stats> statistics = new ConcurrentHashMap<>();
+    private volatile long slowQueryThresholdNanos = 500 * 1000000L;
+    private volatile int maxStatements = 1000;
+
+    public TracingDataSource(DataSource target) {
+        if (target == null) {
+            throw new IllegalArgumentException("target is null");
+        }
+        this.target = target;
+    }
+
+    /**
+     * Sets time of execution above which statement is logged.
+     *
+     * @param thresholdMillis non-negative time in milliseconds
+     */
+    public void setSlowQueryThresholdMillis(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("thresholdMillis is negative");
+        }
+        this.slowQueryThresholdNanos = thresholdMillis * 1000000L;
+    }
+
+    /**
+     * Sets maximal number of distinct SQL texts with their own statistics.
+     *
+     * @param maxStatements positive number of SQL texts
+     */
+    public void setMaxStatements(int maxStatements) {
+        if (maxStatements <= 0) {
+            throw new IllegalArgumentException("maxStatements is not positive");
+        }
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Returns statistics of all traced SQL texts.
+     *
+     * @return statistics sorted by total execution time, the longest first
+     */
+    public List<SqlStatistics> getStatistics() {
+        List<SqlStatistics> result = new ArrayList<>();
+        for (Stats stats : statistics.values()) {
+            result.add(stats.snapshot());
+        }
+        Collections.sort(result, new Comparator<SqlStatistics>() {
+            @Override
+            public int compare(SqlStatistics s1, SqlStatistics s2) {
+                return Long.compare(s2.getTotalNanos(), s1.getTotalNanos());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns statistics of given SQL text.
+     *
+     * @param sql SQL text as given to the connection
+     * @return statistics, or null when the SQL was not executed
+     */
+    public SqlStatistics getStatistics(String sql) {
+        Stats stats = statistics.get(sql);
+        return stats == null ? null : stats.snapshot();
+    }
+
+    /**
+     * Forgets all collected statistics.
+     */
+    public void resetStatistics() {
+        statistics.clear();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(target.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(target.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(conn));
+    }
+
+    private Stats statsFor(String sql) {
+        Stats stats = statistics.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        // the limit may be exceeded slightly by concurrent threads, never much
+        if (statistics.size() >= maxStatements) {
+            sql = OTHER_STATEMENTS;
+        }
+        return statistics.computeIfAbsent(sql, Stats::new);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static String format(Object value) {
+        if (value instanceof String) {
+            String text = (String) value;
+            if (text.length() > MAX_LOGGED_VALUE_LENGTH) {
+                text = text.substring(0, MAX_LOGGED_VALUE_LENGTH) + "...";
+            }
+            return "'" + text + "'";
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Aggregated statistics of one SQL text in one moment.
+     */
+    public static final class SqlStatistics {
+
+        private final String sql;
+        private final long count;
+        private final long errors;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long rows;
+
+        private SqlStatistics(String sql, long count, long errors, long totalNanos, long maxNanos, long rows) {
+            this.sql = sql;
+            this.count = count;
+            this.errors = errors;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.rows = rows;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Returns number of executions, including the failed ones.
+         *
+         * @return number of executions
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Returns number of rows read from result sets, or number of rows 
+         * changed by updates.
+         *
+         * @return number of rows
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        @Override
+        public String toString() {
+            return "SqlStatistics{" + "sql=" + sql + ", count=" + count + ", errors=" + errors
+                    + ", totalNanos=" + totalNanos + ", maxNanos=" + maxNanos + ", rows=" + rows + '}';
+        }
+    }
+
+    private static final class Stats {
+
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+
+        Stats(String sql) {
+            this.sql = sql;
+        }
+
+        SqlStatistics snapshot() {
+            return new SqlStatistics(sql, count.sum(), errors.sum(), totalNanos.sum(),
+                    maxNanos.get(), rows.sum());
+        }
+    }
+
+    /**
+     * Handles calls on traced connection. Statements are wrapped so that
+     * they are traced too.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(conn, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return wrap(proxy, (Statement) result, (String) args[0], PreparedStatement.class);
+                case "prepareCall":
+                    return wrap(proxy, (Statement) result, (String) args[0], CallableStatement.class);
+                case "createStatement":
+                    return wrap(proxy, (Statement) result, null, Statement.class);
+                default:
+                    return result;
+            }
+        }
+
+        private Statement wrap(Object proxy, Statement statement, String sql,
+                Class<? extends Statement> iface) {
+            return (Statement) Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface},
+                    new StatementHandler((Connection) proxy, statement, sql));
+        }
+    }
+
+    /**
+     * Handles calls on traced statement. Parameters bound by setXxx(index, 
+     * value) methods are remembered for the slow query log.
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final Statement statement;
+        private final String preparedSql;
+        private Object[] parameters = new Object[0];
+        private ResultSetHandler openResultSet;
+        private Stats lastStats;
+
+        StatementHandler(Connection connection, Statement statement, String preparedSql) {
+            this.connection = connection;
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer && method.getParameterTypes()[0] == int.class) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            }
+            switch (name) {
+                case "clearParameters":
+                    Arrays.fill(parameters, null);
+                    break;
+                case "close":
+                    flushRows();
+                    break;
+                case "getConnection":
+                    return connection;
+                case "getResultSet":
+                    ResultSet rs = (ResultSet) invokeTarget(statement, method, args);
+                    return rs == null || lastStats == null ? rs : wrap(proxy, rs, lastStats);
+                default:
+                    break;
+            }
+            return invokeTarget(statement, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            flushRows();
+            String sql = preparedSql != null || args == null || args.length == 0
+                    ? preparedSql : (String) args[0];
+            Stats stats = statsFor(sql == null ? OTHER_STATEMENTS : sql);
+            lastStats = stats;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(statement, method, args);
+            } catch (Throwable ex) {
+                record(stats, sql, System.nanoTime() - start);
+                stats.errors.increment();
+                throw ex;
+            }
+            record(stats, sql, System.nanoTime() - start);
+
+            if (result instanceof ResultSet) {
+                return wrap(proxy, (ResultSet) result, stats);
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                stats.rows.add(((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    stats.rows.add(Math.max(count, 0));
+                }
+            }
+            return result;
+        }
+
+        private void record(Stats stats, String sql, long nanos) {
+            stats.count.increment();
+            stats.totalNanos.add(nanos);
+            stats.maxNanos.accumulate(nanos);
+            if (nanos >= slowQueryThresholdNanos && logger.isLoggable(Level.WARNING)) {
+                logger.log(Level.WARNING, "Slow statement ({0} ms): {1} {2}",
+                        new Object[]{nanos / 1000000, sql, formatParameters()});
+            }
+        }
+
+        private String formatParameters() {
+            StringBuilder sb = new StringBuilder("[");
+            int last = parameters.length;
+            while (last > 0 && parameters[last - 1] == null) {
+                last--;
+            }
+            for (int i = 0; i < last; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(format(parameters[i]));
+            }
+            return sb.append(']').toString();
+        }
+
+        private ResultSet wrap(Object proxy, ResultSet rs, Stats stats) {
+            flushRows();
+            openResultSet = new ResultSetHandler((Statement) proxy, rs, stats);
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, openResultSet);
+        }
+
+        private void flushRows() {
+            if (openResultSet != null) {
+                openResultSet.flushRows();
+                openResultSet = null;
+            }
+        }
+    }
+
+    /**
+     * Handles calls on traced result set and counts rows read from it. The
+     * count is added to the statistics when the result set or its statement
+     * is closed.
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private final ResultSet rs;
+        private final Stats stats;
+        private long rows;
+
+        ResultSetHandler(Statement statement, ResultSet rs, Stats stats) {
+            this.statement = statement;
+            this.rs = rs;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    Object hasNext = invokeTarget(rs, method, args);
+                    if ((Boolean) hasNext) {
+                        rows++;
+                    }
+                    return hasNext;
+                case "close":
+                    flushRows();
+                    break;
+                case "getStatement":
+                    return statement;
+                default:
+                    break;
+            }
+            return invokeTarget(rs, method, args);
+        }
+
+        void flushRows() {
+            stats.rows.add(rows);
+            rows = 0;
+        }
+    }
+}
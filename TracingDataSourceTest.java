@@ -0,0 +1,156 @@
+package ThesisManCommon;
+
+import ThesisMan.Student;
+import ThesisMan.StudentManagerImpl;
+import ThesisMan.ThesisManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for TracingDataSource.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class TracingDataSourceTest {
+
+    private EmbeddedDataSource target;
+    private TracingDataSource tracing;
+    private final List<LogRecord> logged = new ArrayList<>();
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            logged.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Before
+    public void setUp() throws SQLException {
+        target = new EmbeddedDataSource();
+        target.setDatabaseName("memory:thesismgr-test");
+        target.setCreateDatabase("create");
+        DBUtils.executeSqlScript(target, ThesisManager.class.getResource("createTables.sql"));
+        tracing = new TracingDataSource(target);
+        Logger.getLogger(TracingDataSource.class.getName()).addHandler(handler);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        Logger.getLogger(TracingDataSource.class.getName()).removeHandler(handler);
+        DBUtils.executeSqlScript(target, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    @Test
+    public void statisticsAreAggregatedPerSql() throws Exception {
+        StudentManagerImpl manager = new StudentManagerImpl();
+        manager.setDataSource(tracing);
+        for (int i = 0; i < 3; i++) {
+            Student student = new Student();
+            student.setName("Joshua");
+            student.setSurname("Bloch");
+            manager.createStudent(student);
+        }
+        assertEquals(3, manager.findAllStudents().size());
+
+        TracingDataSource.SqlStatistics insert = findStatistics("INSERT INTO STUDENT");
+        assertEquals(3, insert.getCount());
+        assertEquals(3, insert.getRows());
+        assertEquals(0, insert.getErrors());
+        assertTrue(insert.getTotalNanos() >= insert.getMaxNanos());
+        assertTrue(insert.getMaxNanos() > 0);
+
+        TracingDataSource.SqlStatistics select = findStatistics("FROM student");
+        assertEquals(1, select.getCount());
+        assertEquals(3, select.getRows());
+    }
+
+    @Test
+    public void slowStatementIsLoggedWithParameters() throws SQLException {
+        tracing.setSlowQueryThresholdMillis(0);
+        String sql = "SELECT id FROM student WHERE name = ? AND id > ?";
+        try (Connection conn = tracing.getConnection();
+                PreparedStatement st = conn.prepareStatement(sql)) {
+            st.setString(1, "Joshua");
+            st.setLong(2, 42);
+            try (ResultSet rs = st.executeQuery()) {
+                assertFalse(rs.next());
+                assertSame(st, rs.getStatement());
+            }
+            assertSame(conn, st.getConnection());
+        }
+
+        assertEquals(1, logged.size());
+        Object[] parameters = logged.get(0).getParameters();
+        assertEquals(sql, parameters[1]);
+        assertEquals("['Joshua', 42]", parameters[2]);
+    }
+
+    @Test
+    public void fastStatementIsNotLogged() throws SQLException {
+        tracing.setSlowQueryThresholdMillis(60000);
+        try (Connection conn = tracing.getConnection();
+                Statement st = conn.createStatement()) {
+            st.executeQuery("SELECT id FROM student").close();
+        }
+        assertTrue(logged.isEmpty());
+        assertEquals(1, tracing.getStatistics("SELECT id FROM student").getCount());
+    }
+
+    @Test
+    public void failedExecutionIsCounted() throws SQLException {
+        String sql = "INSERT INTO thesis (authorId, name) VALUES (?, ?)";
+        try (Connection conn = tracing.getConnection();
+                PreparedStatement st = conn.prepareStatement(sql)) {
+            st.setLong(1, 42);
+            st.setString(2, "Math");
+            st.executeUpdate();
+            fail("SQLException expected");
+        } catch (SQLException ex) {
+            // author does not exist
+        }
+        assertEquals(1, tracing.getStatistics(sql).getErrors());
+    }
+
+    @Test
+    public void numberOfStatementsIsLimited() throws SQLException {
+        tracing.setMaxStatements(2);
+        try (Connection conn = tracing.getConnection();
+                Statement st = conn.createStatement()) {
+            st.executeQuery("SELECT id FROM student").close();
+            st.executeQuery("SELECT name FROM student").close();
+            st.executeQuery("SELECT surname FROM student").close();
+            st.executeQuery("SELECT id, name FROM student").close();
+        }
+        assertEquals(3, tracing.getStatistics().size());
+        assertEquals(2, tracing.getStatistics(TracingDataSource.OTHER_STATEMENTS).getCount());
+    }
+
+    private TracingDataSource.SqlStatistics findStatistics(String sqlPart) {
+        for (TracingDataSource.SqlStatistics statistics : tracing.getStatistics()) {
+            if (statistics.getSql().contains(sqlPart)) {
+                return statistics;
+            }
+        }
+        throw new AssertionError("No statistics of " + sqlPart);
+    }
+}
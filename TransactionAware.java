@@ -0,0 +1,42 @@
+package ThesisMan;
+
+import ThesisManCommon.TransactionManager;
+
+/**
+ * Manager whose writes take part in transactions of a
+ * {@link TransactionManager}. Decorators which keep copies of written
+ * entities, e.g. caches and indexes, use it to apply the writes only when
+ * they are committed; decorators which do not keep them pass the
+ * transaction manager of their delegate through.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+interface TransactionAware {
+
+    /**
+     * Returns transaction manager of the data source used for writes.
+     *
+     * @return transaction manager, or null when it is not known yet
+     */
+    TransactionManager getTransactionManager();
+
+    /**
+     * Runs given action after the transaction running in the current thread
+     * is committed by the transaction manager of given manager, see
+     * {@link TransactionManager#afterCommit(Runnable)}. Writes of managers
+     * without a transaction manager are committed when they return, so the
+     * action runs right now.
+     *
+     * @param manager manager which did the write
+     * @param action action run after commit
+     */
+    static void afterCommit(Object manager, Runnable action) {
+        TransactionManager transactions = manager instanceof TransactionAware
+                ? ((TransactionAware) manager).getTransactionManager() : null;
+        if (transactions != null) {
+            transactions.afterCommit(action);
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package ThesisManCommon;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * DataSource which runs units of work in transactions. During
+ * {@link #inTransaction(Work)} one connection is bound to the current 
+ * thread and every getConnection() call of this thread returns it, so 
+ * several manager calls share one connection and are committed together.
+ * When the unit of work fails, everything is rolled back. Outside of a 
+ * unit of work, connections of the wrapped DataSource are returned as 
+ * they are.
+ * <p>
+ * Bound connection must not be committed or rolled back directly, its 
+ * close() does nothing and autocommit mode can not be switched on. Nested
+ * units of work join the running transaction; when nested unit fails, the
+ * whole transaction is rolled back even if the exception was caught. Ids
+ * assigned to entities created by rolled back transaction are not cleared.
+ * Actions which must happen only when the changes are committed, e.g.
+ * notifications of other components, are registered by
+ * {@link #afterCommit(Runnable)}.
+ * <p>
+ * Managers should be given this DataSource, possibly wrapped by other 
+ * DataSources which support {@link DataSource#unwrap(Class)}, e.g.
+ * {@link TracingDataSource}.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class TransactionManager implements DataSource {
+
+    private static final Logger logger = Logger.getLogger(
+            TransactionManager.class.getName());
+
+    /**
+     * Unit of work run in a transaction.
+     *
+     * @param <T> type of the result
+     */
+    public interface Work<T> {
+
+        T execute() throws SQLException, ServiceFailureException;
+    }
+
+    private final DataSource target;
+    private final ThreadLocal<Transaction> current = new ThreadLocal<>();
+
+    public TransactionManager(DataSource target) {
+        if (target == null) {
+            throw new IllegalArgumentException("target is null");
+        }
+        this.target = target;
+    }
+
+    /**
+     * Returns given DataSource if it is, or wraps, a TransactionManager. 
+     * Otherwise returns new TransactionManager of given DataSource.
+     *
+     * @param dataSource data source
+     * @return data source whose connections take part in transactions
+     */
+    public static DataSource transactional(DataSource dataSource) {
+        return find(dataSource) != null ? dataSource : new TransactionManager(dataSource);
+    }
+
+    /**
+     * Returns TransactionManager which is given DataSource or is wrapped by 
+     * it.
+     *
+     * @param dataSource data source
+     * @return transaction manager
+     * @throws IllegalArgumentException when dataSource has no transaction
+     * manager
+     */
+    public static TransactionManager of(DataSource dataSource) {
+        TransactionManager result = find(dataSource);
+        if (result == null) {
+            throw new IllegalArgumentException("dataSource is not a TransactionManager");
+        }
+        return result;
+    }
+
+    private static TransactionManager find(DataSource dataSource) {
+        if (dataSource == null) {
+            throw new IllegalArgumentException("dataSource is null");
+        }
+        if (dataSource instanceof TransactionManager) {
+            return (TransactionManager) dataSource;
+        }
+        try {
+            if (dataSource.isWrapperFor(TransactionManager.class)) {
+                return dataSource.unwrap(TransactionManager.class);
+            }
+        } catch (SQLException ex) {
+            logger.log(Level.FINE, "DataSource can not be unwrapped", ex);
+        }
+        return null;
+    }
+
+    /**
+     * Returns true when the current thread runs a unit of work.
+     *
+     * @return true when a transaction is running
+     */
+    public boolean isInTransaction() {
+        return current.get() != null;
+    }
+
+    /**
+     * Runs given action after the transaction running in the current thread
+     * is committed, or right now when no transaction is running, because
+     * then the changes are committed already. Actions of rolled back 
+     * transactions are dropped. Actions run in the order of registration in
+     * the committing thread; their exceptions are logged and do not affect
+     * the other actions nor the result of the committed unit of work.
+     *
+     * @param action action run after commit
+     */
+    public void afterCommit(Runnable action) {
+        if (action == null) {
+            throw new IllegalArgumentException("action is null");
+        }
+        Transaction transaction = current.get();
+        if (transaction != null) {
+            transaction.afterCommit.add(action);
+        } else {
+            runQuietly(action);
+        }
+    }
+
+    private static void runQuietly(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "Action run after commit failed", ex);
+        }
+    }
+
+    /**
+     * Runs given unit of work in a transaction. When a transaction is 
+     * already running in the current thread, the work joins it. Otherwise 
+     * new transaction is started, committed when the work returns and 
+     * rolled back when it throws an exception.
+     *
+     * @param <T> type of the result
+     * @param work unit of work
+     * @return result of the work
+     * @throws SQLException when thrown by the work, or when the transaction
+     * can not be started or committed
+     * @throws ServiceFailureException when thrown by the work, or when 
+     * nested unit of work failed
+     */
+    public <T> T inTransaction(Work<T> work) throws SQLException, ServiceFailureException {
+        if (work == null) {
+            throw new IllegalArgumentException("work is null");
+        }
+        Transaction transaction = current.get();
+        if (transaction != null) {
+            try {
+                return work.execute();
+            } catch (SQLException | ServiceFailureException | RuntimeException | Error ex) {
+                transaction.rollbackOnly = true;
+                throw ex;
+            }
+        }
+
+        Connection conn = target.getConnection();
+        boolean committed = false;
+        T result;
+        try {
+            conn.setAutoCommit(false);
+            transaction = new Transaction(conn);
+            current.set(transaction);
+            result = work.execute();
+            if (transaction.rollbackOnly) {
+                throw new ServiceFailureException(
+                        "Transaction is rolled back, because its nested unit of work failed");
+            }
+            conn.commit();
+            committed = true;
+        } finally {
+            current.remove();
+            if (!committed && transaction != null) {
+                DBUtils.doRollbackQuietly(conn);
+            }
+            DBUtils.closeQuietly(conn);
+        }
+        for (Runnable action : transaction.afterCommit) {
+            runQuietly(action);
+        }
+        return result;
+    }
+
+    /**
+     * Returns connection bound to the current thread, or new connection of
+     * the wrapped DataSource when no transaction is running.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Transaction transaction = current.get();
+        return transaction != null ? transaction.bound : target.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (current.get() != null) {
+            throw new SQLException("Connection with other credentials can not join running transaction");
+        }
+        return target.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+
+    /**
+     * Transaction running in one thread with its bound connection.
+     */
+    private static final class Transaction {
+
+        private final Connection bound;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private boolean rollbackOnly;
+
+        Transaction(final Connection conn) {
+            this.bound = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                        case "setAutoCommit":
+                            // transaction and connection are ended by TransactionManager
+                            return null;
+                        case "commit":
+                        case "rollback":
+                            throw new SQLException("Transaction is ended by TransactionManager");
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package ThesisManCommon;
+
+import ThesisMan.ChangeEvent;
+import ThesisMan.Student;
+import ThesisMan.StudentManagerImpl;
+import ThesisMan.Thesis;
+import ThesisMan.ThesisManager;
+import ThesisMan.ThesisManagerImpl;
+import ThesisMan.ThesisManagerImplTest;
+import ThesisMan.Type;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for TransactionManager.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class TransactionManagerTest {
+
+    private EmbeddedDataSource target;
+    private MetricsRegistry registry;
+    private TransactionManager transactions;
+    private StudentManagerImpl studentManager;
+    private ThesisManagerImpl thesisManager;
+
+    @Before
+    public void setUp() throws SQLException {
+        target = new EmbeddedDataSource();
+        target.setDatabaseName("memory:thesismgr-test");
+        target.setCreateDatabase("create");
+        DBUtils.executeSqlScript(target, ThesisManager.class.getResource("createTables.sql"));
+        registry = new MetricsRegistry();
+        transactions = new TransactionManager(new MeteredDataSource(target, registry));
+        studentManager = new StudentManagerImpl();
+        studentManager.setDataSource(transactions);
+        thesisManager = new ThesisManagerImpl();
+        thesisManager.setDataSource(transactions);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        DBUtils.executeSqlScript(target, ThesisManager.class.getResource("dropTables.sql"));
+    }
+
+    @Test
+    public void unitOfWorkUsesOneConnection() throws Exception {
+        final Student student = newStudent();
+        transactions.inTransaction(() -> {
+            studentManager.createStudent(student);
+            thesisManager.createThesis(ThesisManagerImplTest.newThesis("Math", Type.PHD, 2012, student));
+            thesisManager.createTheses(Arrays.asList(
+                    ThesisManagerImplTest.newThesis("Physics", Type.PHD, 2013, student),
+                    ThesisManagerImplTest.newThesis("Biology", Type.PHD, 2014, student)));
+            student.setName("Martin");
+            studentManager.updateStudent(student);
+            assertTrue(transactions.isInTransaction());
+            return null;
+        });
+
+        assertFalse(transactions.isInTransaction());
+        assertEquals(1, connectionCount());
+        assertEquals("Martin", studentManager.getStudentById(student.getId()).getName());
+        assertEquals(3, thesisManager.getThesesForStudent(student).size());
+    }
+
+    @Test
+    public void failedUnitOfWorkIsRolledBack() throws Exception {
+        final Student student = newStudent();
+        try {
+            transactions.inTransaction(() -> {
+                studentManager.createStudent(student);
+                thesisManager.createThesis(ThesisManagerImplTest.newThesis("Math", Type.PHD, 2012, student));
+                throw new ServiceFailureException("failure");
+            });
+            fail("ServiceFailureException expected");
+        } catch (ServiceFailureException ex) {
+            assertEquals("failure", ex.getMessage());
+        }
+
+        assertTrue(studentManager.findAllStudents().isEmpty());
+        assertTrue(thesisManager.getAllTheses().isEmpty());
+    }
+
+    @Test
+    public void failedNestedWorkRollsBackWholeTransaction() throws Exception {
+        final Student student = newStudent();
+        try {
+            transactions.inTransaction(() -> {
+                studentManager.createStudent(student);
+                try {
+                    transactions.inTransaction(() -> {
+                        throw new ServiceFailureException("nested failure");
+                    });
+                    fail("ServiceFailureException expected");
+                } catch (ServiceFailureException ex) {
+                    // caught, but the transaction can not be committed
+                }
+                return null;
+            });
+            fail("ServiceFailureException expected");
+        } catch (ServiceFailureException ex) {
+            // expected
+        }
+
+        assertTrue(studentManager.findAllStudents().isEmpty());
+    }
+
+    @Test
+    public void changesArePublishedAfterCommit() throws Exception {
+        final List<ChangeEvent<?>> events = new ArrayList<>();
+        studentManager.addChangeListener(events::add);
+        thesisManager.addChangeListener(events::add);
+        final Student student = newStudent();
+        transactions.inTransaction(() -> {
+            studentManager.createStudent(student);
+            thesisManager.createTheses(Arrays.asList(
+                    ThesisManagerImplTest.newThesis("Physics", Type.PHD, 2013, student),
+                    ThesisManagerImplTest.newThesis("Biology", Type.PHD, 2014, student)));
+            student.setName("Martin");
+            studentManager.updateStudent(student);
+            assertTrue(events.isEmpty());
+            return null;
+        });
+
+        assertEquals(4, events.size());
+        assertEquals(ChangeEvent.Kind.CREATED, events.get(0).getKind());
+        assertEquals("Joshua", ((Student) events.get(0).getEntity()).getName());
+        assertEquals("Physics", ((Thesis) events.get(1).getEntity()).getName());
+        assertEquals(ChangeEvent.Kind.UPDATED, events.get(3).getKind());
+        assertEquals("Martin", ((Student) events.get(3).getEntity()).getName());
+
+        events.clear();
+        studentManager.deleteStudent(newStudent(studentManager));
+        assertEquals(ChangeEvent.Kind.DELETED, events.get(events.size() - 1).getKind());
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void changesOfRolledBackTransactionAreNotPublished() throws Exception {
+        final List<ChangeEvent<Student>> events = new ArrayList<>();
+        studentManager.addChangeListener(events::add);
+        try {
+            transactions.inTransaction(() -> {
+                studentManager.createStudent(newStudent());
+                throw new ServiceFailureException("failure");
+            });
+            fail("ServiceFailureException expected");
+        } catch (ServiceFailureException ex) {
+            // expected
+        }
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void failedAfterCommitActionDoesNotStopOthers() throws Exception {
+        final List<String> actions = new ArrayList<>();
+        transactions.inTransaction(() -> {
+            transactions.afterCommit(() -> {
+                throw new IllegalStateException("failure");
+            });
+            transactions.afterCommit(() -> actions.add("second"));
+            return null;
+        });
+        assertEquals(Arrays.asList("second"), actions);
+
+        transactions.afterCommit(() -> actions.add("immediate"));
+        assertEquals(Arrays.asList("second", "immediate"), actions);
+    }
+
+    @Test
+    public void boundConnectionCanNotEndTransaction() throws Exception {
+        transactions.inTransaction(() -> {
+            Connection conn = transactions.getConnection();
+            assertSame(conn, transactions.getConnection());
+            conn.close();
+            conn.setAutoCommit(true);
+            assertFalse(conn.getAutoCommit());
+            try {
+                conn.commit();
+                fail("SQLException expected");
+            } catch (SQLException ex) {
+                // expected
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void managersFindTransactionManagerBehindOtherDataSources() throws Exception {
+        DataSource traced = new TracingDataSource(transactions);
+        studentManager.setDataSource(traced);
+        final Student student = newStudent();
+        try {
+            transactions.inTransaction(() -> {
+                studentManager.createStudents(Arrays.asList(student));
+                throw new SQLException("failure");
+            });
+            fail("SQLException expected");
+        } catch (SQLException ex) {
+            // expected
+        }
+        assertTrue(studentManager.findAllStudents().isEmpty());
+        assertSame(transactions, TransactionManager.of(traced));
+    }
+
+    @Test
+    public void managerWithoutTransactionManagerGetsItsOwn() throws Exception {
+        StudentManagerImpl manager = new StudentManagerImpl();
+        manager.setDataSource(target);
+        Student student = newStudent();
+        manager.createStudent(student);
+        student.setName("Martin");
+        manager.updateStudent(student);
+        assertEquals("Martin", manager.getStudentById(student.getId()).getName());
+    }
+
+    private long connectionCount() {
+        return registry.snapshot().get(MeteredDataSource.GET_CONNECTION).getCalls();
+    }
+
+    private static Student newStudent(StudentManagerImpl manager) throws ServiceFailureException {
+        Student student = newStudent();
+        manager.createStudent(student);
+        return student;
+    }
+
+    private static Student newStudent() {
+        Student student = new Student();
+        student.setName("Joshua");
+        student.setSurname("Bloch");
+        return student;
+    }
+}
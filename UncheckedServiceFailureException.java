@@ -0,0 +1,23 @@
+package ThesisManCommon;
+
+/**
+ * Wraps {@link ServiceFailureException} in places where checked exception 
+ * can not be thrown, e.g. when rows are read lazily from a stream.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class UncheckedServiceFailureException extends RuntimeException {
+    
+    public UncheckedServiceFailureException(ServiceFailureException cause) {
+        super(cause);
+    }
+    
+    public UncheckedServiceFailureException(String message, ServiceFailureException cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public ServiceFailureException getCause() {
+        return (ServiceFailureException) super.getCause();
+    }
+}
@@ -0,0 +1,72 @@
+package ThesisMan;
+
+import ThesisManCommon.ValidationException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares cost of student validation by {@link EntityValidator} with the
+ * former validation by {@link Pattern#matches(String, CharSequence)}. Run 
+ * with the GC profiler (-prof gc) to see allocations per validation.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValidationBenchmark {
+    
+    private final Student student = newStudent("Joshua James", "Bloch");
+    private final EntityValidator validator = new EntityValidator();
+    
+    @Benchmark
+    public Student entityValidator() {
+        validator.validate(student);
+        return student;
+    }
+    
+    @Benchmark
+    public Student patternMatches() {
+        if (student == null) {
+            throw new IllegalArgumentException("student is null");
+        }
+        if (student.getName() == null) {
+            throw new ValidationException("student name is null");
+        }
+        if (student.getSurname() == null ) {
+            throw new ValidationException("student surname is null");
+        }
+        if (student.getName().equals("")) {
+            throw new ValidationException("student name is empty");
+        }
+        if (student.getSurname().equals("")) {
+            throw new ValidationException("student surname is empty");
+        }
+        if (!Pattern.matches("[a-zA-Z ]+", student.getName())) {
+            throw new ValidationException("student name does not contain only characters");
+        }
+        if (!Pattern.matches("[a-zA-Z ]+", student.getSurname())) {
+            throw new ValidationException("student surname does not contain only characters");
+        }
+        return student;
+    }
+    
+    private static Student newStudent(String name, String surname) {
+        Student student = new Student();
+        student.setName(name);
+        student.setSurname(surname);
+        return student;
+    }
+}
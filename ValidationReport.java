@@ -0,0 +1,98 @@
+package ThesisMan;
+
+import java.util.Arrays;
+
+/**
+ * All violations found by bulk validation of a collection. Every violation 
+ * is stored as position of the invalid entity in the collection and the 
+ * violated rule; one entity can have more violations.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public final class ValidationReport {
+    
+    private static final Violation[] VIOLATIONS = Violation.values();
+    
+    private int[] indexes = new int[8];
+    private byte[] violations = new byte[8];
+    private int size;
+    
+    void add(int index, Violation violation) {
+        if (size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, size * 2);
+            violations = Arrays.copyOf(violations, size * 2);
+        }
+        indexes[size] = index;
+        violations[size] = (byte) violation.ordinal();
+        size++;
+    }
+    
+    public boolean isValid() {
+        return size == 0;
+    }
+    
+    /**
+     * Returns number of violations.
+     * 
+     * @return number of violations
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Returns position of the entity with i-th violation in the validated 
+     * collection.
+     * 
+     * @param i index of violation
+     * @return position of invalid entity
+     */
+    public int getIndex(int i) {
+        checkIndex(i);
+        return indexes[i];
+    }
+    
+    /**
+     * Returns i-th violation.
+     * 
+     * @param i index of violation
+     * @return violated rule
+     */
+    public Violation getViolation(int i) {
+        checkIndex(i);
+        return VIOLATIONS[violations[i]];
+    }
+    
+    /**
+     * Returns number of distinct invalid entities.
+     * 
+     * @return number of invalid entities
+     */
+    public int getInvalidCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Violation " + i + " of " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("ValidationReport{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(indexes[i]).append(": ").append(VIOLATIONS[violations[i]].getMessage());
+        }
+        return result.append('}').toString();
+    }
+}
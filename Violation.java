@@ -0,0 +1,43 @@
+package ThesisMan;
+
+/**
+ * Violations of validation rules for students and theses.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public enum Violation {
+    
+    STUDENT_NULL("student is null"),
+    STUDENT_NAME_NULL("student name is null"),
+    STUDENT_SURNAME_NULL("student surname is null"),
+    STUDENT_NAME_EMPTY("student name is empty"),
+    STUDENT_SURNAME_EMPTY("student surname is empty"),
+    STUDENT_NAME_NOT_LETTERS("student name does not contain only characters"),
+    STUDENT_SURNAME_NOT_LETTERS("student surname does not contain only characters"),
+    THESIS_NULL("thesis is null"),
+    THESIS_NAME_NULL("thesis name is null"),
+    THESIS_NAME_EMPTY("thesis name is empty"),
+    THESIS_AUTHOR_NULL("author is null"),
+    THESIS_YEAR_NEGATIVE("year is negative"),
+    THESIS_TYPE_NULL("type is null");
+    
+    private final String message;
+
+    private Violation(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+    
+    /**
+     * Returns true when the violated entity is null, which is reported by 
+     * IllegalArgumentException instead of ValidationException.
+     * 
+     * @return true for null entity
+     */
+    public boolean isNullEntity() {
+        return this == STUDENT_NULL || this == THESIS_NULL;
+    }
+}
@@ -0,0 +1,57 @@
+package ThesisMan;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe identity map which holds students only weakly. Students are 
+ * kept as long as some thesis or other object refers to them, so one 
+ * instance of this map can be shared by all thesis managers in the JVM
+ * to canonicalize authors across queries without growing forever.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public class WeakStudentIdentityMap extends StudentIdentityMap {
+    
+    private final ConcurrentMap<Long, StudentReference> students = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Student> queue = new ReferenceQueue<>();
+    
+    @Override
+    public int size() {
+        expungeStaleEntries();
+        return students.size();
+    }
+    
+    @Override
+    protected Student get(long id) {
+        StudentReference reference = students.get(id);
+        return reference == null ? null : reference.get();
+    }
+
+    @Override
+    protected void put(long id, Student student) {
+        expungeStaleEntries();
+        students.put(id, new StudentReference(id, student, queue));
+    }
+    
+    private void expungeStaleEntries() {
+        Reference<? extends Student> reference;
+        while ((reference = queue.poll()) != null) {
+            StudentReference stale = (StudentReference) reference;
+            students.remove(stale.id, stale);
+        }
+    }
+    
+    private static final class StudentReference extends WeakReference<Student> {
+        
+        private final long id;
+
+        StudentReference(long id, Student student, ReferenceQueue<Student> queue) {
+            super(student, queue);
+            this.id = id;
+        }
+    }
+}
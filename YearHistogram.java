@@ -0,0 +1,96 @@
+package ThesisMan;
+
+import java.util.Arrays;
+
+/**
+ * Number of theses published in every year of a continuous range of years.
+ * Counts are held in primitive array indexed by the year.
+ *
+ * @author Kristina Miklasova, 4333 83
+ */
+public final class YearHistogram {
+    
+    private final int firstYear;
+    private final long[] counts;
+
+    /**
+     * Creates histogram.
+     * 
+     * @param firstYear year of the first count
+     * @param counts number of theses in the consecutive years since firstYear
+     */
+    public YearHistogram(int firstYear, long[] counts) {
+        if (counts == null) {
+            throw new IllegalArgumentException("counts is null");
+        }
+        this.firstYear = firstYear;
+        this.counts = counts.clone();
+    }
+
+    /**
+     * Returns the first year of the histogram.
+     * 
+     * @return the first year
+     */
+    public int getFirstYear() {
+        return firstYear;
+    }
+
+    /**
+     * Returns the last year of the histogram. It is smaller than the first 
+     * year when the histogram is empty.
+     * 
+     * @return the last year
+     */
+    public int getLastYear() {
+        return firstYear + counts.length - 1;
+    }
+    
+    public boolean isEmpty() {
+        return counts.length == 0;
+    }
+
+    /**
+     * Returns number of theses published in given year.
+     * 
+     * @param year year of publication
+     * @return number of theses, zero for years outside of the histogram
+     */
+    public long getCount(int year) {
+        int index = year - firstYear;
+        return index >= 0 && index < counts.length ? counts[index] : 0;
+    }
+    
+    /**
+     * Returns number of theses in all years.
+     * 
+     * @return total number of theses
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof YearHistogram)) {
+            return false;
+        }
+        final YearHistogram other = (YearHistogram) obj;
+        return (isEmpty() && other.isEmpty()) 
+                || (firstYear == other.firstYear && Arrays.equals(counts, other.counts));
+    }
+
+    @Override
+    public int hashCode() {
+        return isEmpty() ? 0 : 31 * firstYear + Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return "YearHistogram{" + "firstYear=" + firstYear + ", counts=" + Arrays.toString(counts) + '}';
+    }
+}
@@ -1,7 +1,8 @@
 CREATE TABLE STUDENT (
     "ID" BIGINT NOT NULL PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
     "SURNAME" VARCHAR(30),
-    "NAME" VARCHAR(30)
+    "NAME" VARCHAR(30),
+    "VERSION" INTEGER NOT NULL DEFAULT 0
 );
 
 CREATE TABLE THESIS (
@@ -9,5 +10,9 @@ CREATE TABLE THESIS (
     "AUTHORID" BIGINT REFERENCES STUDENT(ID),
     "NAME" VARCHAR(255),
     "TYPE" VARCHAR(10), 
-    "YEAROFPUBLICATION" INTEGER   
-);
\ No newline at end of file
+    "YEAROFPUBLICATION" INTEGER,
+    "VERSION" INTEGER NOT NULL DEFAULT 0
+);
+
+-- AUTHORID needs no explicit index, Derby backs the foreign key by one
+CREATE INDEX THESIS_TYPE_YEAR ON THESIS ("TYPE", "YEAROFPUBLICATION")
\ No newline at end of file